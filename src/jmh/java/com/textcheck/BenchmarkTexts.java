@@ -0,0 +1,72 @@
+package com.textcheck;
+
+import java.util.Random;
+
+/**
+ * 基准测试使用的确定性输入文本
+ */
+public final class BenchmarkTexts {
+
+    /** 输入规模 */
+    public enum Input {
+        /** 短中文句子 */
+        SHORT_CJK(20, 0.0),
+        /** 中英文混合的段落 */
+        MIXED(500, 0.4),
+        /** 约1万字符的长文本 */
+        LONG_10K(10_000, 0.2),
+        /** 约100万字符的长文本 */
+        LONG_1M(1_000_000, 0.2);
+
+        final int length;
+        final double latinRatio;
+
+        Input(int length, double latinRatio) {
+            this.length = length;
+            this.latinRatio = latinRatio;
+        }
+    }
+
+    private static final String CJK = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处队南给色光门即保治北造百规热领七海口东导器压志世金增争济阶油思术极交受联什认六共权收证改清己美再采转更单风切打白教速花带安场身车例真务具万每目至达走积示议声报斗完类八离华名确才科张信马节话米整空元况今集温传土许步群广石记需段研界拉林律叫且究观越织装影算低持音众书布复容儿须际商非验连断深难近矿千周委素技备半办青省列习响约支般史感劳便团往酸历市克何除消构府称太准精值号率族维划选标写存候毛亲快效斯院查江型眼王按格养易置派层片始却专状育厂京识适属圆包火住调满县局照参红细引听该铁价严";
+
+    private static final String[] LATIN = {
+        "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "similarity", "text",
+        "java", "gradle", "benchmark", "cosine", "jaccard", "levenshtein", "2024", "v1.0"
+    };
+
+    private static final String PUNCTUATION = "，。、；：？！";
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * 生成一对相似的文本，第二段在第一段的基础上随机修改约10%的字符
+     */
+    static String[] pair(Input input, long seed) {
+        Random random = new Random(seed);
+        String text1 = generate(input, random);
+        StringBuilder text2 = new StringBuilder(text1);
+        int edits = Math.max(1, text1.length() / 10);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(text2.length());
+            text2.setCharAt(position, CJK.charAt(random.nextInt(CJK.length())));
+        }
+        return new String[] {text1, text2.toString()};
+    }
+
+    private static String generate(Input input, Random random) {
+        StringBuilder builder = new StringBuilder(input.length + 16);
+        while (builder.length() < input.length) {
+            if (random.nextDouble() < input.latinRatio) {
+                builder.append(' ').append(LATIN[random.nextInt(LATIN.length)]).append(' ');
+            } else {
+                builder.append(CJK.charAt(random.nextInt(CJK.length())));
+            }
+            if (random.nextInt(12) == 0) {
+                builder.append(PUNCTUATION.charAt(random.nextInt(PUNCTUATION.length())));
+            }
+        }
+        builder.setLength(input.length);
+        return builder.toString();
+    }
+}
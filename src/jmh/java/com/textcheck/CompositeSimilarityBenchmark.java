@@ -0,0 +1,58 @@
+package com.textcheck;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CompositeSimilarity的基准测试，与依次调用三个算法对比
+ * 包含编辑距离，因此与LevenshteinDistanceBenchmark一样只覆盖到1万字符
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompositeSimilarityBenchmark {
+
+    @Param({"SHORT_CJK", "MIXED", "LONG_10K"})
+    public BenchmarkTexts.Input input;
+
+    private final CompositeSimilarity composite = new CompositeSimilarity();
+    private final CosineSimilarity cosine = new CosineSimilarity();
+    private final JaccardSimilarity jaccard = new JaccardSimilarity();
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+    private String text1;
+    private String text2;
+
+    @Setup
+    public void setUp() {
+        String[] pair = BenchmarkTexts.pair(input, 42L);
+        text1 = pair[0];
+        text2 = pair[1];
+    }
+
+    @Benchmark
+    public double calculate() {
+        return composite.calculate(text1, text2);
+    }
+
+    /**
+     * 三个算法各自规范化、分词，作为对照
+     */
+    @Benchmark
+    public double separate() {
+        return (cosine.calculate(text1, text2) + jaccard.calculate(text1, text2)
+                + levenshtein.calculate(text1, text2)) / 3;
+    }
+}
@@ -0,0 +1,59 @@
+package com.textcheck;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LevenshteinDistance的基准测试
+ * 编辑距离的计算量为O(n·m)，100万字符的输入一次调用需要数小时，因此只覆盖到1万字符
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevenshteinDistanceBenchmark {
+
+    @Param({"SHORT_CJK", "MIXED", "LONG_10K"})
+    public BenchmarkTexts.Input input;
+
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+    private String text1;
+    private String text2;
+
+    @Setup
+    public void setUp() {
+        String[] pair = BenchmarkTexts.pair(input, 42L);
+        text1 = pair[0];
+        text2 = pair[1];
+    }
+
+    @Benchmark
+    public double calculate() {
+        return levenshtein.calculate(text1, text2);
+    }
+
+    /**
+     * 带相似度下限的计算，只评估带内的单元格
+     */
+    @Benchmark
+    public double calculateWithCutoff() {
+        return levenshtein.calculate(text1, text2, 0.8);
+    }
+
+    @Benchmark
+    public int bitParallelDistance() {
+        return BitParallelLevenshtein.distance(text1, text2);
+    }
+}
@@ -0,0 +1,66 @@
+package com.textcheck;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 不需要语料且能处理100万字符输入的相似度算法的基准测试，包括按原文计算、构建profile以及按profile打分
+ * 算法通过{@link SimilarityChecker#createCalculator(String)}按名称创建，与命令行使用的实现一致；
+ * 编辑距离和综合相似度见LevenshteinDistanceBenchmark、CompositeSimilarityBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityBenchmark {
+
+    @Param({"cosine", "jaccard", "winnowing"})
+    public String algorithm;
+
+    @Param({"SHORT_CJK", "MIXED", "LONG_10K", "LONG_1M"})
+    public BenchmarkTexts.Input input;
+
+    private final TermDictionary dictionary = new TermDictionary();
+    private SimilarityCalculator calculator;
+    private String text1;
+    private String text2;
+    private DocumentProfile profile1;
+    private DocumentProfile profile2;
+
+    @Setup
+    public void setUp() {
+        calculator = SimilarityChecker.createCalculator(algorithm);
+        String[] pair = BenchmarkTexts.pair(input, 42L);
+        text1 = pair[0];
+        text2 = pair[1];
+        profile1 = DocumentProfile.of(text1, dictionary);
+        profile2 = DocumentProfile.of(text2, dictionary);
+    }
+
+    @Benchmark
+    public double calculate() {
+        return calculator.calculate(text1, text2);
+    }
+
+    @Benchmark
+    public DocumentProfile prepare() {
+        return DocumentProfile.of(text1, dictionary);
+    }
+
+    @Benchmark
+    public double calculateProfiles() {
+        return calculator.calculateProfiles(profile1, profile2);
+    }
+}
@@ -0,0 +1,68 @@
+package com.textcheck;
+
+/**
+ * 分块对齐得到的一个区域，位置为原文中的字符下标，区间左闭右开
+ * 删除区域只有第一段文本的区间，插入区域只有第二段文本的区间，另一侧的区间为空
+ */
+public final class AlignedRegion {
+
+    /** 区域类型 */
+    public enum Type {
+        /** 两侧内容相同（忽略空白差异） */
+        EQUAL,
+        /** 两侧内容相似但有修改 */
+        CHANGED,
+        /** 只出现在第一段文本中 */
+        DELETED,
+        /** 只出现在第二段文本中 */
+        INSERTED
+    }
+
+    private final Type type;
+    private final int start1;
+    private final int end1;
+    private final int start2;
+    private final int end2;
+    private final double similarity;
+
+    AlignedRegion(Type type, int start1, int end1, int start2, int end2, double similarity) {
+        this.type = type;
+        this.start1 = start1;
+        this.end1 = end1;
+        this.start2 = start2;
+        this.end2 = end2;
+        this.similarity = similarity;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public int start1() {
+        return start1;
+    }
+
+    public int end1() {
+        return end1;
+    }
+
+    public int start2() {
+        return start2;
+    }
+
+    public int end2() {
+        return end2;
+    }
+
+    /**
+     * 区域内的编辑距离相似度，相同区域为1，删除和插入区域为0
+     */
+    public double similarity() {
+        return similarity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [%d,%d) ~ [%d,%d): %.4f", type, start1, end1, start2, end2, similarity);
+    }
+}
@@ -0,0 +1,191 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * 批量相似度计算：一对多取前K个结果，以及语料内两两比较
+ * 每个文档只预处理一次，打分在ForkJoin线程池中并行执行
+ */
+public class BatchSimilarityEngine {
+
+    /** 一对多打分时每个叶子任务处理的文档数 */
+    private static final int SCORE_GRAIN = 256;
+
+    /** 两两比较时每个叶子任务处理的行数 */
+    private static final int PAIR_ROW_GRAIN = 8;
+
+    /** 结果按相似度降序、下标升序排列 */
+    private static final Comparator<ScoredDocument> BY_SCORE =
+            Comparator.comparingDouble(ScoredDocument::score).reversed()
+                      .thenComparingInt(ScoredDocument::index);
+
+    private final SimilarityCalculator calculator;
+    private final ForkJoinPool pool;
+
+    public BatchSimilarityEngine(SimilarityCalculator calculator) {
+        this(calculator, ForkJoinPool.commonPool());
+    }
+
+    public BatchSimilarityEngine(SimilarityCalculator calculator, ForkJoinPool pool) {
+        this.calculator = calculator;
+        this.pool = pool;
+    }
+
+    /**
+     * 并行预处理语料，使用一个新的词典
+     * @param texts 文本列表
+     * @return 与texts一一对应的profile
+     */
+    public List<DocumentProfile> prepare(List<String> texts) {
+        return prepare(texts, new TermDictionary());
+    }
+
+    /**
+     * 并行预处理语料
+     * @param texts 文本列表
+     * @param dictionary 构建profile使用的词典，之后与这些profile比较的文档也要使用它
+     * @return 与texts一一对应的profile
+     */
+    public List<DocumentProfile> prepare(List<String> texts, TermDictionary dictionary) {
+        DocumentProfile[] profiles = new DocumentProfile[texts.size()];
+        pool.invoke(new RangeAction(0, texts.size(), SCORE_GRAIN,
+                i -> profiles[i] = DocumentProfile.of(texts.get(i), dictionary)));
+        return Arrays.asList(profiles);
+    }
+
+    /**
+     * 计算查询文本与语料中每个文档的相似度，返回最相似的前k个
+     * @param query 查询文本
+     * @param corpus 语料
+     * @param k 返回的结果数
+     * @return 按相似度降序排列的结果
+     */
+    public List<ScoredDocument> scoreAgainst(String query, List<String> corpus, int k) {
+        TermDictionary dictionary = new TermDictionary();
+        return scoreProfiles(DocumentProfile.of(query, dictionary), prepare(corpus, dictionary), k);
+    }
+
+    /**
+     * 与{@link #scoreAgainst(String, List, int)}相同，但使用预先构建的profile
+     */
+    public List<ScoredDocument> scoreProfiles(DocumentProfile query, List<DocumentProfile> corpus, int k) {
+        if (k <= 0 || corpus.isEmpty()) {
+            return Collections.emptyList();
+        }
+        double[] scores = new double[corpus.size()];
+        pool.invoke(new RangeAction(0, corpus.size(), SCORE_GRAIN,
+                i -> scores[i] = calculator.calculateProfiles(query, corpus.get(i))));
+
+        // 用大小为k的最小堆选出前k个
+        PriorityQueue<ScoredDocument> heap = new PriorityQueue<>(k + 1, BY_SCORE.reversed());
+        for (int i = 0; i < scores.length; i++) {
+            if (heap.size() < k) {
+                heap.add(new ScoredDocument(i, scores[i]));
+            } else if (scores[i] > heap.peek().score()) {
+                heap.poll();
+                heap.add(new ScoredDocument(i, scores[i]));
+            }
+        }
+        List<ScoredDocument> top = new ArrayList<>(heap);
+        top.sort(BY_SCORE);
+        return top;
+    }
+
+    /**
+     * 找出语料中相似度不低于阈值的所有文档对
+     * @param corpus 语料
+     * @param threshold 相似度阈值
+     * @return 按(first, second)升序排列的文档对
+     */
+    public List<SimilarPair> allPairs(List<String> corpus, double threshold) {
+        return allPairsOfProfiles(prepare(corpus), threshold);
+    }
+
+    /**
+     * 与{@link #allPairs(List, double)}相同，但使用预先构建的profile
+     */
+    public List<SimilarPair> allPairsOfProfiles(List<DocumentProfile> corpus, double threshold) {
+        return pool.invoke(new PairTask(corpus, threshold, 0, corpus.size()));
+    }
+
+    /**
+     * 对[from, to)中的每个下标并行执行body
+     */
+    @SuppressWarnings("serial")
+    static final class RangeAction extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IntConsumer body;
+
+        RangeAction(int from, int to, int grain, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, middle, grain, body), new RangeAction(middle, to, grain, body));
+        }
+    }
+
+    /**
+     * 处理[fromRow, toRow)行与其后所有文档的比较
+     * 靠前的行工作量更大，叶子任务保持较小的粒度以便工作窃取均衡负载
+     */
+    @SuppressWarnings("serial")
+    private final class PairTask extends RecursiveTask<List<SimilarPair>> {
+        private final List<DocumentProfile> corpus;
+        private final double threshold;
+        private final int fromRow;
+        private final int toRow;
+
+        PairTask(List<DocumentProfile> corpus, double threshold, int fromRow, int toRow) {
+            this.corpus = corpus;
+            this.threshold = threshold;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected List<SimilarPair> compute() {
+            if (toRow - fromRow <= PAIR_ROW_GRAIN) {
+                List<SimilarPair> pairs = new ArrayList<>();
+                for (int i = fromRow; i < toRow; i++) {
+                    DocumentProfile profile = corpus.get(i);
+                    for (int j = i + 1; j < corpus.size(); j++) {
+                        double score = calculator.calculateProfiles(profile, corpus.get(j), threshold);
+                        if (score >= threshold) {
+                            pairs.add(new SimilarPair(i, j, score));
+                        }
+                    }
+                }
+                return pairs;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            PairTask right = new PairTask(corpus, threshold, middle, toRow);
+            right.fork();
+            List<SimilarPair> pairs = new PairTask(corpus, threshold, fromRow, middle).compute();
+            pairs.addAll(right.join());
+            return pairs;
+        }
+    }
+}
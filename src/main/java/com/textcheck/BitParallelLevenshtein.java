@@ -0,0 +1,188 @@
+package com.textcheck;
+
+import java.util.Arrays;
+
+/**
+ * 基于Myers/Hyyrö位并行算法的单位代价编辑距离
+ * 以64位为一块处理较短的字符串，时间复杂度为O(n·⌈m/64⌉)。
+ * 每个码点只保存含有该码点的块，匹配位向量的总数不超过m，内存为O(m)，与字符集大小无关
+ */
+public final class BitParallelLevenshtein {
+
+    private BitParallelLevenshtein() {
+    }
+
+    /**
+     * 计算插入、删除、替换代价均为1的编辑距离
+     * @param text1 第一段文本
+     * @param text2 第二段文本
+     * @return 编辑距离
+     */
+    public static int distance(CharSequence text1, CharSequence text2) {
+        return distance(text1.codePoints().toArray(), text2.codePoints().toArray());
+    }
+
+    /**
+     * 计算两个码点序列的单位代价编辑距离
+     * @param codePoints1 第一段文本的码点
+     * @param codePoints2 第二段文本的码点
+     * @return 编辑距离
+     */
+    public static int distance(int[] codePoints1, int[] codePoints2) {
+        try (Scratch scratch = Scratch.acquire()) {
+            return distance(codePoints1, codePoints1.length, codePoints2, codePoints2.length, scratch);
+        }
+    }
+
+    /**
+     * 同{@link #distance(int[], int[])}，码点序列为缓冲区的前length1、length2个元素，位向量取自scratch
+     */
+    static int distance(int[] codePoints1, int length1, int[] codePoints2, int length2, Scratch scratch) {
+        // 较短的序列作为位向量所在的一维
+        boolean swap = length1 > length2;
+        int[] pattern = swap ? codePoints2 : codePoints1;
+        int[] text = swap ? codePoints1 : codePoints2;
+        int m = swap ? length2 : length1;
+        int n = swap ? length1 : length2;
+        if (m == 0) {
+            return n;
+        }
+
+        int blocks = (m + 63) >>> 6;
+        PatternMasks masks = new PatternMasks(pattern, m, scratch);
+        long[] vp = scratch.longs(Scratch.VERTICAL_POSITIVE, blocks);
+        long[] vn = scratch.longs(Scratch.VERTICAL_NEGATIVE, blocks);
+        Arrays.fill(vp, 0, blocks, -1L);
+        Arrays.fill(vn, 0, blocks, 0L);
+        long last = 1L << ((m - 1) & 63);
+        int score = m;
+
+        for (int i = 0; i < n; i++) {
+            // 该码点的非零块按块号升序排列，随块号推进
+            int slot = masks.find(text[i]);
+            int entry = slot < 0 ? 0 : masks.starts[slot];
+            int end = slot < 0 ? 0 : masks.starts[slot + 1];
+            // 第0行的水平差值恒为+1
+            long hpCarry = 1L;
+            long hnCarry = 0L;
+
+            for (int b = 0; b < blocks; b++) {
+                long eq = 0L;
+                if (entry < end && masks.blocks[entry] == b) {
+                    eq = masks.bits[entry++];
+                }
+                long pv = vp[b];
+                long mv = vn[b];
+
+                long x = eq | hnCarry;
+                long d0 = (((x & pv) + pv) ^ pv) | x | mv;
+                long hp = mv | ~(d0 | pv);
+                long hn = d0 & pv;
+
+                if (b == blocks - 1) {
+                    if ((hp & last) != 0) {
+                        score++;
+                    } else if ((hn & last) != 0) {
+                        score--;
+                    }
+                }
+
+                long hpOut = hp >>> 63;
+                long hnOut = hn >>> 63;
+                hp = (hp << 1) | hpCarry;
+                hn = (hn << 1) | hnCarry;
+                hpCarry = hpOut;
+                hnCarry = hnOut;
+
+                vp[b] = hn | ~(d0 | hp);
+                vn[b] = hp & d0;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 码点到匹配位向量的开放寻址表
+     * 位向量按码点分组连续存放，每组只含有该码点出现的块，blocks为对应的块号，按块号升序
+     */
+    private static final class PatternMasks {
+        private final int[] keys;
+        private final boolean[] used;
+        private final int[] starts;
+        private final int[] blocks;
+        private final long[] bits;
+        private final int mask;
+
+        PatternMasks(int[] pattern, int m, Scratch scratch) {
+            // 按不同码点的个数确定表大小，避免长文本时位向量表过大
+            int[] sorted = scratch.ints(Scratch.PATTERN_SORTED, m);
+            System.arraycopy(pattern, 0, sorted, 0, m);
+            Arrays.sort(sorted, 0, m);
+            int distinct = 0;
+            for (int i = 0; i < m; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    distinct++;
+                }
+            }
+            int capacity = Integer.highestOneBit(Math.max(4, distinct * 2 - 1)) << 1;
+            this.keys = scratch.ints(Scratch.PATTERN_KEYS, capacity);
+            this.used = scratch.booleans(Scratch.PATTERN_USED, capacity);
+            this.starts = scratch.ints(Scratch.PATTERN_STARTS, capacity + 1);
+            this.blocks = scratch.ints(Scratch.PATTERN_BLOCKS, m);
+            this.bits = scratch.longs(Scratch.PATTERN_BITS, m);
+            Arrays.fill(used, 0, capacity, false);
+            Arrays.fill(starts, 0, capacity + 1, 0);
+            this.mask = capacity - 1;
+
+            // 第一遍统计每个码点出现在多少个块中，位置递增时块号不减，只需与该码点上一次的块号比较；
+            // 排序结果已经用完，sorted改为保存每个位置的槽位
+            int[] slots = sorted;
+            int[] cursor = scratch.ints(Scratch.PATTERN_CURSOR, capacity);
+            for (int i = 0; i < m; i++) {
+                int slot = slot(pattern[i]);
+                if (!used[slot]) {
+                    used[slot] = true;
+                    keys[slot] = pattern[i];
+                    cursor[slot] = -1;
+                }
+                slots[i] = slot;
+                if (cursor[slot] != i >>> 6) {
+                    cursor[slot] = i >>> 6;
+                    starts[slot + 1]++;
+                }
+            }
+            for (int slot = 0; slot < capacity; slot++) {
+                starts[slot + 1] += starts[slot];
+            }
+
+            // 第二遍按位置顺序写入，cursor为各槽位下一个空位
+            System.arraycopy(starts, 0, cursor, 0, capacity);
+            Arrays.fill(bits, 0, starts[capacity], 0L);
+            for (int i = 0; i < m; i++) {
+                int slot = slots[i];
+                int position = cursor[slot];
+                if (position == starts[slot] || blocks[position - 1] != i >>> 6) {
+                    blocks[position++] = i >>> 6;
+                    cursor[slot] = position;
+                }
+                bits[position - 1] |= 1L << (i & 63);
+            }
+        }
+
+        /**
+         * 码点在表中的槽位，码点不在模式串中时返回-1
+         */
+        int find(int codePoint) {
+            int slot = slot(codePoint);
+            return used[slot] ? slot : -1;
+        }
+
+        private int slot(int codePoint) {
+            int slot = (codePoint * 0x9E3779B1) >>> 12 & mask;
+            while (used[slot] && keys[slot] != codePoint) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
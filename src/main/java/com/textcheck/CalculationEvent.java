@@ -0,0 +1,52 @@
+package com.textcheck;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * 一次被记录的相似度计算，对应JFR事件com.textcheck.Calculation
+ * 没有开启飞行记录或事件被禁用时，shouldCommit返回false，不会填充字段
+ */
+@Name("com.textcheck.Calculation")
+@Label("Similarity Calculation")
+@Category("TextCheck")
+@Description("一次相似度计算及其各阶段耗时")
+class CalculationEvent extends Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Length 1")
+    long length1;
+
+    @Label("Length 2")
+    long length2;
+
+    @Label("Similarity")
+    double similarity;
+
+    @Label("Normalize")
+    @Timespan(Timespan.NANOSECONDS)
+    long normalizeNanos;
+
+    @Label("Vector")
+    @Timespan(Timespan.NANOSECONDS)
+    long vectorNanos;
+
+    @Label("Sets")
+    @Timespan(Timespan.NANOSECONDS)
+    long setsNanos;
+
+    @Label("Score")
+    @Timespan(Timespan.NANOSECONDS)
+    long scoreNanos;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+}
@@ -0,0 +1,265 @@
+package com.textcheck;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 一种相似度算法的调用指标：调用次数、输入长度、总耗时与各阶段耗时的直方图，以及分配量估计
+ * 指标由{@link InstrumentedCalculator}记录。各计算器在内部用{@link #phaseStart()}和{@link #phaseEnd}
+ * 标记阶段，只有在被包装的调用中才会计时，未启用时只多一次volatile读
+ */
+public final class CalculatorMetrics implements CalculatorMetricsMXBean {
+
+    /** 计算的阶段，分词与所填充的数据结构一起流式进行，计入对应的构建阶段 */
+    public enum Phase {
+        /** 编辑距离使用的空白规范化 */
+        NORMALIZE,
+        /** 分词并构建词频向量 */
+        VECTOR,
+        /** 分词并构建标记集合与字符集合 */
+        SETS,
+        /** 点积、集合交集或编辑距离等打分计算 */
+        SCORE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final ConcurrentHashMap<String, CalculatorMetrics> REGISTERED = new ConcurrentHashMap<>();
+
+    /** 有任何包装调用发生后置位，之前阶段标记完全不读线程局部变量 */
+    private static volatile boolean armed;
+
+    /** 当前线程正在记录的调用的各阶段耗时 */
+    private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>();
+
+    private final String algorithm;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram inputLength = new LatencyHistogram();
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+
+    /**
+     * 创建不注册到JMX的独立指标
+     * @param algorithm 算法名称
+     */
+    public CalculatorMetrics(String algorithm) {
+        this.algorithm = algorithm;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 获取算法的共享指标，首次获取时注册到平台MBeanServer
+     * @param algorithm 算法名称
+     */
+    public static CalculatorMetrics of(String algorithm) {
+        return REGISTERED.computeIfAbsent(algorithm, name -> {
+            CalculatorMetrics metrics = new CalculatorMetrics(name);
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(metrics,
+                        new ObjectName("com.textcheck:type=Calculator,name=" + ObjectName.quote(name)));
+            } catch (JMException e) {
+                throw new IllegalStateException("注册JMX指标失败: " + name, e);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * 阶段开始，返回开始时间；当前线程不在被记录的调用中时返回0
+     */
+    static long phaseStart() {
+        return armed && CURRENT.get() != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 阶段结束，累加自phaseStart以来的耗时
+     */
+    static void phaseEnd(Phase phase, long start) {
+        if (start != 0L) {
+            long[] current = CURRENT.get();
+            if (current != null) {
+                current[phase.ordinal()] += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * 开始在当前线程上记录阶段耗时，返回外层调用的记录以便恢复
+     */
+    static long[] beginPhases(long[] phaseNanos) {
+        armed = true;
+        long[] outer = CURRENT.get();
+        CURRENT.set(phaseNanos);
+        return outer;
+    }
+
+    static void endPhases(long[] outer) {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+
+    static long[] newPhaseArray() {
+        return new long[PHASES.length];
+    }
+
+    /**
+     * 记录一次调用
+     * @param nanos 总耗时
+     * @param phaseNanos 各阶段耗时，为0的阶段不计入直方图
+     * @param length1 第一个输入的字符数，小于0时不记录
+     * @param length2 第二个输入的字符数，小于0时不记录
+     * @param allocated 分配的字节数，小于0时不记录
+     * @param failed 调用是否抛出异常
+     */
+    void record(long nanos, long[] phaseNanos, long length1, long length2, long allocated, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latency.record(nanos);
+        if (length1 >= 0) {
+            inputLength.record(length1);
+        }
+        if (length2 >= 0) {
+            inputLength.record(length2);
+        }
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+        }
+        for (int i = 0; i < phaseNanos.length; i++) {
+            if (phaseNanos[i] > 0) {
+                phases[i].record(phaseNanos[i]);
+            }
+        }
+    }
+
+    /**
+     * 某个阶段的耗时直方图
+     */
+    public LatencyHistogram phase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * 总耗时直方图
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /**
+     * 输入长度直方图，每次调用记录两个输入
+     */
+    public LatencyHistogram inputLength() {
+        return inputLength;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return latency.mean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return latency.percentile(0.50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return latency.percentile(0.99);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latency.max();
+    }
+
+    @Override
+    public double getMeanInputLength() {
+        return inputLength.mean();
+    }
+
+    @Override
+    public long getP99InputLength() {
+        return inputLength.percentile(0.99);
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return InstrumentedCalculator.allocationSupported() ? allocatedBytes.sum() : -1;
+    }
+
+    @Override
+    public double getMeanAllocatedBytes() {
+        long n = calls.sum();
+        return n == 0 || !InstrumentedCalculator.allocationSupported() ? 0.0 : (double) allocatedBytes.sum() / n;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMeanNanos() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            result.put(phase.name(), phases[phase.ordinal()].mean());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP50Nanos() {
+        return phasePercentiles(0.50);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP99Nanos() {
+        return phasePercentiles(0.99);
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        allocatedBytes.reset();
+        latency.reset();
+        inputLength.reset();
+        for (LatencyHistogram phase : phases) {
+            phase.reset();
+        }
+    }
+
+    private Map<String, Long> phasePercentiles(double quantile) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            result.put(phase.name(), phases[phase.ordinal()].percentile(quantile));
+        }
+        return result;
+    }
+}
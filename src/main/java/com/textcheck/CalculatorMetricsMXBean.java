@@ -0,0 +1,49 @@
+package com.textcheck;
+
+import java.util.Map;
+
+/**
+ * 相似度计算指标的JMX接口，对象名为 com.textcheck:type=Calculator,name=算法名
+ * 延迟单位为纳秒，长度单位为字符，分配量单位为字节
+ */
+public interface CalculatorMetricsMXBean {
+
+    String getAlgorithm();
+
+    long getCalls();
+
+    long getErrors();
+
+    double getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getMaxNanos();
+
+    double getMeanInputLength();
+
+    long getP99InputLength();
+
+    /**
+     * 所有调用的分配字节数之和，JVM不支持线程分配统计时为-1
+     */
+    long getAllocatedBytes();
+
+    double getMeanAllocatedBytes();
+
+    /**
+     * 各阶段每次调用的平均耗时，键为阶段名
+     */
+    Map<String, Double> getPhaseMeanNanos();
+
+    Map<String, Long> getPhaseP50Nanos();
+
+    Map<String, Long> getPhaseP99Nanos();
+
+    /**
+     * 清空所有指标
+     */
+    void reset();
+}
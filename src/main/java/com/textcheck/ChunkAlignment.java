@@ -0,0 +1,32 @@
+package com.textcheck;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分块对齐的结果：整体相似度和按原文顺序排列的区域列表
+ */
+public final class ChunkAlignment {
+
+    private final double similarity;
+    private final List<AlignedRegion> regions;
+
+    ChunkAlignment(double similarity, List<AlignedRegion> regions) {
+        this.similarity = similarity;
+        this.regions = Collections.unmodifiableList(regions);
+    }
+
+    /**
+     * 按分块长度加权的整体相似度
+     */
+    public double similarity() {
+        return similarity;
+    }
+
+    /**
+     * 差异区域，相邻的相同、删除、插入区域已合并
+     */
+    public List<AlignedRegion> regions() {
+        return regions;
+    }
+}
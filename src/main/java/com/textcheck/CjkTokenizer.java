@@ -0,0 +1,241 @@
+package com.textcheck;
+
+import java.util.Arrays;
+
+/**
+ * 三种相似度算法共用的单遍分词器
+ * 基本多文种平面内的字符类别通过预先计算的查找表得到，增补平面的字符（如CJK扩展B）按完整码点处理。
+ * 分出的词写入可复用的缓冲区并通过回调交给{@link TokenSink}，分词过程本身不创建字符串。
+ * 可以分多次喂入文本，跨块的词和代理对都会被正确拼接。实例不是线程安全的
+ */
+public final class CjkTokenizer implements TextChunkConsumer {
+
+    /** 分词模式 */
+    public enum Mode {
+        /** 余弦相似度：标点和空白分隔，中文单字成词，其余字符连续成词 */
+        TERMS,
+        /** Jaccard相似度：空白分隔，中文单字成词，字母数字连续成词，其余字符忽略 */
+        WORDS
+    }
+
+    /** 标点或空白，正则[\p{P}\s]与Character.isSpaceChar的并集 */
+    static final byte SEPARATOR = 1;
+    /** Character.isSpaceChar */
+    static final byte SPACE = 2;
+    /** CJK统一表意文字（含扩展A、扩展B） */
+    static final byte CJK = 4;
+    /** Character.isLetterOrDigit */
+    static final byte WORD = 8;
+
+    /** 基本多文种平面的字符类别表 */
+    private static final byte[] CLASSES = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            CLASSES[c] = computeClass(c);
+        }
+    }
+
+    private final Mode mode;
+    private final TokenSink sink;
+    private char[] term = new char[32];
+    private int termLength;
+    private final char[] single = new char[2];
+    /** 上一块末尾未配对的高代理项 */
+    private char pendingHigh;
+
+    public CjkTokenizer(Mode mode, TokenSink sink) {
+        this.mode = mode;
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(char[] buffer, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        if (pendingHigh != 0 && i < end) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(buffer[i])) {
+                feed(Character.toCodePoint(high, buffer[i++]));
+            } else {
+                feed(high);
+            }
+        }
+        while (i < end) {
+            char c = buffer[i++];
+            if (Character.isHighSurrogate(c)) {
+                if (i == end) {
+                    pendingHigh = c;
+                    break;
+                }
+                if (Character.isLowSurrogate(buffer[i])) {
+                    feed(Character.toCodePoint(c, buffer[i++]));
+                    continue;
+                }
+            }
+            feed(c);
+        }
+    }
+
+    /**
+     * 喂入一段完整文本
+     */
+    public void accept(CharSequence text) {
+        accept(text, 0, text.length());
+    }
+
+    /**
+     * 喂入文本中[from, to)的部分，可以把一段文本分成几块依次喂入，
+     * 块末尾未配对的高代理项留到下一块或{@link #finish()}
+     */
+    public void accept(CharSequence text, int from, int to) {
+        int i = from;
+        if (pendingHigh != 0 && i < to) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(text.charAt(i))) {
+                feed(Character.toCodePoint(high, text.charAt(i++)));
+            } else {
+                feed(high);
+            }
+        }
+        while (i < to) {
+            char c = text.charAt(i++);
+            if (Character.isHighSurrogate(c)) {
+                if (i == to) {
+                    pendingHigh = c;
+                    break;
+                }
+                if (Character.isLowSurrogate(text.charAt(i))) {
+                    feed(Character.toCodePoint(c, text.charAt(i++)));
+                    continue;
+                }
+            }
+            feed(c);
+        }
+    }
+
+    /**
+     * 结束输入，输出最后一个未结束的词，之后可以继续复用
+     */
+    public void finish() {
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            feed(high);
+        }
+        endTerm();
+    }
+
+    /**
+     * 丢弃未结束的词和未配对的高代理项，用于提前放弃一段没有喂完的文本
+     */
+    void reset() {
+        termLength = 0;
+        pendingHigh = 0;
+    }
+
+    /**
+     * 判断码点是否会结束当前的词：中文字符、TERMS模式下的标点和空白、WORDS模式下的空白。
+     * 两个这样的码点之间的文本单独分词，结果与在全文中分词相同，增量更新据此确定需要重新分词的范围
+     */
+    static boolean endsTerm(int codePoint, Mode mode) {
+        int flags = classOf(Character.toLowerCase(codePoint));
+        return (flags & CJK) != 0 || (flags & (mode == Mode.TERMS ? SEPARATOR : SPACE)) != 0;
+    }
+
+    /**
+     * 判断码点是否为中文字符（CJK统一表意文字及扩展A、扩展B）
+     */
+    public static boolean isChinese(int codePoint) {
+        return (classOf(codePoint) & CJK) != 0;
+    }
+
+    private void feed(int codePoint) {
+        codePoint = Character.toLowerCase(codePoint);
+        int flags = classOf(codePoint);
+        if ((flags & CJK) != 0) {
+            // 中文字符单独作为一个词
+            endTerm();
+            int length = Character.toChars(codePoint, single, 0);
+            sink.token(single, 0, length);
+        } else if (mode == Mode.TERMS) {
+            if ((flags & SEPARATOR) != 0) {
+                endTerm();
+            } else {
+                append(codePoint);
+            }
+        } else if ((flags & SPACE) != 0) {
+            endTerm();
+        } else if ((flags & WORD) != 0) {
+            append(codePoint);
+        }
+    }
+
+    private void append(int codePoint) {
+        if (termLength + 2 > term.length) {
+            term = Arrays.copyOf(term, term.length * 2);
+        }
+        termLength += Character.toChars(codePoint, term, termLength);
+    }
+
+    private void endTerm() {
+        if (termLength > 0) {
+            sink.token(term, 0, termLength);
+            termLength = 0;
+        }
+    }
+
+    /**
+     * 码点的类别标志，由{@link #SEPARATOR}、{@link #SPACE}、{@link #CJK}、{@link #WORD}组合而成
+     */
+    static int classOf(int codePoint) {
+        return codePoint <= Character.MAX_VALUE ? CLASSES[codePoint] : computeClass(codePoint);
+    }
+
+    /**
+     * 只查一次Character.getType：isSpaceChar和isLetterOrDigit在JDK中都按类型定义，
+     * 类别表在类初始化时为6万多个字符逐一计算，这一步在单次调用的启动时间中占比明显
+     */
+    private static byte computeClass(int codePoint) {
+        byte flags = 0;
+        switch (Character.getType(codePoint)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                flags |= SEPARATOR;
+                break;
+            // Character.isSpaceChar
+            case Character.SPACE_SEPARATOR:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+                flags |= SEPARATOR | SPACE;
+                break;
+            // Character.isLetterOrDigit
+            case Character.UPPERCASE_LETTER:
+            case Character.LOWERCASE_LETTER:
+            case Character.TITLECASE_LETTER:
+            case Character.MODIFIER_LETTER:
+            case Character.OTHER_LETTER:
+            case Character.DECIMAL_DIGIT_NUMBER:
+                flags |= WORD;
+                break;
+            default:
+                break;
+        }
+        if (codePoint == '\t' || codePoint == '\n' || codePoint == '\u000B' || codePoint == '\f' || codePoint == '\r') {
+            flags |= SEPARATOR;
+        }
+        if ((codePoint >= 0x4E00 && codePoint <= 0x9FFF)
+                || (codePoint >= 0x3400 && codePoint <= 0x4DBF)
+                || (codePoint >= 0x20000 && codePoint <= 0x2A6DF)) {
+            flags |= CJK;
+        }
+        return flags;
+    }
+}
@@ -0,0 +1,150 @@
+package com.textcheck;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * cluster子命令：把文件或语料索引中的文档分成近似重复的簇，按文档顺序输出簇的归属
+ * 使用索引时profile直接从映射区域解码；直接扫描文件时不保留profile，打分需要时重新读取文件
+ */
+@Command(name = "cluster", mixinStandardHelpOptions = true,
+        description = "把语料分成近似重复文档的簇，以CSV或JSON Lines格式输出每个文件所属的簇")
+public class ClusterCommand implements Callable<Integer> {
+
+    @Parameters(arity = "0..*", paramLabel = "<path>", description = "待聚类的文件或目录，目录会递归遍历")
+    private List<Path> paths = new ArrayList<>();
+
+    @Option(names = "--file-list", paramLabel = "file", description = "从文件中读取待聚类的路径，每行一个")
+    private Path fileList;
+
+    @Option(names = "--index", paramLabel = "file", description = "对语料索引中的所有文档聚类，不读取文件")
+    private Path index;
+
+    @Option(names = {"-a", "--algorithm"}, paramLabel = "algorithm", description = "相似度算法，默认jaccard")
+    private String algorithm = "jaccard";
+
+    @Option(names = {"-t", "--threshold"}, description = "同一簇中相连文档的相似度阈值，默认${DEFAULT-VALUE}")
+    private double threshold = 0.8;
+
+    @Option(names = "--format", description = "输出格式：${COMPLETION-CANDIDATES}，默认${DEFAULT-VALUE}")
+    private ScanResultWriter.Format format = ScanResultWriter.Format.CSV;
+
+    @Option(names = {"-o", "--output"}, paramLabel = "file", description = "输出文件，默认标准输出")
+    private Path output;
+
+    @Option(names = "--threads", description = "计算签名和打分的线程数，默认为CPU核数")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--bands", description = "LSH分段数，默认${DEFAULT-VALUE}")
+    private int bands = 32;
+
+    @Option(names = "--rows", description = "LSH每段的签名分量数，默认${DEFAULT-VALUE}")
+    private int rows = 4;
+
+    @Override
+    public Integer call() throws IOException {
+        CorpusStore store = null;
+        int size;
+        IntFunction<String> names;
+        IntFunction<DocumentProfile> profiles;
+        if (index != null) {
+            if (!paths.isEmpty() || fileList != null) {
+                System.err.println("使用--index时不能再指定文件");
+                return 1;
+            }
+            store = CorpusStore.open(index);
+            size = store.size();
+            names = store::name;
+            profiles = store::profile;
+        } else {
+            List<Path> files = ScanCommand.collectFiles(paths, fileList);
+            TermDictionary dictionary = new TermDictionary();
+            size = files.size();
+            names = id -> files.get(id).toString();
+            profiles = id -> read(files.get(id), dictionary);
+        }
+        if (size == 0) {
+            System.err.println("没有找到待聚类的文档");
+            if (store != null) {
+                store.close();
+            }
+            return 1;
+        }
+
+        // tfidf/bm25按索引中的语料统计IDF，直接聚类文件时没有现成的统计，不能使用
+        SimilarityCalculator calculator;
+        try {
+            calculator = SimilarityChecker.createCalculator(algorithm,
+                    store == null ? null : DocumentFrequencies.of(store));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            if (store != null) {
+                store.close();
+            }
+            return 1;
+        }
+        if (store != null && calculator.needsText()) {
+            System.err.println("语料索引不保存原文，--index只能与cosine、jaccard、tfidf、bm25一起使用");
+            store.close();
+            return 1;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        NearDuplicateClusterer clusterer = new NearDuplicateClusterer(calculator, threshold, bands, rows, pool);
+        Writer writer = output == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        try {
+            if (format == ScanResultWriter.Format.CSV) {
+                writer.write("cluster,file\n");
+            }
+            NearDuplicateClusterer.Summary summary = clusterer.cluster(size, profiles,
+                    (document, cluster) -> write(writer, cluster, names.apply(document)));
+            System.err.println(summary);
+        } finally {
+            pool.shutdown();
+            if (store != null) {
+                store.close();
+            }
+            if (output == null) {
+                writer.flush();
+            } else {
+                writer.close();
+            }
+        }
+        return 0;
+    }
+
+    private void write(Writer writer, int cluster, String file) throws IOException {
+        if (format == ScanResultWriter.Format.CSV) {
+            writer.write(cluster + "," + ScanResultWriter.csv(file) + '\n');
+        } else {
+            writer.write("{\"cluster\":" + cluster + ",\"file\":" + Json.quote(file) + "}\n");
+        }
+    }
+
+    /**
+     * 读取文件并构建profile，读取失败的文件不参与聚类
+     */
+    private static DocumentProfile read(Path file, TermDictionary dictionary) {
+        try {
+            return DocumentProfile.of(MappedTextReader.readFully(file), dictionary);
+        } catch (IOException e) {
+            System.err.println("读取文件失败，已跳过: " + file + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+}
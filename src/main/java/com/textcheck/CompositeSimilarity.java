@@ -0,0 +1,198 @@
+package com.textcheck;
+
+/**
+ * 同时计算余弦、Jaccard和编辑距离三种相似度，并按权重加权平均
+ * 每段文本只扫描一遍（{@link FusedScanner}）：同一次遍历中分出两种规则的词并写出规范化码点，
+ * 余弦和Jaccard的计数在同一遍中完成，之后只剩编辑距离的动态规划，开销接近单独计算编辑距离。
+ * 单独的三个分数与{@link CosineSimilarity}、{@link JaccardSimilarity}、{@link LevenshteinDistance}的结果完全相同。
+ * 实例不可变，可以被多个线程共享；扫描计入{@link CalculatorMetrics.Phase#VECTOR}阶段
+ */
+public class CompositeSimilarity implements SimilarityCalculator {
+
+    /** 比较阈值时允许的浮点误差 */
+    private static final double EPSILON = 1e-9;
+
+    private final double cosineWeight;
+    private final double jaccardWeight;
+    private final double levenshteinWeight;
+
+    private final CosineSimilarity cosine = new CosineSimilarity();
+    private final JaccardSimilarity jaccard = new JaccardSimilarity();
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+
+    /**
+     * 三种相似度权重相同
+     */
+    public CompositeSimilarity() {
+        this(1.0, 1.0, 1.0);
+    }
+
+    /**
+     * @param cosineWeight 余弦相似度的权重
+     * @param jaccardWeight Jaccard相似度的权重
+     * @param levenshteinWeight 编辑距离相似度的权重，为0时不计算编辑距离
+     */
+    public CompositeSimilarity(double cosineWeight, double jaccardWeight, double levenshteinWeight) {
+        if (!(cosineWeight >= 0) || !(jaccardWeight >= 0) || !(levenshteinWeight >= 0)) {
+            throw new IllegalArgumentException("权重不能为负数");
+        }
+        double total = cosineWeight + jaccardWeight + levenshteinWeight;
+        if (!(total > 0) || Double.isInfinite(total)) {
+            throw new IllegalArgumentException("权重之和必须为正的有限值");
+        }
+        // 归一化，综合分数仍在0到1之间
+        this.cosineWeight = cosineWeight / total;
+        this.jaccardWeight = jaccardWeight / total;
+        this.levenshteinWeight = levenshteinWeight / total;
+    }
+
+    @Override
+    public double calculate(String text1, String text2) {
+        return compare(text1, text2).score();
+    }
+
+    /**
+     * 带阈值计算，先得到余弦和Jaccard分数，再由阈值反推编辑距离相似度的下限，用于提前结束动态规划
+     */
+    @Override
+    public double calculate(String text1, String text2, double minSimilarity) {
+        Result result = compare(text1, text2, minSimilarity);
+        return result == null || result.score() < minSimilarity ? 0.0 : result.score();
+    }
+
+    /**
+     * 计算两段文本的三种相似度和综合分数
+     */
+    public Result compare(String text1, String text2) {
+        return compare(text1, text2, 0.0);
+    }
+
+    /**
+     * 使用profile中预先构建的数据计算三种相似度
+     */
+    public Result compare(DocumentProfile profile1, DocumentProfile profile2) {
+        return result(cosine.calculateProfiles(profile1, profile2),
+                      jaccard.calculateProfiles(profile1, profile2),
+                      levenshteinWeight > 0.0 ? levenshtein.calculateProfiles(profile1, profile2) : 0.0);
+    }
+
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        return compare(profile1, profile2).score();
+    }
+
+    /**
+     * @return 三种相似度，确定综合分数低于minSimilarity时返回null
+     */
+    private Result compare(String text1, String text2, double minSimilarity) {
+        if (text1 == null || text2 == null) {
+            return result(0.0, 0.0, 0.0);
+        }
+
+        // 处理空字符串的情况，与三种算法各自的约定一致
+        if (text1.isEmpty() && text2.isEmpty()) {
+            return result(1.0, 1.0, 1.0);
+        }
+        if (text1.isEmpty() || text2.isEmpty()) {
+            return result(0.0, 0.0, 0.0);
+        }
+
+        try (Scratch scratch = Scratch.acquire()) {
+            // 单遍扫描两段文本，词频、标记集合和规范化码点同时得到
+            long start = CalculatorMetrics.phaseStart();
+            TermTable terms = scratch.table(Scratch.TERMS);
+            TermTable tokens = scratch.table(Scratch.TOKENS);
+            TermTable characters = scratch.table(Scratch.CHARACTERS);
+            FusedScanner scanner = scratch.scanner();
+            int[] codePoints1 = scratch.ints(Scratch.CODE_POINTS_1, text1.length());
+            int[] codePoints2 = scratch.ints(Scratch.CODE_POINTS_2, text2.length());
+            terms.beginTerms(0);
+            tokens.beginWords(0, characters);
+            int length1 = scanner.scan(text1, terms, tokens, codePoints1);
+            boolean allChinese1 = scanner.allChinese();
+            terms.beginTerms(1);
+            tokens.beginWords(1, characters);
+            int length2 = scanner.scan(text2, terms, tokens, codePoints2);
+            boolean allChinese2 = scanner.allChinese();
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.VECTOR, start);
+
+            start = CalculatorMetrics.phaseStart();
+            double cosineScore = terms.distinct1() == 0 || terms.distinct2() == 0 ? 0.0
+                    : CosineSimilarity.cosine(terms.dot(), Math.sqrt(terms.sumOfSquares(0)),
+                                              Math.sqrt(terms.sumOfSquares(1)), 0.0);
+            double jaccardScore = JaccardSimilarity.countSimilarity(tokens.distinct1(), tokens.distinct2(),
+                    tokens.shared(), characters.distinct1(), characters.distinct2(), characters.shared(),
+                    text1.length() > 10 || text2.length() > 10, 0.0);
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+
+            if (levenshteinWeight == 0.0) {
+                return result(cosineScore, jaccardScore, 0.0);
+            }
+            // 编辑距离相似度至少要达到的值，综合分数才可能不低于阈值
+            double partial = cosineWeight * cosineScore + jaccardWeight * jaccardScore;
+            double minLevenshtein = minSimilarity > 0.0
+                    ? (minSimilarity - partial) / levenshteinWeight - EPSILON
+                    : 0.0;
+            if (minLevenshtein > 1.0) {
+                return null;
+            }
+            double levenshteinScore = levenshtein.similarity(codePoints1, length1, allChinese1,
+                    codePoints2, length2, allChinese2, Math.max(0.0, minLevenshtein), scratch);
+            if (minLevenshtein > 0.0 && levenshteinScore == 0.0) {
+                return null;
+            }
+            return result(cosineScore, jaccardScore, levenshteinScore);
+        }
+    }
+
+    private Result result(double cosineScore, double jaccardScore, double levenshteinScore) {
+        double score = cosineWeight * cosineScore + jaccardWeight * jaccardScore
+                + levenshteinWeight * levenshteinScore;
+        return new Result(cosineScore, jaccardScore, levenshteinScore, Math.min(1.0, score));
+    }
+
+    /**
+     * 三种相似度及其加权平均
+     */
+    public static final class Result {
+        private final double cosine;
+        private final double jaccard;
+        private final double levenshtein;
+        private final double score;
+
+        Result(double cosine, double jaccard, double levenshtein, double score) {
+            this.cosine = cosine;
+            this.jaccard = jaccard;
+            this.levenshtein = levenshtein;
+            this.score = score;
+        }
+
+        public double cosine() {
+            return cosine;
+        }
+
+        public double jaccard() {
+            return jaccard;
+        }
+
+        /**
+         * 编辑距离相似度，权重为0时不计算，值为0
+         */
+        public double levenshtein() {
+            return levenshtein;
+        }
+
+        /**
+         * 按权重加权平均的综合分数
+         */
+        public double score() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.4f (cosine %.4f, jaccard %.4f, levenshtein %.4f)",
+                    score, cosine, jaccard, levenshtein);
+        }
+    }
+}
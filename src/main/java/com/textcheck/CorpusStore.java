@@ -0,0 +1,331 @@
+package com.textcheck;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 持久化的语料索引文件，保存词典以及每个文档的词频向量、模长、标记集合和字符集合，不保存原文，
+ * 因此索引中的profile只能用于不需要原文的算法（见{@link SimilarityCalculator#needsText()}）。
+ * 文件由文件头和一串只追加的记录组成：新词记录按编号顺序写出词典，文档记录引用词编号。
+ * 打开时通过MappedByteBuffer映射已有内容并顺序扫描所有记录：整个词典解码到堆上的{@link TermDictionary}，
+ * 每个文档读出名称，因此打开的耗时和常驻内存与词数加文档数成正比，并不是只映射文件；
+ * 文档的向量和集合在访问时才从映射中解码，不需要重新分词，多个进程打开同一文件时共享操作系统的页缓存。
+ * 新文档直接追加到文件末尾，不需要重建；末尾写了一半的记录在下次打开时被丢弃。
+ * 整个文件映射为一个缓冲区，大小不能超过2GB，追加会超出时拒绝。
+ * 同一时间只应有一个进程追加，实例内部的读写是线程安全的
+ */
+public final class CorpusStore implements Closeable {
+
+    /** 文件头魔数 "TXCI" */
+    private static final int MAGIC = 0x54584349;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    /** 记录头：1字节类型 + 4字节负载长度 */
+    private static final int RECORD_HEADER_SIZE = 5;
+    private static final byte TERM_RECORD = 1;
+    private static final byte DOCUMENT_RECORD = 2;
+
+    private final FileChannel channel;
+    private final TermDictionary dictionary = new TermDictionary();
+    private final MappedByteBuffer mapped;
+    /** 映射区域中文档记录负载的起始位置 */
+    private final int[] offsets;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    /** 打开之后追加的文档，不在映射区域内 */
+    private final List<DocumentProfile> appended = new ArrayList<>();
+    /** 已写入文件的词数 */
+    private int persistedTerms;
+
+    private CorpusStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("索引文件超过2GB: " + file);
+            }
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                writeFully(header);
+                size = HEADER_SIZE;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+                throw new IOException("不是有效的索引文件: " + file);
+            }
+            if (mapped.getInt(4) != VERSION) {
+                throw new IOException("不支持的索引文件版本: " + mapped.getInt(4) + "，请重新建立索引");
+            }
+            offsets = scan((int) size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 打开索引文件，文件不存在时创建空索引
+     * 会读取完整的词典和所有文档名称，大索引打开时需要相应的时间和内存
+     * @param file 索引文件路径
+     * @return 索引
+     */
+    public static CorpusStore open(Path file) throws IOException {
+        return new CorpusStore(file);
+    }
+
+    /**
+     * 索引使用的词典，查询文本应使用该词典构建profile才能与索引中的文档比较
+     */
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 已索引的文档数
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+
+    /**
+     * 文档名称
+     * @param id 文档编号
+     */
+    public synchronized String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * 是否已收录同名文档
+     */
+    public synchronized boolean contains(String name) {
+        return ids.containsKey(name);
+    }
+
+    /**
+     * 获取文档profile，打开前已存在的文档每次调用都从映射区域解码
+     * @param id 文档编号
+     * @return 使用本索引词典、不保留原文的profile
+     */
+    public DocumentProfile profile(int id) {
+        if (id < offsets.length) {
+            return decode(offsets[id]);
+        }
+        synchronized (this) {
+            return appended.get(id - offsets.length);
+        }
+    }
+
+    /**
+     * 为文本构建profile并追加到索引
+     * @param name 文档名称
+     * @param text 文本
+     * @return 文档编号
+     */
+    public int add(String name, String text) throws IOException {
+        return add(name, DocumentProfile.of(text, dictionary));
+    }
+
+    /**
+     * 追加文档，记录写入文件后才返回，profile中的原文不会写入
+     * @param name 文档名称
+     * @param profile 使用本索引词典构建的profile
+     * @return 文档编号
+     * @throws IOException 写入失败，或追加后文件会超过2GB
+     */
+    public synchronized int add(String name, DocumentProfile profile) throws IOException {
+        if (profile.dictionary() != dictionary) {
+            throw new IllegalArgumentException("profile必须使用索引的词典");
+        }
+
+        // Jaccard标记也通过词典编号保存，先分配编号再写出新词
+        int[] tokenIds = new int[profile.tokens().size()];
+        int n = 0;
+        for (String token : profile.tokens()) {
+            tokenIds[n++] = dictionary.idOf(token);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int terms = dictionary.size();
+        for (int id = persistedTerms; id < terms; id++) {
+            byte[] term = dictionary.term(id).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TERM_RECORD);
+            out.writeInt(term.length);
+            out.write(term);
+        }
+
+        byte[] document = encode(name, profile, tokenIds);
+        out.writeByte(DOCUMENT_RECORD);
+        out.writeInt(document.length);
+        out.write(document);
+        out.flush();
+
+        // 下次打开时整个文件要映射为一个缓冲区
+        if (channel.size() + bytes.size() > Integer.MAX_VALUE) {
+            throw new IOException("追加文档" + name + "后索引文件将超过2GB，请使用新的索引文件");
+        }
+        writeFully(ByteBuffer.wrap(bytes.toByteArray()));
+        persistedTerms = terms;
+
+        int id = names.size();
+        names.add(name);
+        ids.put(name, id);
+        appended.add(profile.withoutText());
+        return id;
+    }
+
+    /**
+     * 把已追加的内容刷到磁盘
+     */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 扫描映射区域中的记录，恢复词典并记录文档位置，返回文档负载的起始位置
+     */
+    private int[] scan(int size) throws IOException {
+        List<Integer> documents = new ArrayList<>();
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            byte type = mapped.get(position);
+            int length = mapped.getInt(position + 1);
+            int payload = position + RECORD_HEADER_SIZE;
+            if (length < 0 || length > size - payload) {
+                // 末尾未写完的记录
+                break;
+            }
+            ByteBuffer buffer = slice(payload);
+            if (type == TERM_RECORD) {
+                String term = readString(buffer, length);
+                if (dictionary.idOf(term) != persistedTerms++) {
+                    throw new IOException("索引文件中的词典已损坏");
+                }
+            } else if (type == DOCUMENT_RECORD) {
+                String name = readString(buffer, buffer.getInt());
+                ids.put(name, names.size());
+                names.add(name);
+                documents.add(payload);
+            } else {
+                throw new IOException("未知的记录类型: " + type);
+            }
+            position = payload + length;
+        }
+
+        if (position < channel.size()) {
+            channel.truncate(position);
+        }
+        int[] result = new int[documents.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = documents.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 文档记录：名称、原文字符数、模长、词频向量、标记编号、字符码点
+     */
+    private static byte[] encode(String name, DocumentProfile profile, int[] tokenIds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, name);
+        out.writeInt(profile.length());
+
+        TermVector vector = profile.termVector();
+        out.writeDouble(vector.norm());
+        out.writeInt(vector.size());
+        for (int i = 0; i < vector.size(); i++) {
+            out.writeInt(vector.id(i));
+        }
+        for (int i = 0; i < vector.size(); i++) {
+            out.writeInt(vector.count(i));
+        }
+
+        out.writeInt(tokenIds.length);
+        for (int tokenId : tokenIds) {
+            out.writeInt(tokenId);
+        }
+        out.writeInt(profile.characters().size());
+        for (int codePoint : profile.characters()) {
+            out.writeInt(codePoint);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private DocumentProfile decode(int payload) {
+        ByteBuffer buffer = slice(payload);
+        // 跳过名称
+        int nameLength = buffer.getInt();
+        buffer.position(buffer.position() + nameLength);
+        int length = buffer.getInt();
+
+        double norm = buffer.getDouble();
+        int[] termIds = new int[buffer.getInt()];
+        int[] counts = new int[termIds.length];
+        buffer.asIntBuffer().get(termIds).get(counts);
+        buffer.position(buffer.position() + 8 * termIds.length);
+
+        int tokenCount = buffer.getInt();
+        Set<String> tokens = new HashSet<>(tokenCount * 4 / 3 + 1);
+        for (int i = 0; i < tokenCount; i++) {
+            tokens.add(dictionary.term(buffer.getInt()));
+        }
+        int characterCount = buffer.getInt();
+        Set<Integer> characters = new HashSet<>(characterCount * 4 / 3 + 1);
+        for (int i = 0; i < characterCount; i++) {
+            characters.add(buffer.getInt());
+        }
+        return new DocumentProfile(length, dictionary, new TermVector(termIds, counts, norm), tokens, characters);
+    }
+
+    /**
+     * 从指定位置开始的独立视图，并发读取互不影响
+     */
+    private ByteBuffer slice(int position) {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(position);
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -1,19 +1,42 @@
 package com.textcheck;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * 基于余弦相似度的文本相似度计算实现
+ * 实例不可变，可以被多个线程共享；不使用缓存时两段文本的词频记录在当前线程{@link Scratch}的词表中，
+ * 直接由计数得到点积和模长，稳态下计算不分配新对象
  */
 public class CosineSimilarity implements SimilarityCalculator {
 
+    /** 比较阈值时允许的浮点误差 */
+    private static final double EPSILON = 1e-9;
+
+    /** 可选的profile缓存 */
+    private final ProfileCache cache;
+
+    public CosineSimilarity() {
+        this(null);
+    }
+
+    /**
+     * @param cache profile缓存，命中时直接使用缓存的词频向量，为null时不缓存
+     */
+    public CosineSimilarity(ProfileCache cache) {
+        this.cache = cache;
+    }
+
     @Override
     public double calculate(String text1, String text2) {
+        return calculate(text1, text2, 0.0);
+    }
+
+    /**
+     * 带阈值计算，模长在计数时已经得到，计算点积的过程中用剩余部分的模长上界提前排除
+     */
+    @Override
+    public double calculate(String text1, String text2, double minSimilarity) {
         if (text1 == null || text2 == null) {
             return 0.0;
         }
@@ -26,92 +49,128 @@ public class CosineSimilarity implements SimilarityCalculator {
             return 0.0;
         }
 
-        // 将文本转换为词频向量
-        Map<String, Integer> vector1 = getTermFrequencyVector(text1);
-        Map<String, Integer> vector2 = getTermFrequencyVector(text2);
+        if (cache != null) {
+            DocumentProfile[] profiles = cache.get(text1, text2);
+            return calculateProfiles(profiles[0], profiles[1], minSimilarity);
+        }
 
-        // 如果任一向量为空，则相似度为0
-        if (vector1.isEmpty() || vector2.isEmpty()) {
-            return 0.0;
+        // 两段文本的词频记入同一个词表，相当于共用一个临时词典
+        try (Scratch scratch = Scratch.acquire()) {
+            long start = CalculatorMetrics.phaseStart();
+            TermTable terms = scratch.table(Scratch.TERMS);
+            terms.countTerms(text1, 0);
+            terms.countTerms(text2, 1);
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.VECTOR, start);
+
+            start = CalculatorMetrics.phaseStart();
+            try {
+                if (terms.distinct1() == 0 || terms.distinct2() == 0) {
+                    return 0.0;
+                }
+                double norm1 = Math.sqrt(terms.sumOfSquares(0));
+                double norm2 = Math.sqrt(terms.sumOfSquares(1));
+                return cosine(terms.dot((minSimilarity - EPSILON) * norm1 * norm2), norm1, norm2, minSimilarity);
+            } finally {
+                CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+            }
         }
+    }
 
-        // 计算分子（点积）
-        double dotProduct = 0.0;
-        Set<String> allTerms = new HashSet<>(vector1.keySet());
-        allTerms.addAll(vector2.keySet());
+    /**
+     * 使用profile中预先构建的词频向量和模长计算
+     */
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        return calculateProfiles(profile1, profile2, 0.0);
+    }
 
-        for (String term : allTerms) {
-            int freq1 = vector1.getOrDefault(term, 0);
-            int freq2 = vector2.getOrDefault(term, 0);
-            dotProduct += freq1 * freq2;
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2, double minSimilarity) {
+        if (profile1.dictionary() != profile2.dictionary()) {
+            throw new IllegalArgumentException("两个profile必须使用同一个词典");
+        }
+        if (profile1.length() == 0 && profile2.length() == 0) {
+            return 1.0;
+        }
+        if (profile1.length() == 0 || profile2.length() == 0) {
+            return 0.0;
         }
+        return cosine(profile1.termVector(), profile2.termVector(), minSimilarity);
+    }
 
-        // 计算分母（向量模长的乘积）
-        double norm1 = calculateNorm(vector1);
-        double norm2 = calculateNorm(vector2);
+    /**
+     * profile之间只比较词频向量
+     */
+    @Override
+    public boolean needsText() {
+        return false;
+    }
 
-        // 避免除以零
-        if (norm1 == 0.0 || norm2 == 0.0) {
+    /**
+     * 流式比较两个文件，词频向量边读边构建，不会把文件内容读成字符串
+     */
+    @Override
+    public double calculateFiles(Path file1, Path file2) throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        TermFrequencyCounter counter1 = new TermFrequencyCounter(dictionary);
+        TermFrequencyCounter counter2 = new TermFrequencyCounter(dictionary);
+        long length1 = MappedTextReader.read(file1, counter1);
+        long length2 = MappedTextReader.read(file2, counter2);
+
+        // 处理空文件的情况
+        if (length1 == 0 && length2 == 0) {
+            return 1.0;
+        }
+        if (length1 == 0 || length2 == 0) {
             return 0.0;
         }
 
-        return dotProduct / (norm1 * norm2);
+        return cosine(counter1.finish(), counter2.finish(), 0.0);
     }
 
-    private Map<String, Integer> getTermFrequencyVector(String text) {
-        Map<String, Integer> vector = new HashMap<>();
-        
-        // 预处理文本：移除标点符号，转换为小写
-        String processedText = text.toLowerCase()
-                                 .replaceAll("[\\p{P}\\s]+", " ")
-                                 .trim();
-        
-        // 处理中文和其他字符
-        List<String> terms = new ArrayList<>();
-        StringBuilder currentTerm = new StringBuilder();
-        
-        for (char c : processedText.toCharArray()) {
-            if (Character.isSpaceChar(c)) {
-                if (currentTerm.length() > 0) {
-                    terms.add(currentTerm.toString());
-                    currentTerm.setLength(0);
-                }
-            } else if (isChinese(c)) {
-                // 对于中文字符，每个字单独作为一个词
-                if (currentTerm.length() > 0) {
-                    terms.add(currentTerm.toString());
-                    currentTerm.setLength(0);
-                }
-                terms.add(String.valueOf(c));
-            } else {
-                currentTerm.append(c);
-            }
+    private double cosine(TermVector vector1, TermVector vector2, double minSimilarity) {
+        long start = CalculatorMetrics.phaseStart();
+        try {
+            return dotCosine(vector1, vector2, minSimilarity);
+        } finally {
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
         }
-        
-        // 添加最后一个词
-        if (currentTerm.length() > 0) {
-            terms.add(currentTerm.toString());
+    }
+
+    private double dotCosine(TermVector vector1, TermVector vector2, double minSimilarity) {
+        // 如果任一向量为空，则相似度为0
+        if (vector1.isEmpty() || vector2.isEmpty()) {
+            return 0.0;
         }
-        
-        // 构建词频向量
-        for (String term : terms) {
-            if (!term.isEmpty()) {
-                vector.merge(term, 1, Integer::sum);
-            }
+
+        // 计算分母（向量模长的乘积），模长在构建向量时已算好
+        double norm1 = vector1.norm();
+        double norm2 = vector2.norm();
+
+        // 避免除以零
+        if (norm1 == 0.0 || norm2 == 0.0) {
+            return 0.0;
         }
-        
-        return vector;
+
+        // 计算分子（点积），按词编号归并，确定达不到阈值对应的点积时提前结束
+        long dotProduct = vector1.dot(vector2, (minSimilarity - EPSILON) * norm1 * norm2);
+        return cosine(dotProduct, norm1, norm2, minSimilarity);
     }
 
-    private boolean isChinese(char c) {
-        return Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS;
+    /**
+     * 由点积和模长得到相似度，点积为负表示已确定低于阈值
+     */
+    static double cosine(long dotProduct, double norm1, double norm2, double minSimilarity) {
+        if (dotProduct < 0 || norm1 == 0.0 || norm2 == 0.0) {
+            return 0.0;
+        }
+        double similarity = dotProduct / (norm1 * norm2);
+        return similarity >= minSimilarity ? similarity : 0.0;
     }
 
-    private double calculateNorm(Map<String, Integer> vector) {
-        double sumOfSquares = vector.values().stream()
-                                  .mapToInt(Integer::intValue)
-                                  .map(count -> count * count)
-                                  .sum();
-        return Math.sqrt(sumOfSquares);
+    static TermVector getTermFrequencyVector(String text, TermDictionary dictionary) {
+        TermFrequencyCounter counter = new TermFrequencyCounter(dictionary);
+        counter.accept(text);
+        return counter.finish();
     }
-}
\ No newline at end of file
+}
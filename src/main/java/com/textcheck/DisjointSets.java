@@ -0,0 +1,74 @@
+package com.textcheck;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 无锁的并查集，多个线程可以同时查找和合并
+ * 合并时总是把编号较大的根挂到编号较小的根下，因此每个集合的根是其中最小的编号，结果与合并顺序无关；
+ * 查找时用CAS做路径减半。每个元素只占一个int
+ */
+final class DisjointSets {
+
+    private final AtomicIntegerArray parent;
+
+    DisjointSets(int size) {
+        parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    int size() {
+        return parent.length();
+    }
+
+    /**
+     * 元素所在集合的根，即集合中最小的编号
+     */
+    int find(int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandparent = parent.get(p);
+            if (grandparent == p) {
+                return p;
+            }
+            // 其他线程可能已经改过，失败也不影响正确性
+            parent.compareAndSet(x, p, grandparent);
+            x = grandparent;
+        }
+    }
+
+    /**
+     * 合并两个元素所在的集合
+     * @return 两个元素原本不在同一集合时返回true
+     */
+    boolean union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) {
+                return false;
+            }
+            if (a < b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            // a在此期间被挂到别处时CAS失败，重新查找
+            if (parent.compareAndSet(a, a, b)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 两个元素是否已在同一集合
+     * 并发合并时可能在两次查找之间发生变化而返回false，但返回true时一定正确
+     */
+    boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+}
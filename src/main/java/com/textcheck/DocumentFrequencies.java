@@ -0,0 +1,136 @@
+package com.textcheck;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 语料的文档频率表，按词编号记录包含该词的文档数，用于计算IDF权重
+ * 计数按编号分页保存在原子数组中，加入文档与查询可以并发进行，不需要全局锁；
+ * 文档总数和总词数使用LongAdder。只能与构建时指定的词典编号配合使用
+ */
+public final class DocumentFrequencies {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final TermDictionary dictionary;
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder totalTerms = new LongAdder();
+    private volatile AtomicIntegerArray[] pages = new AtomicIntegerArray[0];
+
+    /**
+     * @param dictionary 文档使用的词典
+     */
+    public DocumentFrequencies(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 统计语料索引中所有文档的文档频率，使用索引的词典
+     */
+    public static DocumentFrequencies of(CorpusStore store) {
+        DocumentFrequencies frequencies = new DocumentFrequencies(store.dictionary());
+        for (int id = 0; id < store.size(); id++) {
+            frequencies.add(store.profile(id));
+        }
+        return frequencies;
+    }
+
+    /**
+     * 加入一段文本
+     */
+    public void add(String text) {
+        add(CosineSimilarity.getTermFrequencyVector(text, dictionary));
+    }
+
+    /**
+     * 加入一个文档
+     * @throws IllegalArgumentException profile使用了其他词典
+     */
+    public void add(DocumentProfile profile) {
+        if (profile.dictionary() != dictionary) {
+            throw new IllegalArgumentException("profile必须使用文档频率表的词典");
+        }
+        add(profile.termVector());
+    }
+
+    /**
+     * 加入一个文档的词频向量，每个不同的词计数一次
+     */
+    void add(TermVector vector) {
+        // 先增加文档数，并发读取时文档频率不会超过文档总数太多，计算时再截断
+        documents.increment();
+        long terms = 0;
+        for (int i = 0; i < vector.size(); i++) {
+            int id = vector.id(i);
+            page(id).incrementAndGet(id & (PAGE_SIZE - 1));
+            terms += vector.count(i);
+        }
+        totalTerms.add(terms);
+    }
+
+    /**
+     * 已加入的文档数
+     */
+    public long documentCount() {
+        return documents.sum();
+    }
+
+    /**
+     * 包含该词的文档数
+     */
+    public int documentFrequency(int id) {
+        AtomicIntegerArray[] current = pages;
+        int page = id >>> PAGE_BITS;
+        return page < current.length ? current[page].get(id & (PAGE_SIZE - 1)) : 0;
+    }
+
+    /**
+     * 平均每个文档的词数，没有文档时为0
+     */
+    public double averageLength() {
+        long n = documents.sum();
+        return n == 0 ? 0.0 : (double) totalTerms.sum() / n;
+    }
+
+    /**
+     * BM25形式的平滑IDF：ln(1 + (N - df + 0.5) / (df + 0.5))，始终为正；
+     * 语料为空时所有词的权重相同
+     */
+    public double idf(int id) {
+        return idf(id, documents.sum());
+    }
+
+    /**
+     * 使用调用方读取的文档总数计算IDF，一次打分只读取一次LongAdder
+     */
+    double idf(int id, long documentCount) {
+        long df = Math.min(documentFrequency(id), documentCount);
+        return Math.log(1.0 + (documentCount - df + 0.5) / (df + 0.5));
+    }
+
+    private AtomicIntegerArray page(int id) {
+        int page = id >>> PAGE_BITS;
+        AtomicIntegerArray[] current = pages;
+        if (page < current.length) {
+            return current[page];
+        }
+        synchronized (this) {
+            current = pages;
+            if (page >= current.length) {
+                AtomicIntegerArray[] grown = Arrays.copyOf(current, Math.max(page + 1, current.length * 2));
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new AtomicIntegerArray(PAGE_SIZE);
+                }
+                pages = grown;
+                current = grown;
+            }
+            return current[page];
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.textcheck;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 预处理后的文档表示，文本只在构建时解析一次
+ * 一对多比较时先为每个文档构建profile，再通过{@link SimilarityCalculator#calculateProfiles(DocumentProfile, DocumentProfile)}
+ * 反复打分，无需重复分词。实例不可变，可以在线程间共享。
+ * 只用词频向量和集合的算法（见{@link SimilarityCalculator#needsText()}）可以使用{@link #withoutText()}得到的
+ * 不保留原文的profile，语料索引中保存的也是这种profile
+ */
+public final class DocumentProfile {
+
+    private final String text;
+    private final int length;
+    private final TermDictionary dictionary;
+    private final TermVector termVector;
+    private final Set<String> tokens;
+    private final Set<Integer> characters;
+    private final String normalizedText;
+    private final boolean allChinese;
+
+    private DocumentProfile(String text, TermDictionary dictionary) {
+        this.text = text;
+        this.length = text.length();
+        this.dictionary = dictionary;
+
+        // 余弦相似度使用的词频向量，模长已预先计算
+        long start = CalculatorMetrics.phaseStart();
+        this.termVector = CosineSimilarity.getTermFrequencyVector(text, dictionary);
+        CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.VECTOR, start);
+
+        // Jaccard相似度使用的标记集合（单字、词和2-gram）与字符集合
+        start = CalculatorMetrics.phaseStart();
+        TokenSetCollector collector = new TokenSetCollector();
+        collector.accept(text);
+        this.tokens = Collections.unmodifiableSet(collector.finish());
+        this.characters = Collections.unmodifiableSet(collector.characters());
+        CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SETS, start);
+
+        // 编辑距离使用的规范化文本
+        start = CalculatorMetrics.phaseStart();
+        this.normalizedText = LevenshteinDistance.normalizeText(text);
+        this.allChinese = LevenshteinDistance.allChinese(normalizedText);
+        CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.NORMALIZE, start);
+    }
+
+    /**
+     * 由已经算好的各部分组装profile，不重新分词
+     */
+    DocumentProfile(String text, TermDictionary dictionary, TermVector termVector,
+                    Set<String> tokens, Set<Integer> characters) {
+        this.text = text;
+        this.length = text.length();
+        this.dictionary = dictionary;
+        this.termVector = termVector;
+        this.tokens = Collections.unmodifiableSet(tokens);
+        this.characters = Collections.unmodifiableSet(characters);
+        this.normalizedText = LevenshteinDistance.normalizeText(text);
+        this.allChinese = LevenshteinDistance.allChinese(normalizedText);
+    }
+
+    /**
+     * 不保留原文的profile，供从索引文件加载时使用
+     * @param length 原文的字符数
+     */
+    DocumentProfile(int length, TermDictionary dictionary, TermVector termVector,
+                    Set<String> tokens, Set<Integer> characters) {
+        this.text = null;
+        this.length = length;
+        this.dictionary = dictionary;
+        this.termVector = termVector;
+        this.tokens = Collections.unmodifiableSet(tokens);
+        this.characters = Collections.unmodifiableSet(characters);
+        this.normalizedText = null;
+        this.allChinese = false;
+    }
+
+    /**
+     * 使用指定词典为文本构建profile，只有使用同一词典的profile之间才能比较
+     * @param text 原始文本
+     * @param dictionary 词典
+     * @return 文档profile
+     */
+    public static DocumentProfile of(String text, TermDictionary dictionary) {
+        return new DocumentProfile(Objects.requireNonNull(text, "text"), Objects.requireNonNull(dictionary, "dictionary"));
+    }
+
+    /**
+     * 原始文本
+     * @throws IllegalStateException profile不保留原文时
+     */
+    public String text() {
+        if (text == null) {
+            throw new IllegalStateException("profile不保留原文，不能用于需要原文的算法");
+        }
+        return text;
+    }
+
+    /**
+     * 是否保留了原文
+     */
+    public boolean hasText() {
+        return text != null;
+    }
+
+    /**
+     * 只保留词频向量和集合的副本，不再引用原文和规范化文本，已经不保留原文时返回自身
+     */
+    public DocumentProfile withoutText() {
+        return text == null ? this : new DocumentProfile(length, dictionary, termVector, tokens, characters);
+    }
+
+    /**
+     * 原始文本的字符数
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 构建词频向量时使用的词典
+     */
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 余弦相似度使用的词频向量
+     */
+    public TermVector termVector() {
+        return termVector;
+    }
+
+    Set<String> tokens() {
+        return tokens;
+    }
+
+    Set<Integer> characters() {
+        return characters;
+    }
+
+    String normalizedText() {
+        if (normalizedText == null) {
+            throw new IllegalStateException("profile不保留原文，不能用于需要原文的算法");
+        }
+        return normalizedText;
+    }
+
+    boolean allChinese() {
+        return allChinese;
+    }
+}
@@ -0,0 +1,418 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 可编辑的文档profile，用于编辑器每次保存后与参考文档重新比较
+ * 由已有的profile构建一次后，每次编辑只对编辑位置附近的文本重新分词：结束当前词的码点（中文字符、标点或空白）
+ * 之间的片段独立分词，编辑两侧各延伸到这样的边界，Jaccard再各多取一个相邻的词以更新跨边界的2-gram。
+ * 余弦相似度的词频、模长及与每个参考文档的点积，Jaccard相似度的标记/字符计数及交集大小都按差量更新，
+ * 耗时与编辑长度加上被截断的词的长度成正比，与全文长度无关。
+ * {@link #cosine(int)}和{@link #jaccard(int)}的结果与对编辑后的全文重新构建profile再计算完全相同。实例不是线程安全的
+ */
+public final class EditableProfile {
+
+    private final TermDictionary dictionary;
+    private final StringBuilder text;
+
+    /** 词编号 → 词频 */
+    private final IntCounts terms = new IntCounts();
+    /** 词频的平方和，即模长的平方 */
+    private long sumOfSquares;
+
+    /** 标记（单词和相邻单词组成的2-gram） → 出现次数 */
+    private final Map<String, Integer> tokens = new HashMap<>();
+    /** 单词中的码点 → 出现次数 */
+    private final IntCounts characters = new IntCounts();
+
+    private final List<Reference> references = new ArrayList<>();
+
+    /**
+     * 由已有的profile构建，词频直接取自profile，标记计数需要对全文分词一次
+     */
+    public EditableProfile(DocumentProfile profile) {
+        this.dictionary = profile.dictionary();
+        this.text = new StringBuilder(profile.text());
+        TermVector vector = profile.termVector();
+        for (int i = 0; i < vector.size(); i++) {
+            changeTerm(vector.id(i), vector.count(i));
+        }
+        updateWords(profile.text(), 1);
+    }
+
+    /**
+     * 登记参考文档，必须与本文档使用同一个词典
+     * @return 参考文档的编号，从0开始连续分配
+     */
+    public int addReference(DocumentProfile reference) {
+        if (reference.dictionary() != dictionary) {
+            throw new IllegalArgumentException("两个profile必须使用同一个词典");
+        }
+        Reference added = new Reference(reference);
+        for (int slot = 0; slot < terms.capacity(); slot++) {
+            if (terms.value(slot) != 0) {
+                added.dot += (long) terms.value(slot) * added.vector.countOf(terms.key(slot));
+            }
+        }
+        for (String token : tokens.keySet()) {
+            if (added.tokens.contains(token)) {
+                added.sharedTokens++;
+            }
+        }
+        for (int slot = 0; slot < characters.capacity(); slot++) {
+            if (characters.value(slot) != 0 && added.characters.contains(characters.key(slot))) {
+                added.sharedCharacters++;
+            }
+        }
+        references.add(added);
+        return references.size() - 1;
+    }
+
+    /**
+     * 已登记的参考文档数
+     */
+    public int referenceCount() {
+        return references.size();
+    }
+
+    /**
+     * 应用一次编辑：把从offset开始的deletedLength个字符替换为insertedText
+     * @param offset 编辑位置（字符下标）
+     * @param deletedLength 删除的字符数
+     * @param insertedText 插入的文本，为空时只删除
+     */
+    public void edit(int offset, int deletedLength, String insertedText) {
+        Objects.checkFromIndexSize(offset, deletedLength, text.length());
+        Objects.requireNonNull(insertedText, "insertedText");
+        int end = offset + deletedLength;
+        int delta = insertedText.length() - deletedLength;
+
+        // 两种分词规则的边界不同，分别确定需要重新分词的范围
+        int termsFrom = runStart(offset, CjkTokenizer.Mode.TERMS);
+        int termsTo = runEnd(end, CjkTokenizer.Mode.TERMS);
+        int wordsFrom = previousWordStart(runStart(offset, CjkTokenizer.Mode.WORDS));
+        int wordsTo = nextWordEnd(runEnd(end, CjkTokenizer.Mode.WORDS));
+        String oldTerms = text.substring(termsFrom, termsTo);
+        String oldWords = text.substring(wordsFrom, wordsTo);
+
+        text.replace(offset, end, insertedText);
+
+        updateTerms(oldTerms, -1);
+        updateTerms(text.substring(termsFrom, termsTo + delta), 1);
+        updateWords(oldWords, -1);
+        updateWords(text.substring(wordsFrom, wordsTo + delta), 1);
+    }
+
+    /**
+     * 与第reference个参考文档的余弦相似度，等价于{@link CosineSimilarity#calculateProfiles(DocumentProfile, DocumentProfile)}
+     */
+    public double cosine(int reference) {
+        Reference other = references.get(reference);
+        if (text.length() == 0 && other.length == 0) {
+            return 1.0;
+        }
+        if (text.length() == 0 || other.length == 0 || terms.distinct() == 0 || other.vector.isEmpty()) {
+            return 0.0;
+        }
+        return CosineSimilarity.cosine(other.dot, Math.sqrt(sumOfSquares), other.vector.norm(), 0.0);
+    }
+
+    /**
+     * 与第reference个参考文档的Jaccard相似度，等价于{@link JaccardSimilarity#calculateProfiles(DocumentProfile, DocumentProfile)}
+     */
+    public double jaccard(int reference) {
+        Reference other = references.get(reference);
+        if (text.length() == 0 && other.length == 0) {
+            return 1.0;
+        }
+        if (text.length() == 0 || other.length == 0) {
+            return 0.0;
+        }
+        return JaccardSimilarity.countSimilarity(tokens.size(), other.tokens.size(), other.sharedTokens,
+                characters.distinct(), other.characters.size(), other.sharedCharacters,
+                text.length() > 10 || other.length > 10, 0.0);
+    }
+
+    /**
+     * 当前文本
+     */
+    public String text() {
+        return text.toString();
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * 按当前状态生成不可变的profile，词频和标记集合直接取自计数，不重新分词
+     */
+    public DocumentProfile toProfile() {
+        TermVector.Builder vector = new TermVector.Builder();
+        for (int slot = 0; slot < terms.capacity(); slot++) {
+            if (terms.value(slot) != 0) {
+                vector.add(terms.key(slot), terms.value(slot));
+            }
+        }
+        Set<Integer> characterSet = new HashSet<>();
+        for (int slot = 0; slot < characters.capacity(); slot++) {
+            if (characters.value(slot) != 0) {
+                characterSet.add(characters.key(slot));
+            }
+        }
+        return new DocumentProfile(text.toString(), dictionary, vector.build(),
+                new HashSet<>(tokens.keySet()), characterSet);
+    }
+
+    private void updateTerms(String fragment, int sign) {
+        TermFrequencyCounter counter = new TermFrequencyCounter(dictionary);
+        counter.accept(fragment);
+        TermVector vector = counter.finish();
+        for (int i = 0; i < vector.size(); i++) {
+            changeTerm(vector.id(i), sign * vector.count(i));
+        }
+    }
+
+    private void changeTerm(int id, int delta) {
+        int count = terms.add(id, delta);
+        int previous = count - delta;
+        sumOfSquares += (long) count * count - (long) previous * previous;
+        for (Reference reference : references) {
+            reference.dot += (long) delta * reference.vector.countOf(id);
+        }
+    }
+
+    /**
+     * 对片段按Jaccard的规则分词，单词、相邻单词的2-gram和单词中的码点按sign增减计数
+     */
+    private void updateWords(String fragment, int sign) {
+        List<String> words = new ArrayList<>();
+        CjkTokenizer tokenizer = new CjkTokenizer(CjkTokenizer.Mode.WORDS,
+                (buffer, offset, length) -> words.add(new String(buffer, offset, length)));
+        tokenizer.accept(fragment);
+        tokenizer.finish();
+
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            changeToken(word, sign);
+            if (i > 0) {
+                changeToken(words.get(i - 1) + word, sign);
+            }
+            for (int j = 0; j < word.length(); ) {
+                int codePoint = word.codePointAt(j);
+                changeCharacter(codePoint, sign);
+                j += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private void changeToken(String token, int delta) {
+        int previous = tokens.getOrDefault(token, 0);
+        int count = previous + delta;
+        if (count == 0) {
+            tokens.remove(token);
+        } else {
+            tokens.put(token, count);
+        }
+        if (previous == 0 || count == 0) {
+            for (Reference reference : references) {
+                if (reference.tokens.contains(token)) {
+                    reference.sharedTokens += count == 0 ? -1 : 1;
+                }
+            }
+        }
+    }
+
+    private void changeCharacter(int codePoint, int delta) {
+        int count = characters.add(codePoint, delta);
+        int previous = count - delta;
+        if (previous == 0 || count == 0) {
+            for (Reference reference : references) {
+                if (reference.characters.contains(codePoint)) {
+                    reference.sharedCharacters += count == 0 ? -1 : 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * 包含offset的片段的起点：向左直到前一个码点结束当前的词，或到达文本开头
+     */
+    private int runStart(int offset, CjkTokenizer.Mode mode) {
+        int i = offset;
+        while (i > 0) {
+            int codePoint = Character.codePointBefore(text, i);
+            if (CjkTokenizer.endsTerm(codePoint, mode)) {
+                break;
+            }
+            i -= Character.charCount(codePoint);
+        }
+        return i;
+    }
+
+    /**
+     * 包含offset的片段的终点：向右直到遇到结束当前词的码点，或到达文本末尾
+     */
+    private int runEnd(int offset, CjkTokenizer.Mode mode) {
+        int i = offset;
+        while (i < text.length()) {
+            int codePoint = Character.codePointAt(text, i);
+            if (CjkTokenizer.endsTerm(codePoint, mode)) {
+                break;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return i;
+    }
+
+    /**
+     * 从片段起点向左找到前一个单词的起点，跳过空白和被忽略的字符，没有时返回0
+     */
+    private int previousWordStart(int from) {
+        int i = from;
+        while (i > 0) {
+            int codePoint = Character.codePointBefore(text, i);
+            int lower = Character.toLowerCase(codePoint);
+            if (CjkTokenizer.isChinese(lower)) {
+                return i - Character.charCount(codePoint);
+            }
+            if (Character.isLetterOrDigit(lower)) {
+                return runStart(i, CjkTokenizer.Mode.WORDS);
+            }
+            i -= Character.charCount(codePoint);
+        }
+        return 0;
+    }
+
+    /**
+     * 从片段终点向右找到下一个单词的终点，跳过空白和被忽略的字符，没有时返回文本长度
+     */
+    private int nextWordEnd(int to) {
+        int i = to;
+        while (i < text.length()) {
+            int codePoint = Character.codePointAt(text, i);
+            int lower = Character.toLowerCase(codePoint);
+            if (CjkTokenizer.isChinese(lower)) {
+                return i + Character.charCount(codePoint);
+            }
+            if (Character.isLetterOrDigit(lower)) {
+                return runEnd(i, CjkTokenizer.Mode.WORDS);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return text.length();
+    }
+
+    /**
+     * 登记的参考文档及与本文档之间增量维护的点积和交集大小
+     */
+    private static final class Reference {
+        final TermVector vector;
+        final Set<String> tokens;
+        final Set<Integer> characters;
+        final int length;
+        long dot;
+        int sharedTokens;
+        int sharedCharacters;
+
+        Reference(DocumentProfile profile) {
+            this.vector = profile.termVector();
+            this.tokens = profile.tokens();
+            this.characters = profile.characters();
+            this.length = profile.length();
+        }
+    }
+
+    /**
+     * int到计数的开放寻址表，计数可以减到0；扩容时丢弃计数为0的键
+     */
+    private static final class IntCounts {
+        /** 槽位中保存键加1，0表示空槽 */
+        private int[] keys = new int[64];
+        private int[] values = new int[64];
+        private int used;
+        private int distinct;
+
+        /**
+         * 累加计数
+         * @return 累加后的计数
+         */
+        int add(int key, int delta) {
+            int slot = slot(key);
+            if (keys[slot] == 0) {
+                if ((used + 1) * 2 > keys.length) {
+                    grow();
+                    slot = slot(key);
+                }
+                keys[slot] = key + 1;
+                used++;
+            }
+            int previous = values[slot];
+            int count = previous + delta;
+            values[slot] = count;
+            if (previous == 0 && count != 0) {
+                distinct++;
+            } else if (previous != 0 && count == 0) {
+                distinct--;
+            }
+            return count;
+        }
+
+        /**
+         * 计数不为0的键的个数
+         */
+        int distinct() {
+            return distinct;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        int key(int slot) {
+            return keys[slot] - 1;
+        }
+
+        /**
+         * 槽位的计数，空槽为0
+         */
+        int value(int slot) {
+            return values[slot];
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            int capacity = 64;
+            while (capacity < (distinct + 1) * 4) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            values = new int[capacity];
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0 && oldValues[i] != 0) {
+                    int slot = slot(oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    used++;
+                }
+            }
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B1) >>> 7 & mask;
+            while (keys[slot] != 0 && keys[slot] != key + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
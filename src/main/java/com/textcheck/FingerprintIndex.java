@@ -0,0 +1,230 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * winnowing指纹的倒排索引：指纹 → (文档编号, 位置)
+ * 查询时按查询指纹的顺序遍历命中，同一文档中位移相同、间隔不超过窗口的命中合并为一段。
+ * 记录数超过{@link #MAX_POSTINGS}的指纹（重复字符、模板文本）不再记录也不参与匹配，
+ * 否则重复文本的每个指纹都会命中所有位置，耗时变为平方级；因此查询耗时与指纹数成正比。
+ * 建好索引后可以并发查询，add不是线程安全的
+ */
+public class FingerprintIndex {
+
+    /** 每个指纹最多的记录数 */
+    static final int MAX_POSTINGS = 256;
+
+    private final Winnowing winnowing;
+
+    /** 指纹哈希的开放寻址表，heads为该指纹最新一条记录的下标，-1表示空槽，counts为出现次数 */
+    private long[] keys = new long[64];
+    private int[] heads = new int[64];
+    private int[] counts = new int[64];
+    private int distinct;
+
+    /** 记录按加入顺序保存，next串起同一指纹的记录 */
+    private int[] documents = new int[64];
+    private int[] positions = new int[64];
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int[] next = new int[64];
+    private int postings;
+
+    private int[] lengths = new int[16];
+    private int size;
+
+    public FingerprintIndex() {
+        this(new Winnowing());
+    }
+
+    public FingerprintIndex(Winnowing winnowing) {
+        this.winnowing = winnowing;
+        Arrays.fill(heads, -1);
+    }
+
+    public Winnowing winnowing() {
+        return winnowing;
+    }
+
+    /**
+     * 已索引的文档数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 索引中的指纹记录数
+     */
+    public int postingCount() {
+        return postings;
+    }
+
+    /**
+     * 添加文档
+     * @return 文档编号，从0开始连续分配
+     */
+    public int add(String text) {
+        return add(winnowing.fingerprint(text));
+    }
+
+    /**
+     * 添加已经计算好的指纹，必须使用本索引的winnowing参数计算
+     * @return 文档编号，从0开始连续分配
+     */
+    public int add(Winnowing.Fingerprints fingerprints) {
+        int document = size++;
+        if (document == lengths.length) {
+            lengths = Arrays.copyOf(lengths, document * 2);
+        }
+        lengths[document] = fingerprints.normalizedLength();
+        for (int i = 0; i < fingerprints.size(); i++) {
+            int slot = slot(fingerprints.hash(i));
+            if (heads[slot] == -1) {
+                keys[slot] = fingerprints.hash(i);
+                distinct++;
+            }
+            if (counts[slot] >= MAX_POSTINGS) {
+                // 超过上限后只标记，已有的记录在查询时跳过
+                counts[slot] = MAX_POSTINGS + 1;
+                continue;
+            }
+            counts[slot]++;
+            if (postings == documents.length) {
+                int capacity = postings * 2;
+                documents = Arrays.copyOf(documents, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            documents[postings] = document;
+            positions[postings] = fingerprints.position(i);
+            starts[postings] = fingerprints.start(i);
+            ends[postings] = fingerprints.end(i);
+            next[postings] = heads[slot];
+            heads[slot] = postings++;
+            if (distinct * 2 > keys.length) {
+                grow();
+            }
+        }
+        return document;
+    }
+
+    /**
+     * 在整个语料中查找与查询文本相同的段落
+     * @return 按文档编号、查询中的起始位置排列的匹配段落
+     */
+    public List<PassageMatch> search(String text) {
+        List<Span> spans = spans(winnowing.fingerprint(text));
+        List<PassageMatch> matches = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            matches.add(new PassageMatch(span.document, span.queryStart, span.queryEnd,
+                    span.documentStart, span.documentEnd));
+        }
+        return matches;
+    }
+
+    /**
+     * 规范化后的文档长度，用于计算覆盖率
+     */
+    int normalizedLength(int document) {
+        return lengths[document];
+    }
+
+    /**
+     * 合并查询指纹的命中，按(文档, 位移)跟踪尚未结束的段落；
+     * 相邻指纹的间隔不超过窗口大小时视为同一段连续复制
+     */
+    List<Span> spans(Winnowing.Fingerprints query) {
+        List<Span> closed = new ArrayList<>();
+        Map<Long, Span> open = new HashMap<>();
+        int k = winnowing.k();
+        int gap = winnowing.window();
+        for (int i = 0; i < query.size(); i++) {
+            int queryPosition = query.position(i);
+            int slot = slot(query.hash(i));
+            if (counts[slot] > MAX_POSTINGS) {
+                continue;
+            }
+            for (int p = heads[slot]; p != -1; p = next[p]) {
+                long key = ((long) documents[p] << 32) | ((positions[p] - queryPosition) & 0xFFFFFFFFL);
+                Span span = open.get(key);
+                if (span != null && queryPosition - span.lastQueryPosition > gap) {
+                    closed.add(span);
+                    span = null;
+                }
+                if (span == null) {
+                    span = new Span(documents[p], queryPosition, query.start(i), positions[p], starts[p]);
+                    open.put(key, span);
+                }
+                span.lastQueryPosition = queryPosition;
+                span.queryPositionEnd = queryPosition + k;
+                span.documentPositionEnd = positions[p] + k;
+                span.queryEnd = Math.max(span.queryEnd, query.end(i));
+                span.documentEnd = Math.max(span.documentEnd, ends[p]);
+            }
+        }
+        closed.addAll(open.values());
+        closed.sort(Comparator.comparingInt((Span span) -> span.document)
+                .thenComparingInt(span -> span.queryStart)
+                .thenComparingInt(span -> span.documentStart));
+        return closed;
+    }
+
+    private int slot(long hash) {
+        int mask = keys.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (heads[slot] != -1 && keys[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldHeads.length * 2];
+        counts = new int[oldCounts.length * 2];
+        Arrays.fill(heads, -1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != -1) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * 一段匹配，同时保存原文下标和规范化序列中的位置
+     */
+    static final class Span {
+        final int document;
+        final int queryPosition;
+        final int queryStart;
+        final int documentPosition;
+        final int documentStart;
+        int lastQueryPosition;
+        int queryPositionEnd;
+        int documentPositionEnd;
+        int queryEnd;
+        int documentEnd;
+
+        Span(int document, int queryPosition, int queryStart, int documentPosition, int documentStart) {
+            this.document = document;
+            this.queryPosition = queryPosition;
+            this.queryStart = queryStart;
+            this.documentPosition = documentPosition;
+            this.documentStart = documentStart;
+        }
+    }
+}
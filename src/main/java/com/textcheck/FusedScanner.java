@@ -0,0 +1,151 @@
+package com.textcheck;
+
+import java.util.Arrays;
+
+/**
+ * 综合相似度使用的单遍扫描：每个码点只解码、分类一次，同时产生
+ * 余弦相似度的词（{@link CjkTokenizer.Mode#TERMS}规则）、Jaccard相似度的单词（{@link CjkTokenizer.Mode#WORDS}规则）
+ * 和编辑距离使用的规范化码点序列，结果与三种算法各自处理时完全相同。
+ * 实例不是线程安全的，由{@link Scratch}按线程持有
+ */
+final class FusedScanner {
+
+    private TokenSink terms;
+    private TokenSink words;
+    private char[] term = new char[32];
+    private int termLength;
+    private char[] word = new char[32];
+    private int wordLength;
+    private final char[] single = new char[2];
+    private boolean allChinese;
+
+    /**
+     * 扫描一段完整文本
+     * @param text 文本
+     * @param terms 接收TERMS规则分出的词
+     * @param words 接收WORDS规则分出的单词
+     * @param codePoints 长度不小于text.length()的缓冲区，写入与{@link LevenshteinDistance#normalizeText(String)}
+     *                   相同规范化后的码点
+     * @return 写入的码点数
+     */
+    int scan(String text, TokenSink terms, TokenSink words, int[] codePoints) {
+        this.terms = terms;
+        this.words = words;
+        termLength = 0;
+        wordLength = 0;
+        allChinese = true;
+
+        int n = 0;
+        // 尚未输出的一串不大于空格的字符的起点，出现在两端时按String.trim去掉
+        int pending = -1;
+        int length = text.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = text.codePointAt(i);
+            if (codePoint <= ' ') {
+                if (pending < 0) {
+                    pending = i;
+                }
+            } else {
+                if (pending >= 0) {
+                    if (n > 0) {
+                        n = spaces(text, pending, i, codePoints, n);
+                    }
+                    pending = -1;
+                }
+                codePoints[n++] = codePoint;
+                if (!CjkTokenizer.isChinese(codePoint) && !Character.isWhitespace(codePoint)) {
+                    allChinese = false;
+                }
+            }
+            feed(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        endTerm();
+        endWord();
+        this.terms = null;
+        this.words = null;
+        return n;
+    }
+
+    /**
+     * 上一次扫描的规范化文本是否只含中文字符和空白
+     */
+    boolean allChinese() {
+        return allChinese;
+    }
+
+    /**
+     * 输出中间的一串不大于空格的字符，连续的\s（空格、\t、\n、\x0B、\f、\r）合并为一个空格
+     */
+    private int spaces(String text, int from, int to, int[] codePoints, int n) {
+        boolean space = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || (c >= '\t' && c <= '\r')) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                codePoints[n++] = ' ';
+                space = false;
+            }
+            codePoints[n++] = c;
+            if (!Character.isWhitespace(c)) {
+                allChinese = false;
+            }
+        }
+        if (space) {
+            codePoints[n++] = ' ';
+        }
+        return n;
+    }
+
+    /**
+     * 按两种分词规则同时处理一个码点，规则与{@link CjkTokenizer}相同
+     */
+    private void feed(int codePoint) {
+        codePoint = Character.toLowerCase(codePoint);
+        int flags = CjkTokenizer.classOf(codePoint);
+        if ((flags & CjkTokenizer.CJK) != 0) {
+            // 中文字符在两种规则下都单独作为一个词
+            endTerm();
+            endWord();
+            int length = Character.toChars(codePoint, single, 0);
+            terms.token(single, 0, length);
+            words.token(single, 0, length);
+            return;
+        }
+
+        if ((flags & CjkTokenizer.SEPARATOR) != 0) {
+            endTerm();
+        } else {
+            if (termLength + 2 > term.length) {
+                term = Arrays.copyOf(term, term.length * 2);
+            }
+            termLength += Character.toChars(codePoint, term, termLength);
+        }
+
+        if ((flags & CjkTokenizer.SPACE) != 0) {
+            endWord();
+        } else if ((flags & CjkTokenizer.WORD) != 0) {
+            if (wordLength + 2 > word.length) {
+                word = Arrays.copyOf(word, word.length * 2);
+            }
+            wordLength += Character.toChars(codePoint, word, wordLength);
+        }
+    }
+
+    private void endTerm() {
+        if (termLength > 0) {
+            terms.token(term, 0, termLength);
+            termLength = 0;
+        }
+    }
+
+    private void endWord() {
+        if (wordLength > 0) {
+            words.token(word, 0, wordLength);
+            wordLength = 0;
+        }
+    }
+}
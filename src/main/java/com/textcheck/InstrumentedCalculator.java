@@ -0,0 +1,206 @@
+package com.textcheck;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+
+/**
+ * 记录调用指标的相似度计算器装饰器
+ * 每次调用记录总耗时、输入长度、各阶段耗时和当前线程的分配字节数，写入{@link CalculatorMetrics}，
+ * 并在开启飞行记录时提交{@link CalculationEvent}。禁用后直接委托，只多一次volatile读
+ */
+public class InstrumentedCalculator implements SimilarityCalculator {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final SimilarityCalculator delegate;
+    private final CalculatorMetrics metrics;
+    private volatile boolean enabled = true;
+
+    /**
+     * 使用算法的共享指标，指标会注册到JMX
+     * @param algorithm 算法名称
+     * @param delegate 被包装的计算器
+     */
+    public InstrumentedCalculator(String algorithm, SimilarityCalculator delegate) {
+        this(delegate, CalculatorMetrics.of(algorithm));
+    }
+
+    /**
+     * @param delegate 被包装的计算器
+     * @param metrics 记录指标的目标
+     */
+    public InstrumentedCalculator(SimilarityCalculator delegate, CalculatorMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public CalculatorMetrics metrics() {
+        return metrics;
+    }
+
+    public SimilarityCalculator delegate() {
+        return delegate;
+    }
+
+    /**
+     * 开启或关闭记录，关闭时调用直接转给被包装的计算器
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public double calculate(String text1, String text2) {
+        if (!enabled) {
+            return delegate.calculate(text1, text2);
+        }
+        Call call = new Call();
+        double similarity = Double.NaN;
+        try {
+            similarity = delegate.calculate(text1, text2);
+            return similarity;
+        } finally {
+            call.finish(length(text1), length(text2), similarity);
+        }
+    }
+
+    @Override
+    public double calculate(String text1, String text2, double minSimilarity) {
+        if (!enabled) {
+            return delegate.calculate(text1, text2, minSimilarity);
+        }
+        Call call = new Call();
+        double similarity = Double.NaN;
+        try {
+            similarity = delegate.calculate(text1, text2, minSimilarity);
+            return similarity;
+        } finally {
+            call.finish(length(text1), length(text2), similarity);
+        }
+    }
+
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        if (!enabled) {
+            return delegate.calculateProfiles(profile1, profile2);
+        }
+        Call call = new Call();
+        double similarity = Double.NaN;
+        try {
+            similarity = delegate.calculateProfiles(profile1, profile2);
+            return similarity;
+        } finally {
+            call.finish(profile1.length(), profile2.length(), similarity);
+        }
+    }
+
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2, double minSimilarity) {
+        if (!enabled) {
+            return delegate.calculateProfiles(profile1, profile2, minSimilarity);
+        }
+        Call call = new Call();
+        double similarity = Double.NaN;
+        try {
+            similarity = delegate.calculateProfiles(profile1, profile2, minSimilarity);
+            return similarity;
+        } finally {
+            call.finish(profile1.length(), profile2.length(), similarity);
+        }
+    }
+
+    /**
+     * 文件比较不记录输入长度
+     */
+    @Override
+    public boolean needsText() {
+        return delegate.needsText();
+    }
+
+    @Override
+    public double calculateFiles(Path file1, Path file2) throws IOException {
+        if (!enabled) {
+            return delegate.calculateFiles(file1, file2);
+        }
+        Call call = new Call();
+        double similarity = Double.NaN;
+        try {
+            similarity = delegate.calculateFiles(file1, file2);
+            return similarity;
+        } finally {
+            call.finish(-1, -1, similarity);
+        }
+    }
+
+    /**
+     * 当前JVM是否支持按线程统计分配字节数
+     */
+    static boolean allocationSupported() {
+        return THREADS != null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long length(String text) {
+        return text == null ? -1 : text.length();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 一次调用的计时状态，构造时开始计时，finish时写入指标和JFR事件
+     */
+    private final class Call {
+        private final CalculationEvent event = new CalculationEvent();
+        private final long[] phaseNanos = CalculatorMetrics.newPhaseArray();
+        private final long[] outer;
+        private final long allocatedBefore;
+        private final long start;
+
+        Call() {
+            event.begin();
+            outer = CalculatorMetrics.beginPhases(phaseNanos);
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+        }
+
+        void finish(long length1, long length2, double similarity) {
+            long nanos = System.nanoTime() - start;
+            long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+            CalculatorMetrics.endPhases(outer);
+            // 委托抛出异常时similarity保持为NaN
+            metrics.record(nanos, phaseNanos, length1, length2, allocated, Double.isNaN(similarity));
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.algorithm = metrics.getAlgorithm();
+                event.length1 = length1;
+                event.length2 = length2;
+                event.similarity = similarity;
+                event.normalizeNanos = phaseNanos[CalculatorMetrics.Phase.NORMALIZE.ordinal()];
+                event.vectorNanos = phaseNanos[CalculatorMetrics.Phase.VECTOR.ordinal()];
+                event.setsNanos = phaseNanos[CalculatorMetrics.Phase.SETS.ordinal()];
+                event.scoreNanos = phaseNanos[CalculatorMetrics.Phase.SCORE.ordinal()];
+                event.allocated = allocated;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 用于余弦相似度前K检索的内存倒排索引
+ * 词 → (文档编号, 词频) 的倒排表，文档模长在添加时预先计算。
+ * 查询只遍历查询中出现的词的倒排表，并使用MaxScore剪枝跳过不可能进入前K的文档，
+ * 返回的分数与{@link CosineSimilarity#calculate(String, String)}完全一致。
+ * 建好索引后可以并发查询，add不是线程安全的
+ */
+public class InvertedIndex {
+
+    /** 比较上界时允许的浮点误差，避免误剪 */
+    private static final double EPSILON = 1e-9;
+
+    /** 结果按相似度降序、编号升序排列 */
+    private static final Comparator<ScoredDocument> BY_SCORE =
+            Comparator.comparingDouble(ScoredDocument::score).reversed()
+                      .thenComparingInt(ScoredDocument::index);
+
+    private final TermDictionary dictionary;
+    private final List<Postings> postings = new ArrayList<>();
+    private double[] norms = new double[16];
+    private boolean[] empty = new boolean[16];
+    private int size;
+
+    public InvertedIndex() {
+        this(new TermDictionary());
+    }
+
+    /**
+     * @param dictionary 词典，通过{@link #add(DocumentProfile)}添加的profile必须使用同一词典
+     */
+    public InvertedIndex(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 已索引的文档数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 添加文档
+     * @param text 文本
+     * @return 文档编号，从0开始连续分配
+     */
+    public int add(String text) {
+        return add(DocumentProfile.of(text, dictionary));
+    }
+
+    /**
+     * 添加预处理过的文档
+     * @param profile 使用本索引词典构建的profile
+     * @return 文档编号，从0开始连续分配
+     */
+    public int add(DocumentProfile profile) {
+        if (profile.dictionary() != dictionary) {
+            throw new IllegalArgumentException("profile必须使用索引的词典");
+        }
+        int docId = size++;
+        if (docId == norms.length) {
+            norms = Arrays.copyOf(norms, docId * 2);
+            empty = Arrays.copyOf(empty, docId * 2);
+        }
+
+        TermVector vector = profile.termVector();
+        norms[docId] = vector.norm();
+        empty[docId] = profile.length() == 0;
+        for (int i = 0; i < vector.size(); i++) {
+            int termId = vector.id(i);
+            while (postings.size() <= termId) {
+                postings.add(null);
+            }
+            Postings list = postings.get(termId);
+            if (list == null) {
+                list = new Postings();
+                postings.set(termId, list);
+            }
+            list.add(docId, vector.count(i), vector.count(i) / vector.norm());
+        }
+        return docId;
+    }
+
+    /**
+     * 检索与查询文本余弦相似度最高的前k个文档，只返回相似度大于0的文档
+     * @param query 查询文本
+     * @param k 返回的结果数
+     * @return 按相似度降序排列的结果，下标为文档编号
+     */
+    public List<ScoredDocument> topK(String query, int k) {
+        if (query == null || k <= 0) {
+            return new ArrayList<>();
+        }
+        if (query.isEmpty()) {
+            // 空文本只与空文本相似
+            List<ScoredDocument> results = new ArrayList<>();
+            for (int docId = 0; docId < size && results.size() < k; docId++) {
+                if (empty[docId]) {
+                    results.add(new ScoredDocument(docId, 1.0));
+                }
+            }
+            return results;
+        }
+
+        // 查询使用临时词典分词，未收录的词不会写入索引词典，但仍计入查询向量的模长
+        TermDictionary queryDictionary = new TermDictionary();
+        TermVector queryVector = CosineSimilarity.getTermFrequencyVector(query, queryDictionary);
+        double queryNorm = queryVector.norm();
+        if (queryNorm == 0.0) {
+            return new ArrayList<>();
+        }
+
+        List<Cursor> cursors = new ArrayList<>();
+        for (int i = 0; i < queryVector.size(); i++) {
+            int termId = dictionary.lookup(queryDictionary.term(queryVector.id(i)));
+            Postings list = termId < 0 || termId >= postings.size() ? null : postings.get(termId);
+            if (list != null) {
+                cursors.add(new Cursor(list, queryVector.count(i), queryNorm));
+            }
+        }
+        return maxScore(cursors, queryNorm, k);
+    }
+
+    /**
+     * 文档级(DAAT)的MaxScore检索
+     * 按分数上界升序排列查询词，上界之和不超过当前第K名分数的词为非必要词，
+     * 只出现在非必要词倒排表中的文档不可能进入前K，因此只沿必要词的倒排表枚举候选
+     */
+    private List<ScoredDocument> maxScore(List<Cursor> cursors, double queryNorm, int k) {
+        cursors.sort(Comparator.comparingDouble(cursor -> cursor.upperBound));
+        int n = cursors.size();
+        double[] cumulativeBound = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            cumulativeBound[i + 1] = cumulativeBound[i] + cursors.get(i).upperBound;
+        }
+
+        PriorityQueue<ScoredDocument> heap = new PriorityQueue<>(k + 1, BY_SCORE.reversed());
+        double threshold = 0.0;
+        int firstEssential = 0;
+
+        while (true) {
+            // 必要词倒排表中的下一个候选文档
+            int docId = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < n; i++) {
+                docId = Math.min(docId, cursors.get(i).docId());
+            }
+            if (docId == Integer.MAX_VALUE) {
+                break;
+            }
+
+            double denominator = queryNorm * norms[docId];
+            long dotProduct = 0;
+            for (int i = firstEssential; i < n; i++) {
+                Cursor cursor = cursors.get(i);
+                if (cursor.docId() == docId) {
+                    dotProduct += (long) cursor.queryCount * cursor.count();
+                    cursor.next();
+                }
+            }
+
+            // 依次补上非必要词的贡献，上界不足以进入前K时提前放弃
+            boolean pruned = false;
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (heap.size() == k && dotProduct / denominator + cumulativeBound[i + 1] <= threshold - EPSILON) {
+                    pruned = true;
+                    break;
+                }
+                Cursor cursor = cursors.get(i);
+                cursor.advance(docId);
+                if (cursor.docId() == docId) {
+                    dotProduct += (long) cursor.queryCount * cursor.count();
+                }
+            }
+            if (pruned || dotProduct == 0) {
+                continue;
+            }
+
+            double score = (double) dotProduct / denominator;
+            if (heap.size() < k) {
+                heap.add(new ScoredDocument(docId, score));
+            } else if (score > threshold) {
+                heap.poll();
+                heap.add(new ScoredDocument(docId, score));
+            } else {
+                continue;
+            }
+
+            if (heap.size() == k) {
+                threshold = heap.peek().score();
+                while (firstEssential < n && cumulativeBound[firstEssential + 1] <= threshold - EPSILON) {
+                    firstEssential++;
+                }
+            }
+        }
+
+        List<ScoredDocument> results = new ArrayList<>(heap);
+        results.sort(BY_SCORE);
+        return results;
+    }
+
+    /**
+     * 单个词的倒排表，文档编号递增
+     */
+    private static final class Postings {
+        private int[] docIds = new int[4];
+        private int[] counts = new int[4];
+        private int size;
+        /** 该词在所有文档中 tf/|d| 的最大值，用于计算分数上界 */
+        private double maxWeight;
+
+        void add(int docId, int count, double weight) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            docIds[size] = docId;
+            counts[size] = count;
+            size++;
+            maxWeight = Math.max(maxWeight, weight);
+        }
+    }
+
+    /**
+     * 倒排表上的游标
+     */
+    private static final class Cursor {
+        private final Postings postings;
+        private final int queryCount;
+        /** 该词对任意文档余弦分数的最大贡献 */
+        private final double upperBound;
+        private int position;
+
+        Cursor(Postings postings, int queryCount, double queryNorm) {
+            this.postings = postings;
+            this.queryCount = queryCount;
+            this.upperBound = queryCount * postings.maxWeight / queryNorm;
+        }
+
+        int docId() {
+            return position < postings.size ? postings.docIds[position] : Integer.MAX_VALUE;
+        }
+
+        int count() {
+            return postings.counts[position];
+        }
+
+        void next() {
+            position++;
+        }
+
+        /**
+         * 跳到第一个编号不小于target的位置，先倍增再二分
+         */
+        void advance(int target) {
+            if (docId() >= target) {
+                return;
+            }
+            int step = 1;
+            int low = position;
+            int high = position + 1;
+            while (high < postings.size && postings.docIds[high] < target) {
+                low = high;
+                step <<= 1;
+                high = position + step;
+            }
+            high = Math.min(high, postings.size);
+            int index = Arrays.binarySearch(postings.docIds, low, high, target);
+            position = index >= 0 ? index : -index - 1;
+        }
+    }
+}
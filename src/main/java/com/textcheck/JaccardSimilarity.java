@@ -1,17 +1,49 @@
 package com.textcheck;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Set;
 
 /**
  * 基于Jaccard相似度的文本相似度计算实现
+ * 实例不可变，可以被多个线程共享；不使用缓存时标记集合和字符集合记录在当前线程{@link Scratch}的词表中，
+ * 交集大小在收集时增量统计，稳态下计算不分配新对象
  */
 public class JaccardSimilarity implements SimilarityCalculator {
 
+    /** 比较上界时允许的浮点误差 */
+    private static final double EPSILON = 1e-9;
+
+    /** 长文本中词级别相似度的权重 */
+    private static final double TOKEN_WEIGHT = 0.6;
+
+    /** 长文本中字符级别相似度的权重 */
+    private static final double CHARACTER_WEIGHT = 0.4;
+
+    /** 可选的profile缓存 */
+    private final ProfileCache cache;
+
+    public JaccardSimilarity() {
+        this(null);
+    }
+
+    /**
+     * @param cache profile缓存，命中时直接使用缓存的标记集合，为null时不缓存
+     */
+    public JaccardSimilarity(ProfileCache cache) {
+        this.cache = cache;
+    }
+
     @Override
     public double calculate(String text1, String text2) {
+        return calculate(text1, text2, 0.0);
+    }
+
+    /**
+     * 带阈值计算，收集第二段文本时按已出现的独有元素估计上界，低于阈值时不再收集剩余部分
+     */
+    @Override
+    public double calculate(String text1, String text2, double minSimilarity) {
         if (text1 == null || text2 == null) {
             return 0.0;
         }
@@ -24,10 +56,97 @@ public class JaccardSimilarity implements SimilarityCalculator {
             return 0.0;
         }
 
-        // 将文本转换为字符组和词组的混合集合
-        Set<String> set1 = getTokenSets(text1);
-        Set<String> set2 = getTokenSets(text2);
+        if (cache != null) {
+            DocumentProfile[] profiles = cache.get(text1, text2);
+            return calculateProfiles(profiles[0], profiles[1], minSimilarity);
+        }
+
+        // 将文本转换为字符组和词组的混合集合，两段文本记入同一个词表
+        try (Scratch scratch = Scratch.acquire()) {
+            long start = CalculatorMetrics.phaseStart();
+            TermTable tokens = scratch.table(Scratch.TOKENS);
+            TermTable characters = scratch.table(Scratch.CHARACTERS);
+            boolean weighted = text1.length() > 10 || text2.length() > 10;
+            tokens.collectWords(text1, 0, characters);
+            boolean reachable = collectWithinBound(tokens, characters, text2, weighted, minSimilarity);
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SETS, start);
+
+            start = CalculatorMetrics.phaseStart();
+            try {
+                if (!reachable) {
+                    return 0.0;
+                }
+                return countSimilarity(tokens.distinct1(), tokens.distinct2(), tokens.shared(),
+                                       characters.distinct1(), characters.distinct2(), characters.shared(),
+                                       weighted, minSimilarity);
+            } finally {
+                CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+            }
+        }
+    }
+
+    /**
+     * 使用profile中预先构建的标记集合和字符集合计算
+     */
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        return calculateProfiles(profile1, profile2, 0.0);
+    }
+
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2, double minSimilarity) {
+        if (profile1.length() == 0 && profile2.length() == 0) {
+            return 1.0;
+        }
+        if (profile1.length() == 0 || profile2.length() == 0) {
+            return 0.0;
+        }
+        return jaccard(profile1.tokens(), profile1.characters(), profile1.length(),
+                       profile2.tokens(), profile2.characters(), profile2.length(), minSimilarity);
+    }
+
+    /**
+     * profile之间只比较标记集合和字符集合
+     */
+    @Override
+    public boolean needsText() {
+        return false;
+    }
+
+    /**
+     * 流式比较两个文件，标记集合边读边构建，不会把文件内容读成字符串
+     */
+    @Override
+    public double calculateFiles(Path file1, Path file2) throws IOException {
+        TokenSetCollector collector1 = new TokenSetCollector();
+        TokenSetCollector collector2 = new TokenSetCollector();
+        MappedTextReader.read(file1, collector1);
+        MappedTextReader.read(file2, collector2);
 
+        // 处理空文件的特殊情况
+        if (collector1.length() == 0 && collector2.length() == 0) {
+            return 1.0;
+        }
+        if (collector1.length() == 0 || collector2.length() == 0) {
+            return 0.0;
+        }
+
+        return jaccard(collector1.finish(), collector1.characters(), collector1.length(),
+                       collector2.finish(), collector2.characters(), collector2.length(), 0.0);
+    }
+
+    private double jaccard(Set<String> set1, Set<Integer> charSet1, long length1,
+                           Set<String> set2, Set<Integer> charSet2, long length2, double minSimilarity) {
+        long start = CalculatorMetrics.phaseStart();
+        try {
+            return setSimilarity(set1, charSet1, length1, set2, charSet2, length2, minSimilarity);
+        } finally {
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+        }
+    }
+
+    private double setSimilarity(Set<String> set1, Set<Integer> charSet1, long length1,
+                                 Set<String> set2, Set<Integer> charSet2, long length2, double minSimilarity) {
         // 如果两个集合都为空，返回1.0
         if (set1.isEmpty() && set2.isEmpty()) {
             return 1.0;
@@ -38,105 +157,138 @@ public class JaccardSimilarity implements SimilarityCalculator {
             return 0.0;
         }
 
-        // 计算交集大小
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
-        double intersectionSize = intersection.size();
+        // 对于长文本，考虑字符级别的相似度
+        boolean weighted = length1 > 10 || length2 > 10;
 
-        // 计算并集大小
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
-        double unionSize = union.size();
+        // |A∩B|/|A∪B| 不超过 min(|A|,|B|)/max(|A|,|B|)，上界低于阈值时不必计算交集
+        if (minSimilarity > 0.0) {
+            double bound = weighted
+                    ? sizeBound(set1, set2) * TOKEN_WEIGHT + sizeBound(charSet1, charSet2) * CHARACTER_WEIGHT
+                    : sizeBound(set1, set2);
+            if (bound < minSimilarity - EPSILON) {
+                return 0.0;
+            }
+        }
 
         // 计算基础Jaccard相似度
-        double baseJaccard = intersectionSize / unionSize;
+        double baseJaccard = setJaccard(set1, set2);
+        double similarity = baseJaccard;
+
+        if (weighted) {
+            if (minSimilarity > 0.0
+                    && baseJaccard * TOKEN_WEIGHT + sizeBound(charSet1, charSet2) * CHARACTER_WEIGHT
+                    < minSimilarity - EPSILON) {
+                return 0.0;
+            }
 
-        // 对于长文本，考虑字符级别的相似度
-        if (text1.length() > 10 || text2.length() > 10) {
             // 计算字符级别的Jaccard相似度
-            Set<Character> charSet1 = getCharacterSet(text1);
-            Set<Character> charSet2 = getCharacterSet(text2);
-            
-            Set<Character> charIntersection = new HashSet<>(charSet1);
-            charIntersection.retainAll(charSet2);
-            
-            Set<Character> charUnion = new HashSet<>(charSet1);
-            charUnion.addAll(charSet2);
-            
-            double charJaccard = (double) charIntersection.size() / charUnion.size();
+            double charJaccard = setJaccard(charSet1, charSet2);
             
             // 综合考虑词级别和字符级别的相似度
-            return (baseJaccard * 0.6 + charJaccard * 0.4);
+            similarity = baseJaccard * TOKEN_WEIGHT + charJaccard * CHARACTER_WEIGHT;
         }
 
-        return baseJaccard;
+        return similarity >= minSimilarity ? similarity : 0.0;
     }
 
     /**
-     * 将文本转换为标记集合，包括单字和词组
+     * 分块收集第二段文本，每块之后检查上界。第二段中第一段没有的元素个数m只增不减，
+     * 交集不超过第一段的大小n，因此 |A∩B|/|A∪B| ≤ n/(n+m)，字符集合同理
+     * @return 确定达不到阈值时返回false，此时第二段文本可能没有收集完
      */
-    private Set<String> getTokenSets(String text) {
-        Set<String> tokens = new HashSet<>();
-        List<String> words = new ArrayList<>();
-        StringBuilder currentWord = new StringBuilder();
-
-        // 预处理文本
-        text = text.toLowerCase().trim();
-
-        // 分词处理
-        for (char c : text.toCharArray()) {
-            if (isChinese(c)) {
-                // 处理之前累积的非中文词
-                if (currentWord.length() > 0) {
-                    words.add(currentWord.toString());
-                    currentWord.setLength(0);
-                }
-                words.add(String.valueOf(c));
-            } else if (Character.isSpaceChar(c)) {
-                if (currentWord.length() > 0) {
-                    words.add(currentWord.toString());
-                    currentWord.setLength(0);
-                }
-            } else if (Character.isLetterOrDigit(c)) {
-                currentWord.append(c);
+    private static boolean collectWithinBound(TermTable tokens, TermTable characters, String text,
+                                              boolean weighted, double minSimilarity) {
+        if (minSimilarity <= 0.0) {
+            tokens.collectWords(text, 1, characters);
+            return true;
+        }
+        tokens.beginWords(1, characters);
+        int length = text.length();
+        for (int from = 0; from < length; from += TermTable.CHUNK) {
+            tokens.feed(text, from, Math.min(length, from + TermTable.CHUNK));
+            double bound = unseenBound(tokens);
+            if (weighted) {
+                bound = bound * TOKEN_WEIGHT + unseenBound(characters) * CHARACTER_WEIGHT;
+            }
+            if (bound < minSimilarity - EPSILON) {
+                return false;
             }
         }
+        tokens.finish();
+        return true;
+    }
 
-        if (currentWord.length() > 0) {
-            words.add(currentWord.toString());
-        }
+    /**
+     * 由第一段的集合大小和第二段目前独有的元素个数得到的Jaccard系数上界
+     */
+    private static double unseenBound(TermTable table) {
+        int unseen = table.distinct2() - table.shared();
+        return unseen == 0 ? 1.0 : (double) table.distinct1() / (table.distinct1() + unseen);
+    }
 
-        // 添加单字标记
-        tokens.addAll(words);
+    /**
+     * 与{@link #setSimilarity}相同的计算，集合大小和交集大小已经统计好；
+     * 文本路径上的上界已在收集时检查过，这里直接计算
+     * @param size1 第一个标记集合的大小
+     * @param size2 第二个标记集合的大小
+     * @param shared 标记集合的交集大小
+     * @param characters1 第一个字符集合的大小
+     * @param characters2 第二个字符集合的大小
+     * @param sharedCharacters 字符集合的交集大小
+     * @param weighted 是否综合字符级别的相似度，任一文本长于10个字符时为true
+     */
+    static double countSimilarity(int size1, int size2, int shared,
+                                  int characters1, int characters2, int sharedCharacters,
+                                  boolean weighted, double minSimilarity) {
+        if (size1 == 0 && size2 == 0) {
+            return 1.0;
+        }
+        if (size1 == 0 || size2 == 0) {
+            return 0.0;
+        }
 
-        // 添加相邻字符组合（生成2-gram）
-        for (int i = 0; i < words.size() - 1; i++) {
-            tokens.add(words.get(i) + words.get(i + 1));
+        double similarity = jaccard(shared, size1, size2);
+        if (weighted) {
+            similarity = similarity * TOKEN_WEIGHT
+                    + jaccard(sharedCharacters, characters1, characters2) * CHARACTER_WEIGHT;
         }
+        return similarity >= minSimilarity ? similarity : 0.0;
+    }
 
-        return tokens;
+    /**
+     * 由集合大小得到的Jaccard系数上界
+     */
+    private static double sizeBound(Set<?> set1, Set<?> set2) {
+        int max = Math.max(set1.size(), set2.size());
+        return max == 0 ? 1.0 : (double) Math.min(set1.size(), set2.size()) / max;
     }
 
     /**
-     * 获取文本的字符集合
+     * 集合的Jaccard系数 |A∩B| / |A∪B|，遍历较小的集合计数，不构造交集和并集
      */
-    private Set<Character> getCharacterSet(String text) {
-        Set<Character> charSet = new HashSet<>();
-        for (char c : text.toLowerCase().toCharArray()) {
-            if (Character.isLetterOrDigit(c) || isChinese(c)) {
-                charSet.add(c);
+    static double setJaccard(Set<?> set1, Set<?> set2) {
+        if (set1.isEmpty() && set2.isEmpty()) {
+            return 1.0;
+        }
+        Set<?> smaller = set1.size() <= set2.size() ? set1 : set2;
+        Set<?> larger = smaller == set1 ? set2 : set1;
+        int intersectionSize = 0;
+        for (Object element : smaller) {
+            if (larger.contains(element)) {
+                intersectionSize++;
             }
         }
-        return charSet;
+        return jaccard(intersectionSize, set1.size(), set2.size());
     }
 
     /**
-     * 判断是否为中文字符
+     * 由交集大小和两个集合的大小得到Jaccard系数
      */
-    private boolean isChinese(char c) {
-        Character.UnicodeBlock ub = Character.UnicodeBlock.of(c);
-        return ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
-            || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
-            || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B;
+    private static double jaccard(int intersectionSize, int size1, int size2) {
+        if (size1 == 0 && size2 == 0) {
+            return 1.0;
+        }
+        double unionSize = size1 + size2 - intersectionSize;
+        return intersectionSize / unionSize;
     }
-}
\ No newline at end of file
+}
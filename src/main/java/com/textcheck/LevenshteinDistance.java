@@ -1,12 +1,47 @@
 package com.textcheck;
 
+import java.util.Arrays;
+
 /**
  * 基于Levenshtein编辑距离的文本相似度计算实现
+ * 实例不可变，可以被多个线程共享；码点数组和动态规划的滚动行取自当前线程的{@link Scratch}，
+ * 稳态下计算不分配新对象
  */
 public class LevenshteinDistance implements SimilarityCalculator {
 
+    /** 删除和插入操作的最小代价，用于推导带状计算的宽度 */
+    private static final double MIN_INDEL_COST = 0.8;
+
+    /** 任意一次编辑操作的最小代价，用于由单位代价距离推导下界 */
+    private static final double MIN_EDIT_COST = 0.6;
+
+    /** 比较相似度阈值时允许的浮点误差 */
+    private static final double EPSILON = 1e-9;
+
+    /** 可选的profile缓存 */
+    private final ProfileCache cache;
+
+    public LevenshteinDistance() {
+        this(null);
+    }
+
+    /**
+     * @param cache profile缓存，命中时直接使用缓存的规范化文本，为null时不缓存
+     */
+    public LevenshteinDistance(ProfileCache cache) {
+        this.cache = cache;
+    }
+
     @Override
     public double calculate(String text1, String text2) {
+        return calculate(text1, text2, 0.0);
+    }
+
+    /**
+     * 计算相似度，先用长度差给出的上界排除，再在确定结果低于阈值时提前结束编辑距离计算
+     */
+    @Override
+    public double calculate(String text1, String text2, double minSimilarity) {
         if (text1 == null || text2 == null) {
             return 0.0;
         }
@@ -19,120 +54,281 @@ public class LevenshteinDistance implements SimilarityCalculator {
             return 0.0;
         }
 
-        // 预处理文本：去除多余空白字符
-        text1 = normalizeText(text1);
-        text2 = normalizeText(text2);
+        if (cache != null) {
+            DocumentProfile profile1 = cache.get(text1);
+            DocumentProfile profile2 = cache.get(text2);
+            return similarity(profile1.normalizedText(), profile1.allChinese(),
+                              profile2.normalizedText(), profile2.allChinese(), minSimilarity);
+        }
+
+        try (Scratch scratch = Scratch.acquire()) {
+            // 预处理文本：去除多余空白字符，直接写入码点缓冲区，不生成中间字符串
+            long start = CalculatorMetrics.phaseStart();
+            int[] codePoints1 = scratch.ints(Scratch.CODE_POINTS_1, text1.length());
+            int[] codePoints2 = scratch.ints(Scratch.CODE_POINTS_2, text2.length());
+            int length1 = normalizedCodePoints(text1, codePoints1);
+            int length2 = normalizedCodePoints(text2, codePoints2);
+            boolean allChinese1 = allChinese(codePoints1, length1);
+            boolean allChinese2 = allChinese(codePoints2, length2);
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.NORMALIZE, start);
+
+            return similarity(codePoints1, length1, allChinese1, codePoints2, length2, allChinese2,
+                              minSimilarity, scratch);
+        }
+    }
 
-        int len1 = text1.length();
-        int len2 = text2.length();
+    /**
+     * 使用profile中预先规范化的文本计算
+     */
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        return calculateProfiles(profile1, profile2, 0.0);
+    }
 
-        // 如果字符串完全相同
-        if (text1.equals(text2)) {
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2, double minSimilarity) {
+        if (profile1.length() == 0 && profile2.length() == 0) {
             return 1.0;
         }
+        if (profile1.length() == 0 || profile2.length() == 0) {
+            return 0.0;
+        }
+        return similarity(profile1.normalizedText(), profile1.allChinese(),
+                          profile2.normalizedText(), profile2.allChinese(), minSimilarity);
+    }
 
-        // 计算长度比例因子
-        double lengthRatio = (double) Math.min(len1, len2) / Math.max(len1, len2);
+    /**
+     * 对已经规范化的文本计算相似度，供分块对齐逐块调用
+     */
+    double normalizedSimilarity(String text1, String text2, double minSimilarity) {
+        if (text1.isEmpty() || text2.isEmpty()) {
+            return text1.isEmpty() && text2.isEmpty() ? 1.0 : 0.0;
+        }
+        return similarity(text1, allChinese(text1), text2, allChinese(text2), minSimilarity);
+    }
 
-        // 创建距离矩阵
-        double[][] dp = new double[len1 + 1][len2 + 1];
-
-        // 初始化第一行和第一列
-        for (int i = 0; i <= len1; i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= len2; j++) {
-            dp[0][j] = j;
-        }
-
-        // 计算编辑距离，考虑字符类型的权重
-        for (int i = 1; i <= len1; i++) {
-            char c1 = text1.charAt(i - 1);
-            for (int j = 1; j <= len2; j++) {
-                char c2 = text2.charAt(j - 1);
-                
-                if (c1 == c2) {
-                    // 字符完全相同
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    // 计算替换成本
-                    double replaceCost = getReplaceCost(c1, c2);
-                    
-                    // 计算删除和插入成本
-                    double deleteCost = getDeleteCost(c1);
-                    double insertCost = getInsertCost(c2);
-                    
-                    // 取三种操作的最小值
-                    dp[i][j] = Math.min(
-                        Math.min(
-                            dp[i - 1][j] + deleteCost,     // 删除
-                            dp[i][j - 1] + insertCost      // 插入
-                        ),
-                        dp[i - 1][j - 1] + replaceCost     // 替换
-                    );
-                }
-            }
+    /**
+     * 对已经规范化的文本计算，解码为码点后交给{@link #editSimilarity}
+     */
+    private double similarity(String text1, boolean allChinese1, String text2, boolean allChinese2,
+                              double minSimilarity) {
+        try (Scratch scratch = Scratch.acquire()) {
+            int[] codePoints1 = scratch.ints(Scratch.CODE_POINTS_1, text1.length());
+            int[] codePoints2 = scratch.ints(Scratch.CODE_POINTS_2, text2.length());
+            int length1 = codePoints(text1, codePoints1);
+            int length2 = codePoints(text2, codePoints2);
+            return similarity(codePoints1, length1, allChinese1, codePoints2, length2, allChinese2,
+                              minSimilarity, scratch);
         }
+    }
 
-        // 获取最终的编辑距离
-        double editDistance = dp[len1][len2];
+    /**
+     * 对规范化后的码点序列计算相似度，码点为缓冲区的前len1、len2个元素
+     */
+    double similarity(int[] codePoints1, int len1, boolean allChinese1,
+                              int[] codePoints2, int len2, boolean allChinese2,
+                              double minSimilarity, Scratch scratch) {
+        long start = CalculatorMetrics.phaseStart();
+        try {
+            return editSimilarity(codePoints1, len1, allChinese1, codePoints2, len2, allChinese2,
+                                  minSimilarity, scratch);
+        } finally {
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+        }
+    }
 
-        // 计算基础相似度
-        double maxPossibleDistance = Math.max(len1, len2);
-        double baseSimilarity = 1.0 - (editDistance / maxPossibleDistance);
+    /**
+     * 对规范化后的码点序列计算相似度，增补平面的汉字（如CJK扩展B）作为一个字符处理
+     */
+    private double editSimilarity(int[] codePoints1, int len1, boolean allChinese1,
+                                  int[] codePoints2, int len2, boolean allChinese2,
+                                  double minSimilarity, Scratch scratch) {
+        // 如果文本完全相同
+        if (Arrays.equals(codePoints1, 0, len1, codePoints2, 0, len2)) {
+            return 1.0;
+        }
 
-        // 根据文本长度和特性调整相似度
-        double adjustedSimilarity;
+        // 计算长度比例因子
+        double lengthRatio = (double) Math.min(len1, len2) / Math.max(len1, len2);
+
+        // 根据文本长度和特性确定相似度的调整系数
+        double adjustFactor;
         if (Math.min(len1, len2) < 5) {
             // 短文本的相似度调整
-            adjustedSimilarity = baseSimilarity * (0.7 + 0.3 * lengthRatio);
-        } else if (allChinese(text1) && allChinese(text2)) {
+            adjustFactor = 0.7 + 0.3 * lengthRatio;
+        } else if (allChinese1 && allChinese2) {
             // 纯中文文本的相似度调整
-            adjustedSimilarity = baseSimilarity * (0.9 + 0.1 * lengthRatio);
+            adjustFactor = 0.9 + 0.1 * lengthRatio;
         } else {
             // 混合文本的相似度调整
-            adjustedSimilarity = baseSimilarity * (0.8 + 0.2 * lengthRatio);
+            adjustFactor = 0.8 + 0.2 * lengthRatio;
+        }
+
+        // 由相似度下限反推允许的最大编辑距离
+        double maxPossibleDistance = Math.max(len1, len2);
+        double maxDistance = Double.POSITIVE_INFINITY;
+        if (minSimilarity > 0.0) {
+            maxDistance = maxPossibleDistance * (1.0 - minSimilarity / adjustFactor) + EPSILON;
+            // 长度差至少需要同样多次插入或删除
+            if (maxDistance < 0.0 || MIN_INDEL_COST * Math.abs(len1 - len2) > maxDistance) {
+                return 0.0;
+            }
         }
 
+        double editDistance = editDistance(codePoints1, len1, codePoints2, len2, maxDistance, scratch);
+        if (editDistance > maxDistance) {
+            return 0.0;
+        }
+
+        // 计算基础相似度
+        double baseSimilarity = 1.0 - (editDistance / maxPossibleDistance);
+        double adjustedSimilarity = baseSimilarity * adjustFactor;
+
         // 确保相似度在0到1之间
         return Math.max(0.0, Math.min(1.0, adjustedSimilarity));
     }
 
-    private String normalizeText(String text) {
+    /**
+     * 计算考虑字符类型权重的编辑距离，只保留两行，内存为O(min(n,m))
+     * @param text1 第一段文本
+     * @param text2 第二段文本
+     * @return 加权编辑距离
+     */
+    public double editDistance(String text1, String text2) {
+        return editDistance(text1, text2, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * 带上限的加权编辑距离，只计算Ukkonen带内的单元格，确定超出上限时提前结束
+     * @param text1 第一段文本
+     * @param text2 第二段文本
+     * @param maxDistance 距离上限
+     * @return 不超过maxDistance时返回精确距离，否则返回{@link Double#POSITIVE_INFINITY}
+     */
+    public double editDistance(String text1, String text2, double maxDistance) {
+        try (Scratch scratch = Scratch.acquire()) {
+            int[] codePoints1 = scratch.ints(Scratch.CODE_POINTS_1, text1.length());
+            int[] codePoints2 = scratch.ints(Scratch.CODE_POINTS_2, text2.length());
+            return editDistance(codePoints1, codePoints(text1, codePoints1),
+                                codePoints2, codePoints(text2, codePoints2), maxDistance, scratch);
+        }
+    }
+
+    private double editDistance(int[] codePoints1, int length1, int[] codePoints2, int length2,
+                                double maxDistance, Scratch scratch) {
+        // 较短的文本作为列，使滚动数组的长度为O(min(n,m))，代价函数对称，交换不影响结果
+        boolean swap = length1 < length2;
+        int[] rows = swap ? codePoints2 : codePoints1;
+        int[] columns = swap ? codePoints1 : codePoints2;
+        int n = swap ? length2 : length1;
+        int m = swap ? length1 : length2;
+
+        boolean bounded = maxDistance != Double.POSITIVE_INFINITY;
+        if (bounded) {
+            // 长度差至少需要相同数量的插入或删除
+            if ((n - m) * MIN_INDEL_COST > maxDistance) {
+                return Double.POSITIVE_INFINITY;
+            }
+            // 任意操作代价不低于MIN_EDIT_COST，位并行的单位代价距离给出廉价的下界
+            if (BitParallelLevenshtein.distance(rows, n, columns, m, scratch) * MIN_EDIT_COST > maxDistance) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+
+        // 偏离对角线band格的路径至少包含band次插入或删除
+        long band = bounded ? (long) Math.floor(maxDistance / MIN_INDEL_COST) : n;
+
+        return SimilarityKernels.get().editDistance(rows, n, columns, m, maxDistance, band, scratch);
+    }
+
+    static String normalizeText(String text) {
         return text.trim().replaceAll("\\s+", " ");
     }
 
-    private double getReplaceCost(char c1, char c2) {
-        if (isChinese(c1) && isChinese(c2)) {
+    /**
+     * 与{@link #normalizeText(String)}相同的规范化，结果以码点写入缓冲区
+     * @param codePoints 长度不小于text.length()的缓冲区
+     * @return 写入的码点数
+     */
+    static int normalizedCodePoints(String text, int[] codePoints) {
+        // String.trim去掉两端不大于空格的字符
+        int begin = 0;
+        int end = text.length();
+        while (begin < end && text.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        // 中间连续的\s（空格、\t、\n、\x0B、\f、\r）合并为一个空格
+        int n = 0;
+        boolean space = false;
+        for (int i = begin; i < end; ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint == ' ' || (codePoint >= '\t' && codePoint <= '\r')) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                codePoints[n++] = ' ';
+                space = false;
+            }
+            codePoints[n++] = codePoint;
+        }
+        return n;
+    }
+
+    /**
+     * 把文本的码点写入缓冲区
+     * @param codePoints 长度不小于text.length()的缓冲区
+     * @return 写入的码点数
+     */
+    static int codePoints(String text, int[] codePoints) {
+        int n = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            codePoints[n++] = codePoint;
+            i += Character.charCount(codePoint);
+        }
+        return n;
+    }
+
+    static double getReplaceCost(boolean chinese1, boolean chinese2) {
+        if (chinese1 && chinese2) {
             return 0.8; // 降低中文字符间的替换成本
         }
-        if (!isChinese(c1) && !isChinese(c2)) {
+        if (!chinese1 && !chinese2) {
             return 0.6; // 进一步降低非中文字符的替换成本
         }
         return 1.0; // 中文和非中文字符间的替换保持较高成本
     }
 
-    private double getDeleteCost(char c) {
-        return isChinese(c) ? 1.0 : 0.8;
+    static double getDeleteCost(boolean chinese) {
+        return chinese ? 1.0 : 0.8;
     }
 
-    private double getInsertCost(char c) {
-        return isChinese(c) ? 1.0 : 0.8;
+    static double getInsertCost(boolean chinese) {
+        return chinese ? 1.0 : 0.8;
     }
 
-    private boolean isChinese(char c) {
-        Character.UnicodeBlock ub = Character.UnicodeBlock.of(c);
-        return ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
-            || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
-            || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B;
+    static boolean allChinese(String text) {
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (!CjkTokenizer.isChinese(codePoint) && !Character.isWhitespace(codePoint)) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
     }
 
-    private boolean allChinese(String text) {
-        for (char c : text.toCharArray()) {
-            if (!isChinese(c) && !Character.isWhitespace(c)) {
+    static boolean allChinese(int[] codePoints, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!CjkTokenizer.isChinese(codePoints[i]) && !Character.isWhitespace(codePoints[i])) {
                 return false;
             }
         }
         return true;
     }
-}
\ No newline at end of file
+}
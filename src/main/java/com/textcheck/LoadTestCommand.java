@@ -0,0 +1,137 @@
+package com.textcheck;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * loadtest子命令：向相似度服务并发发送/similarity请求，统计客户端看到的吞吐量和延迟
+ * 请求在少量参考文本之间轮换，用于观察服务端的合并效果
+ */
+@Command(name = "loadtest", mixinStandardHelpOptions = true,
+        description = "对相似度服务进行本地压测，输出吞吐量和p50/p99延迟")
+public class LoadTestCommand implements Callable<Integer> {
+
+    @Option(names = "--url", description = "服务地址，默认${DEFAULT-VALUE}")
+    private String url = "http://127.0.0.1:8080";
+
+    @Option(names = {"-c", "--concurrency"}, description = "并发的客户端数，默认${DEFAULT-VALUE}")
+    private int concurrency = 8;
+
+    @Option(names = {"-n", "--requests"}, description = "请求总数，默认${DEFAULT-VALUE}")
+    private int requests = 2000;
+
+    @Option(names = "--references", description = "轮换使用的参考文本数，默认${DEFAULT-VALUE}")
+    private int references = 4;
+
+    @Option(names = "--length", description = "每段文本的字符数，默认${DEFAULT-VALUE}")
+    private int length = 200;
+
+    @Option(names = {"-a", "--algorithm"}, paramLabel = "algorithm", description = "相似度算法，默认cosine")
+    private String algorithm = "cosine";
+
+    @Option(names = "--seed", description = "生成文本的随机种子，默认${DEFAULT-VALUE}")
+    private long seed = 42;
+
+    @Override
+    public Integer call() throws Exception {
+        Random random = new Random(seed);
+        List<String> referenceTexts = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, references); i++) {
+            referenceTexts.add(randomText(random, length));
+        }
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String reference = referenceTexts.get(i % referenceTexts.size());
+            bodies.add("{\"text1\":" + Json.quote(reference)
+                    + ",\"text2\":" + Json.quote(mutate(random, reference))
+                    + ",\"algorithm\":" + Json.quote(algorithm) + "}");
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI similarity = URI.create(url + "/similarity");
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        AtomicInteger next = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < concurrency; c++) {
+            clients.add(executor.submit(() -> {
+                for (int i = next.getAndIncrement(); i < bodies.size(); i = next.getAndIncrement()) {
+                    HttpRequest request = HttpRequest.newBuilder(similarity)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(bodies.get(i)))
+                            .build();
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                    } catch (IOException e) {
+                        errors.increment();
+                    }
+                    latency.record(System.nanoTime() - sent);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : clients) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("请求数: %d，错误: %d，耗时: %.2fs%n", latency.count(), errors.sum(), seconds);
+        System.out.printf("吞吐量: %.1f req/s%n", latency.count() / seconds);
+        System.out.printf("延迟: 平均 %.3fms，p50 %.3fms，p99 %.3fms，最大 %.3fms%n",
+                latency.mean() / 1e6, latency.percentile(0.50) / 1e6,
+                latency.percentile(0.99) / 1e6, latency.max() / 1e6);
+
+        HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(URI.create(url + "/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.println("服务端指标: " + metrics.body());
+        return errors.sum() == 0 ? 0 : 1;
+    }
+
+    /**
+     * 生成由常用汉字和标点组成的随机文本
+     */
+    private static String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(i % 20 == 19 ? '。' : (char) (0x4E00 + random.nextInt(2000)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 随机替换约十分之一的字符，得到与参考文本相似的候选文本
+     */
+    private static String mutate(Random random, String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length / 10; i++) {
+            chars[random.nextInt(chars.length)] = (char) (0x4E00 + random.nextInt(2000));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,201 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于MinHash签名分段的局部敏感哈希索引，用于大规模语料的近似重复查找
+ * 签名被切成bands段，每段rows个分量；任意一段完全相同的文档成为候选，
+ * Jaccard系数为s的文档对成为候选的概率为 1-(1-s^rows)^bands。
+ * 查询只访问与查询落入同一个桶的文档，不需要遍历整个语料。
+ * 建好索引后可以并发查询，add不是线程安全的
+ */
+public class LshIndex {
+
+    private final int bands;
+    private final int rows;
+    private final MinHash minHash;
+    private final JaccardSimilarity jaccard = new JaccardSimilarity();
+    /** 按文本添加和查询时构建profile使用的词典 */
+    private final TermDictionary dictionary = new TermDictionary();
+    private final List<Map<Long, List<Integer>>> buckets;
+    private final List<DocumentProfile> profiles = new ArrayList<>();
+    private final List<long[]> signatures = new ArrayList<>();
+
+    /**
+     * @param bands 分段数
+     * @param rows 每段的签名分量数
+     */
+    public LshIndex(int bands, int rows) {
+        this(bands, rows, 42L);
+    }
+
+    /**
+     * @param bands 分段数
+     * @param rows 每段的签名分量数
+     * @param seed MinHash随机种子
+     */
+    public LshIndex(int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("分段数和每段分量数必须大于0");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.minHash = new MinHash(bands * rows, seed);
+        this.buckets = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * 候选概率曲线最陡处对应的Jaccard系数(1/bands)^(1/rows)，此处的候选概率约为1-1/e
+     */
+    public double threshold() {
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    /**
+     * Jaccard系数为similarity的文档对成为候选的概率
+     */
+    public double candidateProbability(double similarity) {
+        return 1.0 - Math.pow(1.0 - Math.pow(similarity, rows), bands);
+    }
+
+    public MinHash minHash() {
+        return minHash;
+    }
+
+    /**
+     * 已索引的文档数
+     */
+    public int size() {
+        return profiles.size();
+    }
+
+    /**
+     * 按文本添加和查询时使用的词典，随索引一起回收
+     */
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 添加文档，使用索引的词典构建profile
+     * @param text 文本
+     * @return 文档编号，从0开始连续分配
+     */
+    public int add(String text) {
+        return add(DocumentProfile.of(text, dictionary));
+    }
+
+    /**
+     * 添加预处理过的文档
+     * @param profile 文档profile
+     * @return 文档编号，从0开始连续分配
+     */
+    public int add(DocumentProfile profile) {
+        int id = profiles.size();
+        long[] signature = minHash.signature(profile);
+        profiles.add(profile);
+        signatures.add(signature);
+        for (int b = 0; b < bands; b++) {
+            buckets.get(b).computeIfAbsent(bandKey(signature, b, rows), key -> new ArrayList<>()).add(id);
+        }
+        return id;
+    }
+
+    /**
+     * 查找与文本相似的文档，相似度为MinHash估计值
+     */
+    public List<ScoredDocument> findSimilar(String text, double threshold) {
+        return findSimilar(DocumentProfile.of(text, dictionary), threshold, false);
+    }
+
+    /**
+     * 查找与文档相似的文档，相似度为MinHash估计值
+     */
+    public List<ScoredDocument> findSimilar(DocumentProfile query, double threshold) {
+        return findSimilar(query, threshold, false);
+    }
+
+    /**
+     * 查找与文档相似的文档
+     * @param query 查询文档
+     * @param threshold 相似度阈值
+     * @param exactRerank 为true时用{@link JaccardSimilarity}对候选重新精确打分并按精确值过滤，
+     *                    否则返回标记集合Jaccard系数的MinHash估计值
+     * @return 按相似度降序排列的结果，下标为文档编号
+     */
+    public List<ScoredDocument> findSimilar(DocumentProfile query, double threshold, boolean exactRerank) {
+        long[] signature = minHash.signature(query);
+        List<ScoredDocument> results = new ArrayList<>();
+        for (int id : candidates(signature)) {
+            double score = exactRerank
+                    ? jaccard.calculateProfiles(query, profiles.get(id), threshold)
+                    : MinHash.estimate(signature, signatures.get(id));
+            if (score >= threshold) {
+                results.add(new ScoredDocument(id, score));
+            }
+        }
+
+        results.sort(Comparator.comparingDouble(ScoredDocument::score).reversed()
+                               .thenComparingInt(ScoredDocument::index));
+        return results;
+    }
+
+    /**
+     * 返回与文档至少有一段签名相同的候选文档编号，不做任何打分
+     * @param query 查询文档
+     * @return 升序排列的候选文档编号
+     */
+    public int[] candidates(DocumentProfile query) {
+        return candidates(minHash.signature(query));
+    }
+
+    /**
+     * 获取已索引的文档
+     * @param id 文档编号
+     * @return 文档profile
+     */
+    public DocumentProfile profile(int id) {
+        return profiles.get(id);
+    }
+
+    private int[] candidates(long[] signature) {
+        BitSet seen = new BitSet(profiles.size());
+        for (int b = 0; b < bands; b++) {
+            List<Integer> bucket = buckets.get(b).get(bandKey(signature, b, rows));
+            if (bucket != null) {
+                for (int id : bucket) {
+                    seen.set(id);
+                }
+            }
+        }
+        return seen.stream().toArray();
+    }
+
+    /**
+     * 在已索引的文档上统计MinHash估计误差
+     * @param sampleSize 参与统计的文档数上限，统计所有文档对，复杂度为平方级
+     */
+    public MinHashReport evaluate(int sampleSize) {
+        return minHash.evaluate(profiles.subList(0, Math.min(sampleSize, profiles.size())));
+    }
+
+    /**
+     * 签名第band段的哈希值，两个签名在该段完全相同时哈希值相同
+     */
+    static long bandKey(long[] signature, int band, int rows) {
+        long key = band;
+        int offset = band * rows;
+        for (int r = 0; r < rows; r++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[offset + r];
+        }
+        return key;
+    }
+}
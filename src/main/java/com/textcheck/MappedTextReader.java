@@ -0,0 +1,100 @@
+package com.textcheck;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的UTF-8文本流式读取工具
+ * 按固定大小的窗口映射文件并增量解码，解码结果逐块交给调用方，不会把整个文件拼成一个字符串
+ */
+public final class MappedTextReader {
+
+    /** 每次映射的窗口大小 */
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /** 解码缓冲区大小（字符数） */
+    private static final int CHAR_BUFFER_SIZE = 8192;
+
+    private MappedTextReader() {
+    }
+
+    /**
+     * 流式读取文件，将解码后的文本依次交给consumer
+     * @param file 文件路径
+     * @param consumer 文本块消费者
+     * @return 读取到的字符总数
+     */
+    public static long read(Path file, TextChunkConsumer consumer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        long total = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean endOfInput = false;
+
+            while (!endOfInput) {
+                long windowSize = Math.min(MAP_WINDOW_SIZE, size - position);
+                endOfInput = position + windowSize == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+                // 跳过UTF-8 BOM
+                if (position == 0 && hasBom(window)) {
+                    window.position(3);
+                }
+
+                // 窗口末尾不完整的多字节字符会留在window中，下一个窗口从该位置重新映射
+                CoderResult result;
+                do {
+                    result = decoder.decode(window, chars, endOfInput);
+                    total += drain(chars, consumer);
+                } while (result.isOverflow());
+
+                position += window.position();
+            }
+
+            while (decoder.flush(chars).isOverflow()) {
+                total += drain(chars, consumer);
+            }
+            total += drain(chars, consumer);
+        }
+        return total;
+    }
+
+    /**
+     * 将整个文件读取为字符串，仅用于必须随机访问全文的算法
+     */
+    public static String readFully(Path file) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        read(file, builder::append);
+        return builder.toString();
+    }
+
+    private static boolean hasBom(MappedByteBuffer buffer) {
+        return buffer.remaining() >= 3
+                && (buffer.get(0) & 0xFF) == 0xEF
+                && (buffer.get(1) & 0xFF) == 0xBB
+                && (buffer.get(2) & 0xFF) == 0xBF;
+    }
+
+    private static int drain(CharBuffer chars, TextChunkConsumer consumer) {
+        chars.flip();
+        int length = chars.remaining();
+        if (length > 0) {
+            consumer.accept(chars.array(), chars.arrayOffset() + chars.position(), length);
+        }
+        chars.clear();
+        return length;
+    }
+}
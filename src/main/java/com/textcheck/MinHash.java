@@ -0,0 +1,134 @@
+package com.textcheck;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MinHash签名生成器
+ * 基于与{@link JaccardSimilarity}相同的标记集合（单字、词和2-gram），
+ * 两个签名中相同分量所占的比例是标记集合Jaccard系数的无偏估计。实例不可变，线程安全
+ */
+public final class MinHash {
+
+    private final long[] seeds;
+
+    /**
+     * @param numHashes 签名长度，估计误差约为1/√numHashes
+     * @param seed 随机种子，比较的签名必须来自同一种子
+     */
+    public MinHash(int numHashes, long seed) {
+        if (numHashes <= 0) {
+            throw new IllegalArgumentException("签名长度必须大于0");
+        }
+        this.seeds = new long[numHashes];
+        long state = seed;
+        for (int i = 0; i < numHashes; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(state);
+        }
+    }
+
+    /**
+     * 签名长度
+     */
+    public int numHashes() {
+        return seeds.length;
+    }
+
+    /**
+     * 为文档生成签名
+     */
+    public long[] signature(DocumentProfile profile) {
+        return signature(profile.tokens());
+    }
+
+    /**
+     * 为标记集合生成签名，空集合的签名各分量均为Long.MAX_VALUE
+     */
+    public long[] signature(Set<String> tokens) {
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String token : tokens) {
+            long hash = hash(token);
+            for (int i = 0; i < seeds.length; i++) {
+                long value = mix(hash ^ seeds[i]);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 由两个签名估计Jaccard系数
+     */
+    public static double estimate(long[] signature1, long[] signature2) {
+        if (signature1.length != signature2.length) {
+            throw new IllegalArgumentException("签名长度不一致");
+        }
+        int equal = 0;
+        for (int i = 0; i < signature1.length; i++) {
+            if (signature1[i] == signature2[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / signature1.length;
+    }
+
+    /**
+     * 在样本的所有文档对上比较估计值与精确的标记集合Jaccard系数
+     * @param sample 样本文档
+     * @return 估计误差统计
+     */
+    public MinHashReport evaluate(List<DocumentProfile> sample) {
+        long[][] signatures = new long[sample.size()][];
+        for (int i = 0; i < sample.size(); i++) {
+            signatures[i] = signature(sample.get(i));
+        }
+
+        int pairs = 0;
+        double sumError = 0.0;
+        double sumSquaredError = 0.0;
+        double maxError = 0.0;
+        for (int i = 0; i < sample.size(); i++) {
+            for (int j = i + 1; j < sample.size(); j++) {
+                double exact = JaccardSimilarity.setJaccard(sample.get(i).tokens(), sample.get(j).tokens());
+                double error = Math.abs(estimate(signatures[i], signatures[j]) - exact);
+                pairs++;
+                sumError += error;
+                sumSquaredError += error * error;
+                maxError = Math.max(maxError, error);
+            }
+        }
+        if (pairs == 0) {
+            return new MinHashReport(seeds.length, 0, 0.0, 0.0, 0.0);
+        }
+        return new MinHashReport(seeds.length, pairs, sumError / pairs, Math.sqrt(sumSquaredError / pairs), maxError);
+    }
+
+    /**
+     * 字符串的64位FNV-1a哈希
+     */
+    private static long hash(String token) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * MurmurHash3的64位混合函数
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
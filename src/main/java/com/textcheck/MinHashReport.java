@@ -0,0 +1,51 @@
+package com.textcheck;
+
+/**
+ * MinHash估计值相对于精确Jaccard系数的误差统计
+ */
+public final class MinHashReport {
+
+    private final int numHashes;
+    private final int pairs;
+    private final double meanAbsoluteError;
+    private final double rootMeanSquareError;
+    private final double maxAbsoluteError;
+
+    MinHashReport(int numHashes, int pairs, double meanAbsoluteError,
+                  double rootMeanSquareError, double maxAbsoluteError) {
+        this.numHashes = numHashes;
+        this.pairs = pairs;
+        this.meanAbsoluteError = meanAbsoluteError;
+        this.rootMeanSquareError = rootMeanSquareError;
+        this.maxAbsoluteError = maxAbsoluteError;
+    }
+
+    public int numHashes() {
+        return numHashes;
+    }
+
+    /**
+     * 参与统计的文档对数
+     */
+    public int pairs() {
+        return pairs;
+    }
+
+    public double meanAbsoluteError() {
+        return meanAbsoluteError;
+    }
+
+    public double rootMeanSquareError() {
+        return rootMeanSquareError;
+    }
+
+    public double maxAbsoluteError() {
+        return maxAbsoluteError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("签名长度 %d，文档对 %d，平均绝对误差 %.4f，均方根误差 %.4f，最大误差 %.4f",
+                numHashes, pairs, meanAbsoluteError, rootMeanSquareError, maxAbsoluteError);
+    }
+}
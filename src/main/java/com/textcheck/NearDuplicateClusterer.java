@@ -0,0 +1,356 @@
+package com.textcheck;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * 把语料分成近似重复文档的簇：相似度不低于阈值的文档对连通的文档属于同一簇
+ * 分三步进行：
+ * 1. 并行为每个文档计算MinHash签名，只保留每段签名的32位哈希值，profile用完即丢弃；
+ * 2. 逐段把(哈希值, 文档编号)排序，哈希值相同的一串文档即为候选，并行地用计算器打分，
+ *    达到阈值的文档对在无锁并查集中合并。已在同一簇的文档对、在更早的段中落入同一个未超过窗口的桶的文档对
+ *    不再打分；超过窗口的大桶按文档分成若干片，由多个任务分别打分；
+ * 3. 按文档编号顺序流式输出簇的归属，簇编号为簇中最小的文档编号。
+ * 候选对不会被收集到内存中，内存占用约为 文档数×(4×bands+17) 字节，与文档长度和候选对数量无关，
+ * 100万文档、32段时约150MB。profile按需通过回调获取，可以来自{@link CorpusStore}或重新读取文件。
+ * 候选由标记集合的MinHash产生，与{@link JaccardSimilarity}的口径一致，也可以用{@link CosineSimilarity}打分
+ */
+public class NearDuplicateClusterer {
+
+    /** 同一个桶中每个文档最多与之前的多少个文档比较，限制空文档、模板文本等超大桶的开销 */
+    static final int WINDOW = 1024;
+
+    /** 计算签名时每个叶子任务处理的文档数 */
+    private static final int SIGNATURE_GRAIN = 64;
+
+    /** 打分时每个叶子任务扫描的排序数组长度 */
+    private static final int RUN_GRAIN = 4096;
+
+    /** 大桶拆分后每个任务负责的文档数，每个文档最多与窗口内的WINDOW个文档比较 */
+    private static final int RUN_SEGMENT = 256;
+
+    /**
+     * 段哈希值的最低位，计算签名时清零；桶超过窗口时给桶中文档在该段的哈希值置位，
+     * 表示桶中并非所有文档对都比较过，之后的段不能据此跳过
+     */
+    private static final int OVERSIZED = 1;
+
+    private final SimilarityCalculator calculator;
+    private final double threshold;
+    private final int bands;
+    private final int rows;
+    private final MinHash minHash;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param calculator 候选对的打分算法
+     * @param threshold 相似度阈值
+     * @param bands LSH分段数
+     * @param rows LSH每段的签名分量数
+     */
+    public NearDuplicateClusterer(SimilarityCalculator calculator, double threshold, int bands, int rows) {
+        this(calculator, threshold, bands, rows, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param calculator 候选对的打分算法
+     * @param threshold 相似度阈值
+     * @param bands LSH分段数
+     * @param rows LSH每段的签名分量数
+     * @param pool 执行签名计算、排序和打分的线程池
+     */
+    public NearDuplicateClusterer(SimilarityCalculator calculator, double threshold, int bands, int rows,
+                                  ForkJoinPool pool) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("分段数和每段分量数必须大于0");
+        }
+        this.calculator = calculator;
+        this.threshold = threshold;
+        this.bands = bands;
+        this.rows = rows;
+        this.minHash = new MinHash(bands * rows, 42L);
+        this.pool = pool;
+    }
+
+    /**
+     * 对语料聚类，只输出至少有两个文档的簇
+     * @param size 文档数，文档编号为[0, size)
+     * @param profiles 按编号获取profile，返回null的文档不参与聚类；会被多个线程并发调用，
+     *                 同一文档可能被调用多次
+     * @param sink 按文档编号升序接收(文档编号, 簇编号)
+     * @return 聚类统计
+     */
+    public Summary cluster(int size, IntFunction<DocumentProfile> profiles, AssignmentSink sink) throws IOException {
+        Linkage linkage = link(size, profiles);
+        DisjointSets sets = linkage.sets;
+        int[] sizes = new int[size];
+        for (int id = 0; id < size; id++) {
+            sizes[sets.find(id)]++;
+        }
+
+        int clusters = 0;
+        int clustered = 0;
+        for (int id = 0; id < size; id++) {
+            int root = sets.find(id);
+            if (sizes[root] < 2) {
+                continue;
+            }
+            if (root == id) {
+                clusters++;
+            }
+            clustered++;
+            sink.accept(id, root);
+        }
+        return new Summary(size, linkage.missing, clusters, clustered,
+                           linkage.comparisons.sum(), linkage.merges.sum());
+    }
+
+    /**
+     * 对内存中的语料聚类
+     * @param corpus 语料
+     * @return 每个文档所在簇的编号，即簇中最小的文档编号，没有近似重复的文档为其自身编号
+     */
+    public int[] cluster(List<DocumentProfile> corpus) {
+        DisjointSets sets = link(corpus.size(), corpus::get).sets;
+        int[] clusters = new int[corpus.size()];
+        for (int id = 0; id < clusters.length; id++) {
+            clusters[id] = sets.find(id);
+        }
+        return clusters;
+    }
+
+    private Linkage link(int size, IntFunction<DocumentProfile> profiles) {
+        if ((long) size * bands > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("文档数过多: " + size);
+        }
+
+        // 第一步：每个文档每段签名的哈希值，按文档连续存放，便于检查两个文档是否在更早的段相遇
+        int[] keys = new int[size * bands];
+        boolean[] missing = new boolean[size];
+        pool.invoke(new BatchSimilarityEngine.RangeAction(0, size, SIGNATURE_GRAIN, id -> {
+            DocumentProfile profile = profiles.apply(id);
+            if (profile == null) {
+                missing[id] = true;
+                return;
+            }
+            long[] signature = minHash.signature(profile);
+            for (int b = 0; b < bands; b++) {
+                long key = LshIndex.bandKey(signature, b, rows);
+                keys[id * bands + b] = (int) (key ^ (key >>> 32)) & ~OVERSIZED;
+            }
+        }));
+        int absent = 0;
+        for (boolean m : missing) {
+            if (m) {
+                absent++;
+            }
+        }
+        int present = size - absent;
+
+        // 第二步：逐段排序，高32位为哈希值，低32位为文档编号，同一桶内按编号升序
+        Linkage linkage = new Linkage(new DisjointSets(size), absent);
+        long[] entries = new long[present];
+        for (int b = 0; b < bands; b++) {
+            int n = 0;
+            for (int id = 0; id < size; id++) {
+                if (!missing[id]) {
+                    entries[n++] = ((long) keys[id * bands + b] << 32) | id;
+                }
+            }
+            // 在指定线程池中调用，parallelSort会使用当前线程池
+            pool.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(entries)));
+            int band = b;
+            pool.invoke(new BatchSimilarityEngine.RangeAction(0, present, RUN_GRAIN, i -> {
+                long key = entries[i] >> 32;
+                if ((i == 0 || entries[i - 1] >> 32 != key) && i + 1 < present && entries[i + 1] >> 32 == key) {
+                    compareBucket(entries, i, band, keys, profiles, linkage);
+                }
+            }));
+        }
+        return linkage;
+    }
+
+    /**
+     * 比较从start开始哈希值相同的一串文档
+     */
+    private void compareBucket(long[] entries, int start, int band, int[] keys,
+                               IntFunction<DocumentProfile> profiles, Linkage linkage) {
+        int end = runEnd(entries, start);
+        if (end - start <= WINDOW + 1) {
+            compareRun(entries, start, start, end, band, keys, profiles, linkage);
+            return;
+        }
+
+        // 当前段只读取更早段的哈希值，置位不影响本段的比较
+        for (int i = start; i < end; i++) {
+            keys[(int) entries[i] * bands + band] |= OVERSIZED;
+        }
+        int segments = (end - start + RUN_SEGMENT - 1) / RUN_SEGMENT;
+        new BatchSimilarityEngine.RangeAction(0, segments, 1, s -> {
+            int from = start + s * RUN_SEGMENT;
+            compareRun(entries, start, from, Math.min(from + RUN_SEGMENT, end), band, keys, profiles, linkage);
+        }).invoke();
+    }
+
+    private static int runEnd(long[] entries, int start) {
+        long key = entries[start] >> 32;
+        int end = start + 1;
+        while (end < entries.length && entries[end] >> 32 == key) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 把桶中[from, to)的每个文档与窗口内排在它之前的文档比较
+     * @param start 桶在排序数组中的起点
+     */
+    private void compareRun(long[] entries, int start, int from, int to, int band, int[] keys,
+                            IntFunction<DocumentProfile> profiles, Linkage linkage) {
+        int base = Math.max(start, from - WINDOW);
+        // 环形缓冲区保存窗口内已获取的profile，只在确实需要打分时才获取
+        DocumentProfile[] window = new DocumentProfile[Math.min(to - base, WINDOW + 1)];
+        for (int j = from; j < to; j++) {
+            window[(j - base) % window.length] = null;
+            int second = (int) entries[j];
+            for (int i = Math.max(start, j - WINDOW); i < j; i++) {
+                int first = (int) entries[i];
+                if (metEarlier(keys, first, second, band) || linkage.sets.connected(first, second)) {
+                    continue;
+                }
+                DocumentProfile profile1 = profile(window, i - base, first, profiles);
+                DocumentProfile profile2 = profile(window, j - base, second, profiles);
+                if (profile1 == null || profile2 == null) {
+                    continue;
+                }
+                linkage.comparisons.increment();
+                if (calculator.calculateProfiles(profile1, profile2, threshold) >= threshold
+                        && linkage.sets.union(first, second)) {
+                    linkage.merges.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 两个文档是否在更早的段中落入同一个未超过窗口的桶，此时已经比较过
+     */
+    private boolean metEarlier(int[] keys, int first, int second, int band) {
+        int offset1 = first * bands;
+        int offset2 = second * bands;
+        for (int b = 0; b < band; b++) {
+            int key = keys[offset1 + b];
+            if (key == keys[offset2 + b] && (key & OVERSIZED) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static DocumentProfile profile(DocumentProfile[] window, int position, int id,
+                                           IntFunction<DocumentProfile> profiles) {
+        int slot = position % window.length;
+        if (window[slot] == null) {
+            window[slot] = profiles.apply(id);
+        }
+        return window[slot];
+    }
+
+    /**
+     * 接收簇的归属
+     */
+    @FunctionalInterface
+    public interface AssignmentSink {
+        /**
+         * @param document 文档编号
+         * @param cluster 簇编号，即簇中最小的文档编号
+         */
+        void accept(int document, int cluster) throws IOException;
+    }
+
+    /**
+     * 聚类过程中的并查集和计数
+     */
+    private static final class Linkage {
+        final DisjointSets sets;
+        final int missing;
+        final LongAdder comparisons = new LongAdder();
+        final LongAdder merges = new LongAdder();
+
+        Linkage(DisjointSets sets, int missing) {
+            this.sets = sets;
+            this.missing = missing;
+        }
+    }
+
+    /**
+     * 聚类统计
+     */
+    public static final class Summary {
+        private final int documents;
+        private final int missing;
+        private final int clusters;
+        private final int clusteredDocuments;
+        private final long comparisons;
+        private final long merges;
+
+        Summary(int documents, int missing, int clusters, int clusteredDocuments, long comparisons, long merges) {
+            this.documents = documents;
+            this.missing = missing;
+            this.clusters = clusters;
+            this.clusteredDocuments = clusteredDocuments;
+            this.comparisons = comparisons;
+            this.merges = merges;
+        }
+
+        public int documents() {
+            return documents;
+        }
+
+        /**
+         * 无法获取profile而未参与聚类的文档数
+         */
+        public int missing() {
+            return missing;
+        }
+
+        /**
+         * 至少有两个文档的簇的个数
+         */
+        public int clusters() {
+            return clusters;
+        }
+
+        /**
+         * 属于这些簇的文档数
+         */
+        public int clusteredDocuments() {
+            return clusteredDocuments;
+        }
+
+        /**
+         * 实际打分的文档对数
+         */
+        public long comparisons() {
+            return comparisons;
+        }
+
+        /**
+         * 使两个簇合并的文档对数
+         */
+        public long merges() {
+            return merges;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("文档 %d 个（跳过 %d 个），近似重复簇 %d 个，包含文档 %d 个，打分 %d 次，合并 %d 次",
+                    documents, missing, clusters, clusteredDocuments, comparisons, merges);
+        }
+    }
+}
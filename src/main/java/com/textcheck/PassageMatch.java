@@ -0,0 +1,50 @@
+package com.textcheck;
+
+/**
+ * 指纹匹配得到的一段相同文字：查询文本与语料中某个文档的对应区间
+ * 位置为原文中的字符下标，区间左闭右开
+ */
+public final class PassageMatch {
+
+    private final int document;
+    private final int queryStart;
+    private final int queryEnd;
+    private final int documentStart;
+    private final int documentEnd;
+
+    PassageMatch(int document, int queryStart, int queryEnd, int documentStart, int documentEnd) {
+        this.document = document;
+        this.queryStart = queryStart;
+        this.queryEnd = queryEnd;
+        this.documentStart = documentStart;
+        this.documentEnd = documentEnd;
+    }
+
+    /**
+     * 语料中的文档编号
+     */
+    public int document() {
+        return document;
+    }
+
+    public int queryStart() {
+        return queryStart;
+    }
+
+    public int queryEnd() {
+        return queryEnd;
+    }
+
+    public int documentStart() {
+        return documentStart;
+    }
+
+    public int documentEnd() {
+        return documentEnd;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d [%d,%d) ~ [%d,%d)", document, queryStart, queryEnd, documentStart, documentEnd);
+    }
+}
@@ -0,0 +1,357 @@
+package com.textcheck;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量查重流水线：读取文件、分词、打分、输出四个阶段通过有界队列连接
+ * 读取阶段使用独立的I/O线程，使磁盘读取与分词打分重叠；阶段之间的队列有界，读入的原文不会堆积。
+ * 已处理文件的profile要留在索引中供后来的文件比较，这部分内存随文件数线性增长：算法不需要原文时
+ * 只保留词频向量和集合（{@link DocumentProfile#withoutText()}），编辑距离等需要原文的算法还要保留原文。
+ * exhaustive模式下与之前的所有文件逐一比较，不会遗漏；否则用MinHash/LSH生成候选对，只对候选打分，
+ * 候选按标记集合的Jaccard相似度产生，会漏掉一部分超过阈值的文件对，scan命令只在--lsh时使用这种方式。
+ * IDF加权的算法先为所有文件分词并统计文档频率，再开始打分，打分期间IDF不再变化，结果可以复现
+ */
+public class PlagiarismScanner {
+
+    private final SimilarityCalculator calculator;
+    private final double threshold;
+    private final int ioThreads;
+    private final int workerThreads;
+    private final int queueCapacity;
+    private final boolean exhaustive;
+    private final int bands;
+    private final int rows;
+
+    /**
+     * @param calculator 相似度算法
+     * @param threshold 输出的相似度阈值
+     * @param ioThreads 读取文件的线程数
+     * @param workerThreads 分词和打分阶段各自的线程数
+     * @param queueCapacity 阶段之间队列的容量
+     * @param exhaustive 为true时比较所有文件对，否则只比较LSH候选对，可能漏掉超过阈值的文件对
+     * @param bands LSH分段数
+     * @param rows LSH每段的签名分量数
+     */
+    public PlagiarismScanner(SimilarityCalculator calculator, double threshold, int ioThreads, int workerThreads,
+                             int queueCapacity, boolean exhaustive, int bands, int rows) {
+        this.calculator = calculator;
+        this.threshold = threshold;
+        this.ioThreads = ioThreads;
+        this.workerThreads = workerThreads;
+        this.queueCapacity = queueCapacity;
+        this.exhaustive = exhaustive;
+        this.bands = bands;
+        this.rows = rows;
+    }
+
+    /**
+     * 扫描文件并输出相似度不低于阈值的文件对
+     * @param files 待扫描的文件
+     * @param output 结果输出
+     * @return 输出的文件对数量
+     */
+    public long scan(List<Path> files, ScanResultWriter output) throws IOException, InterruptedException {
+        return scan(files, output, null);
+    }
+
+    /**
+     * 扫描文件并与索引中的语料比较，新文件扫描后追加到索引
+     * 索引中已有的文件不再读取，索引内文档之间的文件对不会重复输出
+     * @param files 待扫描的文件
+     * @param output 结果输出
+     * @param store 语料索引，为null时只在本次扫描的文件之间比较
+     * @return 输出的文件对数量
+     * @throws IllegalArgumentException 使用索引但算法需要原文时，索引不保存原文
+     */
+    public long scan(List<Path> files, ScanResultWriter output, CorpusStore store)
+            throws IOException, InterruptedException {
+        if (store != null && calculator.needsText()) {
+            throw new IllegalArgumentException("语料索引不保存原文，不能使用需要原文的算法");
+        }
+        BlockingQueue<Document> texts = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Document> profiles = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Match> matches = new ArrayBlockingQueue<>(queueCapacity);
+        WeightedCosineSimilarity weighted = weighted(calculator);
+        TermDictionary dictionary = store != null ? store.dictionary()
+                : weighted != null ? weighted.frequencies().dictionary() : new TermDictionary();
+        DocumentFrequencies frequencies = corpusFrequencies(weighted, dictionary);
+        CorpusIndex index = new CorpusIndex(scorer(weighted, frequencies));
+        // 统计文档频率时分词完的文档暂存在这里，全部分完后才交给打分阶段
+        List<Document> tokenized = frequencies != null ? Collections.synchronizedList(new ArrayList<>()) : null;
+        if (store != null) {
+            for (int id = 0; id < store.size(); id++) {
+                Document document = new Document(Paths.get(store.name(id)), null);
+                document.profile = store.profile(id);
+                if (frequencies != null) {
+                    frequencies.add(document.profile);
+                }
+                index.add(document);
+            }
+            List<Path> unindexed = new ArrayList<>();
+            for (Path file : files) {
+                if (!store.contains(file.toString())) {
+                    unindexed.add(file);
+                }
+            }
+            files = unindexed;
+        }
+        List<Path> pending = files;
+        TermDictionary profileDictionary = dictionary;
+        boolean keepText = calculator.needsText();
+
+        AtomicInteger nextFile = new AtomicInteger();
+        AtomicInteger activeReaders = new AtomicInteger(ioThreads);
+        AtomicInteger activeTokenizers = new AtomicInteger(workerThreads);
+        AtomicInteger activeScorers = new AtomicInteger(workerThreads);
+        AtomicLong written = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(ioThreads + 2 * workerThreads + 1);
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+        int tasks = 0;
+        try {
+            // 读取阶段
+            for (int t = 0; t < ioThreads; t++) {
+                stages.submit(stage(() -> {
+                    int i;
+                    while ((i = nextFile.getAndIncrement()) < pending.size()) {
+                        Path file = pending.get(i);
+                        try {
+                            texts.put(new Document(file, MappedTextReader.readFully(file)));
+                        } catch (IOException e) {
+                            System.err.println("读取文件失败，已跳过: " + file + " (" + e.getMessage() + ")");
+                        }
+                    }
+                }, null, activeReaders, texts, Document.END, workerThreads));
+                tasks++;
+            }
+
+            // 分词阶段
+            for (int t = 0; t < workerThreads; t++) {
+                stages.submit(stage(() -> {
+                    Document document;
+                    while ((document = texts.take()) != Document.END) {
+                        DocumentProfile profile = DocumentProfile.of(document.text, profileDictionary);
+                        document.profile = keepText ? profile : profile.withoutText();
+                        document.text = null;
+                        if (tokenized != null) {
+                            frequencies.add(document.profile);
+                            tokenized.add(document);
+                        } else {
+                            profiles.put(document);
+                        }
+                    }
+                }, () -> {
+                    if (tokenized != null) {
+                        for (Document document : tokenized) {
+                            profiles.put(document);
+                        }
+                    }
+                }, activeTokenizers, profiles, Document.END, workerThreads));
+                tasks++;
+            }
+
+            // 打分阶段
+            for (int t = 0; t < workerThreads; t++) {
+                stages.submit(stage(() -> {
+                    Document document;
+                    while ((document = profiles.take()) != Document.END) {
+                        for (Match match : index.addAndScore(document)) {
+                            matches.put(match);
+                        }
+                        if (store != null) {
+                            store.add(document.file.toString(), document.profile);
+                        }
+                    }
+                }, null, activeScorers, matches, Match.END, 1));
+                tasks++;
+            }
+
+            // 输出阶段
+            stages.submit(() -> {
+                Match match;
+                while ((match = matches.take()) != Match.END) {
+                    output.write(match.file1, match.file2, match.score);
+                    written.incrementAndGet();
+                }
+                output.flush();
+                return null;
+            });
+            tasks++;
+
+            // 按完成顺序等待，任一阶段失败时立即中断其余阶段，避免阻塞在已无人消费的队列上
+            for (int i = 0; i < tasks; i++) {
+                stages.take().get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return written.get();
+    }
+
+    /**
+     * 计算器本身或被{@link InstrumentedCalculator}包装的IDF加权余弦，其他算法返回null
+     */
+    private static WeightedCosineSimilarity weighted(SimilarityCalculator calculator) {
+        if (calculator instanceof InstrumentedCalculator) {
+            calculator = ((InstrumentedCalculator) calculator).delegate();
+        }
+        return calculator instanceof WeightedCosineSimilarity ? (WeightedCosineSimilarity) calculator : null;
+    }
+
+    /**
+     * IDF加权的余弦需要语料统计：返回扫描时要加入文档的文档频率表，其他算法返回null
+     * 计算器自带的表使用其他词典时，为本次扫描新建一个
+     */
+    private static DocumentFrequencies corpusFrequencies(WeightedCosineSimilarity weighted, TermDictionary dictionary) {
+        if (weighted == null) {
+            return null;
+        }
+        DocumentFrequencies frequencies = weighted.frequencies();
+        return frequencies.dictionary() == dictionary ? frequencies : new DocumentFrequencies(dictionary);
+    }
+
+    /**
+     * 使用本次扫描的文档频率表打分的计算器，原计算器带指标时新计算器记入同一份指标
+     */
+    private SimilarityCalculator scorer(WeightedCosineSimilarity weighted, DocumentFrequencies frequencies) {
+        if (frequencies == null || weighted.frequencies() == frequencies) {
+            return calculator;
+        }
+        SimilarityCalculator scorer = new WeightedCosineSimilarity(frequencies, weighted.weighting());
+        if (calculator instanceof InstrumentedCalculator) {
+            return new InstrumentedCalculator(scorer, ((InstrumentedCalculator) calculator).metrics());
+        }
+        return scorer;
+    }
+
+    /**
+     * 包装一个阶段的工作循环：最后一个结束的线程执行last（可以为null），再向下游队列放入结束标记
+     */
+    private static <T> Callable<Void> stage(StageBody body, StageBody last, AtomicInteger active,
+                                            BlockingQueue<T> downstream, T end, int downstreamWorkers) {
+        return () -> {
+            try {
+                body.run();
+            } finally {
+                if (active.decrementAndGet() == 0) {
+                    if (last != null) {
+                        last.run();
+                    }
+                    for (int i = 0; i < downstreamWorkers; i++) {
+                        downstream.put(end);
+                    }
+                }
+            }
+            return null;
+        };
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    /**
+     * 已处理文件的索引，新文件与之前的文件比较后加入索引
+     */
+    private final class CorpusIndex {
+        private final LshIndex lsh = new LshIndex(bands, rows);
+        private final List<Document> documents = new ArrayList<>();
+        private final SimilarityCalculator scorer;
+
+        CorpusIndex(SimilarityCalculator scorer) {
+            this.scorer = scorer;
+        }
+
+        /**
+         * 加入索引但不打分，用于预先载入已有语料
+         */
+        synchronized void add(Document document) {
+            if (!exhaustive) {
+                lsh.add(document.profile);
+            }
+            documents.add(document);
+        }
+
+        List<Match> addAndScore(Document document) {
+            int[] candidates;
+            synchronized (this) {
+                // 查询与加入在同一个临界区内完成，保证每一对文件恰好被后加入的一方比较一次
+                if (exhaustive) {
+                    candidates = new int[documents.size()];
+                    for (int i = 0; i < candidates.length; i++) {
+                        candidates[i] = i;
+                    }
+                } else {
+                    candidates = lsh.candidates(document.profile);
+                    lsh.add(document.profile);
+                }
+                documents.add(document);
+            }
+
+            List<Match> matches = new ArrayList<>();
+            for (int id : candidates) {
+                Document other;
+                synchronized (this) {
+                    other = documents.get(id);
+                }
+                double score = scorer.calculateProfiles(other.profile, document.profile, threshold);
+                if (score >= threshold) {
+                    matches.add(new Match(other.file, document.file, score));
+                }
+            }
+            return matches;
+        }
+    }
+
+    private static final class Document {
+        static final Document END = new Document(null, null);
+
+        final Path file;
+        String text;
+        DocumentProfile profile;
+
+        Document(Path file, String text) {
+            this.file = file;
+            this.text = text;
+        }
+    }
+
+    private static final class Match {
+        static final Match END = new Match(null, null, 0.0);
+
+        final Path file1;
+        final Path file2;
+        final double score;
+
+        Match(Path file1, Path file2, double score) {
+            this.file1 = file1;
+            this.file2 = file2;
+            this.score = score;
+        }
+    }
+}
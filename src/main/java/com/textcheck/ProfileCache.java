@@ -0,0 +1,415 @@
+package com.textcheck;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按内容哈希缓存文档profile的有界缓存，反复出现的文本只分词一次
+ * 键是文本的64位哈希，命中时再核对原文，哈希碰撞不会返回错误的结果。
+ * 容量按权重计算，默认每个条目权重为1，也可以按文本长度计权；超出容量时按LRU或LFU淘汰。
+ * 缓存分为多个段，每段各自加锁，可以在线程间共享。
+ * 缓存中的profile都使用同一个词典，因此可以直接互相比较。词典只增不减，淘汰条目并不能释放其中的词，
+ * 因此缓存自己的词典超过词数上限时换成新词典并清空缓存，长时间运行的进程中内存仍然有界；
+ * 需要成对比较的调用方用{@link #get(String, String)}取得同一个词典下的两个profile
+ */
+public final class ProfileCache {
+
+    /** 淘汰策略 */
+    public enum Policy {
+        /** 淘汰最久未访问的条目 */
+        LRU,
+        /** 淘汰访问次数最少的条目，次数相同时淘汰最早的 */
+        LFU
+    }
+
+    /** 按文本字符数计权 */
+    public static final ToLongFunction<DocumentProfile> BY_LENGTH = profile -> Math.max(1, profile.length());
+
+    private static final int MAX_SEGMENTS = 16;
+    /** 每段至少容纳的权重，容量很小时减少段数，避免每段只能放下零星几个条目 */
+    private static final long MIN_SEGMENT_WEIGHT = 64;
+    /** 按条目数限制容量时，每个条目允许的平均词数 */
+    private static final int TERMS_PER_ENTRY = 1024;
+    /** 词数上限的下限，容量很小时避免频繁更换词典 */
+    private static final int MIN_TERMS = 1 << 16;
+
+    private volatile TermDictionary dictionary;
+    /** 词典的词数上限，调用方提供的词典不更换，为Integer.MAX_VALUE */
+    private final int maximumTerms;
+    private final ToLongFunction<DocumentProfile> weigher;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 按条目数限制容量，使用缓存自己的词典，词典随缓存一起回收
+     * @param policy 淘汰策略
+     * @param maximumSize 最多缓存的条目数
+     */
+    public ProfileCache(Policy policy, int maximumSize) {
+        this(policy, maximumSize, profile -> 1,
+             (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_TERMS, (long) maximumSize * TERMS_PER_ENTRY)));
+    }
+
+    /**
+     * 使用缓存自己的词典，词数超过上限时换成新词典并清空缓存
+     * @param policy 淘汰策略
+     * @param maximumWeight 总权重上限
+     * @param weigher 条目权重，例如{@link #BY_LENGTH}
+     * @param maximumTerms 词典的词数上限
+     */
+    public ProfileCache(Policy policy, long maximumWeight, ToLongFunction<DocumentProfile> weigher, int maximumTerms) {
+        this(policy, maximumWeight, weigher, new TermDictionary(), maximumTerms);
+    }
+
+    /**
+     * @param policy 淘汰策略
+     * @param maximumWeight 总权重上限
+     * @param weigher 条目权重，例如{@link #BY_LENGTH}
+     * @param dictionary 构建profile使用的词典，由调用方持有，缓存不会更换
+     */
+    public ProfileCache(Policy policy, long maximumWeight, ToLongFunction<DocumentProfile> weigher,
+                        TermDictionary dictionary) {
+        this(policy, maximumWeight, weigher, dictionary, Integer.MAX_VALUE);
+    }
+
+    private ProfileCache(Policy policy, long maximumWeight, ToLongFunction<DocumentProfile> weigher,
+                         TermDictionary dictionary, int maximumTerms) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0");
+        }
+        if (maximumTerms <= 0) {
+            throw new IllegalArgumentException("词数上限必须大于0");
+        }
+        this.dictionary = dictionary;
+        this.maximumTerms = maximumTerms;
+        this.weigher = weigher;
+        int count = 1;
+        while (count < MAX_SEGMENTS && maximumWeight / (count * 2) >= MIN_SEGMENT_WEIGHT) {
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // 余数分给前面的段，各段容量之和等于总容量
+            long capacity = maximumWeight / count + (i < maximumWeight % count ? 1 : 0);
+            segments[i] = policy == Policy.LRU ? new LruSegment(capacity) : new LfuSegment(capacity);
+        }
+    }
+
+    /**
+     * 缓存中profile当前使用的词典，缓存自己的词典超过上限后会被更换
+     */
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 获取文本的profile，未命中时构建并放入缓存
+     * 分词在锁外进行，多个线程同时未命中同一文本时可能重复构建，但只有一份会留在缓存中
+     * @param text 文本
+     * @return 使用本缓存词典的profile
+     */
+    public DocumentProfile get(String text) {
+        TermDictionary current = dictionary;
+        long key = hash(text);
+        Segment segment = segments[(int) (key >>> 32) & (segments.length - 1)];
+        DocumentProfile profile = segment.get(key, text, current);
+        if (profile != null) {
+            hits.increment();
+            return profile;
+        }
+        misses.increment();
+        profile = DocumentProfile.of(text, current);
+        if (current.size() > maximumTerms) {
+            renew(current);
+        } else {
+            evictions.add(segment.put(key, profile, weigher.applyAsLong(profile)));
+        }
+        return profile;
+    }
+
+    /**
+     * 获取两段文本的profile，两者使用同一个词典，可以直接比较
+     * 两次获取之间词典被更换时重新获取
+     */
+    public DocumentProfile[] get(String text1, String text2) {
+        while (true) {
+            DocumentProfile profile1 = get(text1);
+            DocumentProfile profile2 = get(text2);
+            if (profile1.dictionary() == profile2.dictionary()) {
+                return new DocumentProfile[] {profile1, profile2};
+            }
+        }
+    }
+
+    /**
+     * 更换已超过上限的词典，旧词典随引用它的profile一起回收
+     */
+    private synchronized void renew(TermDictionary full) {
+        if (dictionary != full) {
+            return;
+        }
+        dictionary = new TermDictionary();
+        for (Segment segment : segments) {
+            evictions.add(segment.size());
+            segment.clear();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率，尚无访问时为0
+     */
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    /**
+     * 当前缓存的条目数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 当前缓存的总权重
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * 清空缓存，计数器不清零
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 文本的64位哈希：逐字符FNV-1a，再经过一次混合使高位分布均匀
+     */
+    static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Entry {
+        final long key;
+        final DocumentProfile profile;
+        final long weight;
+        int frequency = 1;
+
+        Entry(long key, DocumentProfile profile, long weight) {
+            this.key = key;
+            this.profile = profile;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 缓存段，所有方法在段的锁内执行
+     */
+    private abstract static class Segment {
+        final long capacity;
+        long weight;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * 更换词典前放入的条目与当前词典不一致，按未命中处理，之后会被淘汰
+         */
+        synchronized DocumentProfile get(long key, String text, TermDictionary dictionary) {
+            Entry entry = find(key);
+            if (entry == null || entry.profile.dictionary() != dictionary || !entry.profile.text().equals(text)) {
+                return null;
+            }
+            touch(entry);
+            return entry.profile;
+        }
+
+        /**
+         * 放入条目并淘汰到容量以内，返回淘汰的条目数
+         * 已有同键条目时保留原条目；单个条目超过段容量时不缓存
+         */
+        synchronized int put(long key, DocumentProfile profile, long entryWeight) {
+            if (entryWeight > capacity || find(key) != null) {
+                return 0;
+            }
+            int evicted = 0;
+            while (weight + entryWeight > capacity) {
+                weight -= evict().weight;
+                evicted++;
+            }
+            insert(new Entry(key, profile, entryWeight));
+            weight += entryWeight;
+            return evicted;
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+
+        synchronized int size() {
+            return count();
+        }
+
+        synchronized void clear() {
+            removeAll();
+            weight = 0;
+        }
+
+        abstract Entry find(long key);
+
+        abstract void touch(Entry entry);
+
+        abstract void insert(Entry entry);
+
+        abstract Entry evict();
+
+        abstract int count();
+
+        abstract void removeAll();
+    }
+
+    /**
+     * 按访问顺序排列的LinkedHashMap，最久未访问的条目在最前面
+     */
+    private static final class LruSegment extends Segment {
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        LruSegment(long capacity) {
+            super(capacity);
+        }
+
+        @Override
+        Entry find(long key) {
+            return entries.get(key);
+        }
+
+        @Override
+        void touch(Entry entry) {
+            // LinkedHashMap.get已调整访问顺序
+        }
+
+        @Override
+        void insert(Entry entry) {
+            entries.put(entry.key, entry);
+        }
+
+        @Override
+        Entry evict() {
+            Iterator<Entry> eldest = entries.values().iterator();
+            Entry entry = eldest.next();
+            eldest.remove();
+            return entry;
+        }
+
+        @Override
+        int count() {
+            return entries.size();
+        }
+
+        @Override
+        void removeAll() {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 按访问次数分桶，每个桶内按进入桶的先后排列
+     */
+    private static final class LfuSegment extends Segment {
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final TreeMap<Integer, LinkedHashSet<Entry>> buckets = new TreeMap<>();
+
+        LfuSegment(long capacity) {
+            super(capacity);
+        }
+
+        @Override
+        Entry find(long key) {
+            return entries.get(key);
+        }
+
+        @Override
+        void touch(Entry entry) {
+            removeFromBucket(entry);
+            entry.frequency++;
+            buckets.computeIfAbsent(entry.frequency, f -> new LinkedHashSet<>()).add(entry);
+        }
+
+        @Override
+        void insert(Entry entry) {
+            entries.put(entry.key, entry);
+            buckets.computeIfAbsent(entry.frequency, f -> new LinkedHashSet<>()).add(entry);
+        }
+
+        @Override
+        Entry evict() {
+            LinkedHashSet<Entry> least = buckets.firstEntry().getValue();
+            Entry entry = least.iterator().next();
+            removeFromBucket(entry);
+            entries.remove(entry.key);
+            return entry;
+        }
+
+        @Override
+        int count() {
+            return entries.size();
+        }
+
+        @Override
+        void removeAll() {
+            entries.clear();
+            buckets.clear();
+        }
+
+        private void removeFromBucket(Entry entry) {
+            LinkedHashSet<Entry> bucket = buckets.get(entry.frequency);
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                buckets.remove(entry.frequency);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 将并发到达、参考文本相同的相似度请求合并为一批计算
+ * 第一个到达的请求作为批次的发起者，在时间窗口内等待其他请求加入，
+ * 然后只为参考文本构建一次profile，依次为批内所有候选文本打分并唤醒等待的请求
+ */
+final class ReferenceBatcher {
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ConcurrentHashMap<Key, Batch> open = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * @param windowMillis 发起者等待其他请求加入的毫秒数，不大于0时不合并
+     * @param maxBatchSize 每批最多的请求数，达到后立即计算
+     */
+    ReferenceBatcher(double windowMillis, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("每批请求数必须为正数");
+        }
+        this.windowNanos = (long) (windowMillis * 1_000_000L);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * 计算候选文本与参考文本的相似度，可能与其他线程的同类请求合并计算
+     * @param algorithm 算法名称，不同算法的请求不会合并
+     * @param calculator 该算法的计算器
+     * @param reference 参考文本
+     * @param candidate 候选文本
+     * @return 相似度
+     */
+    double score(String algorithm, SimilarityCalculator calculator, String reference, String candidate)
+            throws InterruptedException {
+        requests.increment();
+        if (windowNanos <= 0 || maxBatchSize == 1) {
+            batches.increment();
+            return calculator.calculate(reference, candidate);
+        }
+
+        Key key = new Key(algorithm, reference);
+        while (true) {
+            Batch[] created = new Batch[1];
+            Batch batch = open.compute(key, (k, existing) -> {
+                if (existing != null && !existing.closed) {
+                    return existing;
+                }
+                created[0] = new Batch();
+                return created[0];
+            });
+            int slot = batch.add(candidate);
+            if (slot < 0) {
+                // 发起者已经关闭了这一批，重新加入下一批
+                continue;
+            }
+            if (batch != created[0]) {
+                return batch.await(slot);
+            }
+            // 发起者被中断时也要完成这一批，否则加入的请求会一直等待
+            boolean interrupted = false;
+            try {
+                batch.awaitFull(windowNanos, maxBatchSize);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            List<String> candidates = batch.close();
+            open.remove(key, batch);
+            batches.increment();
+            batch.run(calculator, reference, candidates);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return batch.await(slot);
+        }
+    }
+
+    /**
+     * 已计算的批次数
+     */
+    long batchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * 经过合并器的请求数
+     */
+    long requestCount() {
+        return requests.sum();
+    }
+
+    private static final class Key {
+        private final String algorithm;
+        private final String reference;
+        private final int hash;
+
+        Key(String algorithm, String reference) {
+            this.algorithm = algorithm;
+            this.reference = reference;
+            this.hash = 31 * algorithm.hashCode() + reference.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && algorithm.equals(other.algorithm) && reference.equals(other.reference);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Batch {
+        private final List<String> candidates = new ArrayList<>();
+        private volatile boolean closed;
+        private boolean done;
+        private double[] scores;
+        private RuntimeException failure;
+
+        synchronized int add(String candidate) {
+            if (closed) {
+                return -1;
+            }
+            candidates.add(candidate);
+            notifyAll();
+            return candidates.size() - 1;
+        }
+
+        synchronized void awaitFull(long windowNanos, int maxBatchSize) throws InterruptedException {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining = windowNanos;
+            while (candidates.size() < maxBatchSize && remaining > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+
+        synchronized List<String> close() {
+            closed = true;
+            return new ArrayList<>(candidates);
+        }
+
+        /**
+         * 同一批共用一个临时词典，计算结束后随批次回收，不会让长期持有的词典无限增长
+         */
+        void run(SimilarityCalculator calculator, String reference, List<String> batch) {
+            double[] results = new double[batch.size()];
+            RuntimeException error = null;
+            try {
+                TermDictionary dictionary = new TermDictionary();
+                DocumentProfile referenceProfile = DocumentProfile.of(reference, dictionary);
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = calculator.calculateProfiles(referenceProfile, DocumentProfile.of(batch.get(i), dictionary));
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            synchronized (this) {
+                scores = results;
+                failure = error;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        synchronized double await(int slot) throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return scores[slot];
+        }
+    }
+}
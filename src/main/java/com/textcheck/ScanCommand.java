@@ -0,0 +1,135 @@
+package com.textcheck;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * scan子命令：扫描目录或文件列表，输出相似度超过阈值的文件对
+ */
+@Command(name = "scan", mixinStandardHelpOptions = true,
+        description = "批量扫描文件，以CSV或JSON Lines格式输出相似的文件对")
+public class ScanCommand implements Callable<Integer> {
+
+    @Parameters(arity = "0..*", paramLabel = "<path>", description = "待扫描的文件或目录，目录会递归遍历")
+    private List<Path> paths = new ArrayList<>();
+
+    @Option(names = "--file-list", paramLabel = "file", description = "从文件中读取待扫描的路径，每行一个")
+    private Path fileList;
+
+    @Option(names = {"-a", "--algorithm"}, paramLabel = "algorithm", description = "相似度算法，默认cosine")
+    private String algorithm = "cosine";
+
+    @Option(names = {"-t", "--threshold"}, description = "输出的相似度阈值，默认${DEFAULT-VALUE}")
+    private double threshold = 0.8;
+
+    @Option(names = "--format", description = "输出格式：${COMPLETION-CANDIDATES}，默认${DEFAULT-VALUE}")
+    private ScanResultWriter.Format format = ScanResultWriter.Format.CSV;
+
+    @Option(names = {"-o", "--output"}, paramLabel = "file", description = "输出文件，默认标准输出")
+    private Path output;
+
+    @Option(names = "--io-threads", description = "读取文件的线程数，默认${DEFAULT-VALUE}")
+    private int ioThreads = 4;
+
+    @Option(names = "--threads", description = "分词和打分的线程数，默认为CPU核数")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--queue-size", description = "阶段之间队列的容量，默认${DEFAULT-VALUE}")
+    private int queueSize = 1024;
+
+    @Option(names = "--lsh", description = "只比较MinHash/LSH选出的候选对。候选按Jaccard标记集合产生，"
+            + "会漏掉部分超过阈值的文件对，其他算法下漏掉的更多；默认逐一比较所有文件对")
+    private boolean lsh;
+
+    @Option(names = "--index", paramLabel = "file",
+            description = "语料索引文件：已收录的文件不再读取，新文件与语料比较后追加到索引")
+    private Path index;
+
+    @Option(names = "--bands", description = "--lsh的分段数，默认${DEFAULT-VALUE}")
+    private int bands = 32;
+
+    @Option(names = "--rows", description = "--lsh每段的签名分量数，默认${DEFAULT-VALUE}")
+    private int rows = 4;
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        List<Path> files = collectFiles(paths, fileList);
+        if (files.isEmpty()) {
+            System.err.println("没有找到待扫描的文件");
+            return 1;
+        }
+
+        CorpusStore store = index == null ? null : CorpusStore.open(index);
+        // tfidf/bm25的文档频率表由扫描器在读入语料时填充，与profile使用同一个词典
+        SimilarityCalculator calculator = SimilarityChecker.createCalculator(algorithm,
+                new DocumentFrequencies(store != null ? store.dictionary() : new TermDictionary()));
+        if (store != null && calculator.needsText()) {
+            System.err.println("语料索引不保存原文，--index只能与cosine、jaccard、tfidf、bm25一起使用");
+            store.close();
+            return 1;
+        }
+        if (lsh) {
+            System.err.println("注意：--lsh只比较候选对，可能漏掉相似度超过阈值的文件对");
+        }
+        PlagiarismScanner scanner = new PlagiarismScanner(calculator, threshold,
+                ioThreads, threads, queueSize, !lsh, bands, rows);
+        Writer writer = output == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        ScanResultWriter results = new ScanResultWriter(writer, format);
+        try {
+            long pairs = scanner.scan(files, results, store);
+            System.err.println("扫描文件 " + files.size() + " 个，相似文件对 " + pairs + " 个");
+        } finally {
+            if (store != null) {
+                store.close();
+            }
+            if (output == null) {
+                results.flush();
+            } else {
+                results.close();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 展开目录并合并文件列表中的路径
+     */
+    static List<Path> collectFiles(List<Path> paths, Path fileList) throws IOException {
+        List<Path> roots = new ArrayList<>(paths);
+        if (fileList != null) {
+            for (String line : Files.readAllLines(fileList, StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    roots.add(Path.of(line.trim()));
+                }
+            }
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> walk = Files.walk(root)) {
+                    files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(root);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,62 @@
+package com.textcheck;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 以CSV或JSON Lines格式逐行输出扫描结果，每个文件对写完立即可见，不在内存中累积
+ */
+public class ScanResultWriter implements Closeable {
+
+    /** 输出格式 */
+    public enum Format {
+        CSV,
+        JSONL
+    }
+
+    private final Writer writer;
+    private final Format format;
+
+    public ScanResultWriter(Writer writer, Format format) throws IOException {
+        this.writer = writer;
+        this.format = format;
+        if (format == Format.CSV) {
+            writer.write("file1,file2,score\n");
+        }
+    }
+
+    /**
+     * 输出一个文件对
+     */
+    public void write(Path file1, Path file2, double score) throws IOException {
+        String value = String.format(Locale.ROOT, "%.4f", score);
+        if (format == Format.CSV) {
+            writer.write(csv(file1.toString()) + ',' + csv(file2.toString()) + ',' + value + '\n');
+        } else {
+            writer.write("{\"file1\":" + Json.quote(file1.toString()) + ",\"file2\":" + Json.quote(file2.toString())
+                    + ",\"score\":" + value + "}\n");
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * 按CSV规则转义一个字段
+     */
+    static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
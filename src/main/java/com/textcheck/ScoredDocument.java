@@ -0,0 +1,34 @@
+package com.textcheck;
+
+/**
+ * 一对多比较的结果：语料中的文档下标及其相似度
+ */
+public final class ScoredDocument {
+
+    private final int index;
+    private final double score;
+
+    public ScoredDocument(int index, double score) {
+        this.index = index;
+        this.score = score;
+    }
+
+    /**
+     * 文档在语料中的下标
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * 相似度
+     */
+    public double score() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d: %.4f", index, score);
+    }
+}
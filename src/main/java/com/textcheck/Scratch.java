@@ -0,0 +1,244 @@
+package com.textcheck;
+
+/**
+ * 每个线程一份的临时缓冲区，供计算器在单次调用内复用
+ * 计算器实例本身不保存可变状态，码点数组、动态规划的滚动行、词表等临时数据都从当前线程的Scratch中取得，
+ * 稳态下一次比较不分配新对象。用法为
+ * <pre>
+ * try (Scratch scratch = Scratch.acquire()) {
+ *     int[] codePoints = scratch.ints(Scratch.CODE_POINTS_1, text.length());
+ *     ...
+ * }
+ * </pre>
+ * 同一线程上嵌套acquire（例如一个计算器在调用中再调用另一个计算器）时返回临时新建的实例，互不覆盖。
+ * 缓冲区只增不减，超过{@link #RETAIN_LIMIT}个元素的缓冲区在归还时丢弃，避免偶发的超长文本长期占用内存
+ */
+final class Scratch implements AutoCloseable {
+
+    /** 归还时保留的单个缓冲区的最大元素数 */
+    static final int RETAIN_LIMIT = 1 << 20;
+
+    // int缓冲区
+    /** 第一段文本的码点 */
+    static final int CODE_POINTS_1 = 0;
+    /** 第二段文本的码点 */
+    static final int CODE_POINTS_2 = 1;
+    /** 位并行编辑距离：排序后的模式串，用于统计不同码点数 */
+    static final int PATTERN_SORTED = 2;
+    /** 位并行编辑距离：码点表的键 */
+    static final int PATTERN_KEYS = 3;
+    /** 位并行编辑距离：每个码点的非零块在块表中的起点 */
+    static final int PATTERN_STARTS = 4;
+    /** 位并行编辑距离：非零块的块号 */
+    static final int PATTERN_BLOCKS = 5;
+    /** 位并行编辑距离：构建块表时每个码点的上一个块号及写入位置 */
+    static final int PATTERN_CURSOR = 6;
+    private static final int INT_SLOTS = 7;
+
+    // double缓冲区
+    /** 编辑距离：上一行 */
+    static final int PREVIOUS_ROW = 0;
+    /** 编辑距离：当前行 */
+    static final int CURRENT_ROW = 1;
+    /** 编辑距离：每列的插入代价 */
+    static final int INSERT_COSTS = 2;
+    /** 编辑距离：每行的删除代价 */
+    static final int DELETE_COSTS = 3;
+    /** Vector API内核：列是否为中文字符（1.0/0.0） */
+    static final int COLUMN_CHINESE = 4;
+    /** Vector API内核：行是否为中文字符（1.0/0.0） */
+    static final int ROW_CHINESE = 5;
+    /** Vector API内核：三条滚动的反对角线 */
+    static final int DIAGONAL_1 = 6;
+    static final int DIAGONAL_2 = 7;
+    static final int DIAGONAL_3 = 8;
+    /** Vector API内核：逆序存放的列码点 */
+    static final int REVERSED_COLUMNS = 9;
+    /** Vector API内核：行码点 */
+    static final int ROW_CODES = 10;
+    private static final int DOUBLE_SLOTS = 11;
+
+    // long缓冲区
+    /** 位并行编辑距离：非零块的匹配位向量 */
+    static final int PATTERN_BITS = 0;
+    /** 位并行编辑距离：垂直正差值 */
+    static final int VERTICAL_POSITIVE = 1;
+    /** 位并行编辑距离：垂直负差值 */
+    static final int VERTICAL_NEGATIVE = 2;
+    private static final int LONG_SLOTS = 3;
+
+    // boolean缓冲区
+    /** 编辑距离：列是否为中文字符 */
+    static final int COLUMN_FLAGS = 0;
+    /** 位并行编辑距离：码点表的占用标记 */
+    static final int PATTERN_USED = 1;
+    private static final int BOOLEAN_SLOTS = 2;
+
+    // 词表
+    /** 余弦相似度的词频 */
+    static final int TERMS = 0;
+    /** Jaccard相似度的标记集合 */
+    static final int TOKENS = 1;
+    /** Jaccard相似度的字符集合 */
+    static final int CHARACTERS = 2;
+    private static final int TABLE_SLOTS = 3;
+
+    private static final ThreadLocal<Scratch> LOCAL = ThreadLocal.withInitial(Scratch::new);
+
+    private final int[][] ints = new int[INT_SLOTS][];
+    private final double[][] doubles = new double[DOUBLE_SLOTS][];
+    private final long[][] longs = new long[LONG_SLOTS][];
+    private final boolean[][] booleans = new boolean[BOOLEAN_SLOTS][];
+    private final TermTable[] tables = new TermTable[TABLE_SLOTS];
+    private FusedScanner scanner;
+    /** 本次使用中是否有缓冲区超过保留上限 */
+    private boolean oversized;
+    private boolean inUse;
+    private final boolean shared;
+
+    private Scratch() {
+        this(true);
+    }
+
+    private Scratch(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * 取得当前线程的缓冲区，用完必须调用{@link #close()}归还
+     */
+    static Scratch acquire() {
+        Scratch scratch = LOCAL.get();
+        if (scratch.inUse) {
+            // 重入：外层调用仍在使用线程的缓冲区
+            Scratch nested = new Scratch(false);
+            nested.inUse = true;
+            return nested;
+        }
+        scratch.inUse = true;
+        return scratch;
+    }
+
+    /**
+     * 长度至少为length的int数组，内容为上次使用留下的值
+     */
+    int[] ints(int slot, int length) {
+        int[] buffer = ints[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new int[capacity(buffer == null ? 0 : buffer.length, length)];
+            ints[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * 长度至少为length的double数组，内容为上次使用留下的值
+     */
+    double[] doubles(int slot, int length) {
+        double[] buffer = doubles[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new double[capacity(buffer == null ? 0 : buffer.length, length)];
+            doubles[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * 长度至少为length的long数组，内容为上次使用留下的值
+     */
+    long[] longs(int slot, int length) {
+        long[] buffer = longs[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new long[capacity(buffer == null ? 0 : buffer.length, length)];
+            longs[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * 长度至少为length的boolean数组，内容为上次使用留下的值
+     */
+    boolean[] booleans(int slot, int length) {
+        boolean[] buffer = booleans[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new boolean[capacity(buffer == null ? 0 : buffer.length, length)];
+            booleans[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * 清空后的词表
+     */
+    TermTable table(int slot) {
+        TermTable table = tables[slot];
+        if (table == null) {
+            table = new TermTable();
+            tables[slot] = table;
+        }
+        table.clear();
+        return table;
+    }
+
+    /**
+     * 综合相似度使用的单遍扫描器
+     */
+    FusedScanner scanner() {
+        if (scanner == null) {
+            scanner = new FusedScanner();
+        }
+        return scanner;
+    }
+
+    /**
+     * 归还缓冲区，丢弃超过保留上限的部分
+     */
+    @Override
+    public void close() {
+        if (!shared) {
+            return;
+        }
+        if (oversized) {
+            trim();
+            oversized = false;
+        }
+        for (int i = 0; i < tables.length; i++) {
+            if (tables[i] != null && tables[i].oversized()) {
+                tables[i] = null;
+            }
+        }
+        inUse = false;
+    }
+
+    private int capacity(int current, int length) {
+        // 按1.5倍增长，避免长度缓慢增加时反复分配
+        int capacity = Math.max(length, Math.max(16, current + (current >> 1)));
+        if (capacity > RETAIN_LIMIT) {
+            oversized = true;
+        }
+        return capacity;
+    }
+
+    private void trim() {
+        for (int i = 0; i < ints.length; i++) {
+            if (ints[i] != null && ints[i].length > RETAIN_LIMIT) {
+                ints[i] = null;
+            }
+        }
+        for (int i = 0; i < doubles.length; i++) {
+            if (doubles[i] != null && doubles[i].length > RETAIN_LIMIT) {
+                doubles[i] = null;
+            }
+        }
+        for (int i = 0; i < longs.length; i++) {
+            if (longs[i] != null && longs[i].length > RETAIN_LIMIT) {
+                longs[i] = null;
+            }
+        }
+        for (int i = 0; i < booleans.length; i++) {
+            if (booleans[i] != null && booleans[i].length > RETAIN_LIMIT) {
+                booleans[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.textcheck;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * serve子命令：启动HTTP相似度服务，直到进程被终止
+ */
+@Command(name = "serve", mixinStandardHelpOptions = true,
+        description = "启动HTTP相似度服务，提供/similarity、/batch和/metrics接口")
+public class ServeCommand implements Callable<Integer> {
+
+    @Option(names = "--host", description = "监听地址，默认${DEFAULT-VALUE}")
+    private String host = "127.0.0.1";
+
+    @Option(names = {"-p", "--port"}, description = "监听端口，默认${DEFAULT-VALUE}")
+    private int port = 8080;
+
+    @Option(names = "--threads", description = "处理请求的线程数，默认为CPU核数的两倍")
+    private int threads = 2 * Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--batch-window-ms", description = "合并同一参考文本请求的等待毫秒数，0表示不合并，默认${DEFAULT-VALUE}")
+    private double batchWindowMillis = 1.0;
+
+    @Option(names = "--max-batch", description = "每批最多合并的请求数，默认${DEFAULT-VALUE}")
+    private int maxBatch = 64;
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        SimilarityServer server = new SimilarityServer(new InetSocketAddress(host, port), threads,
+                batchWindowMillis, maxBatch);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            stopped.countDown();
+        }));
+        server.start();
+        System.err.printf("相似度服务已启动：http://%s:%d%n", host, server.port());
+        stopped.await();
+        return 0;
+    }
+}
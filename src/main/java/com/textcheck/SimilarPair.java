@@ -0,0 +1,34 @@
+package com.textcheck;
+
+/**
+ * 两两比较的结果：语料中一对文档的下标及其相似度，first总是小于second
+ */
+public final class SimilarPair {
+
+    private final int first;
+    private final int second;
+    private final double score;
+
+    public SimilarPair(int first, int second, double score) {
+        this.first = first;
+        this.second = second;
+        this.score = score;
+    }
+
+    public int first() {
+        return first;
+    }
+
+    public int second() {
+        return second;
+    }
+
+    public double score() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d - #%d: %.4f", first, second, score);
+    }
+}
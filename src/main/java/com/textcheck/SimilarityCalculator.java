@@ -1,7 +1,12 @@
 package com.textcheck;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * 文本相似度计算器接口
+ * 并发约定：实现必须可以被任意多个线程同时调用同一个实例。计算器不在字段中保存单次调用的临时状态，
+ * 需要复用的缓冲区按线程持有（见{@code Scratch}），构造时传入的缓存、文档频率表等共享结构自身是线程安全的
  */
 public interface SimilarityCalculator {
     /**
@@ -11,4 +16,71 @@ public interface SimilarityCalculator {
      * @return 相似度（0-1之间的值，1表示完全相同，0表示完全不同）
      */
     double calculate(String text1, String text2);
-}
\ No newline at end of file
+
+    /**
+     * 计算相似度，确定结果低于阈值时可以提前结束
+     * 默认实现先完整计算再比较，能用廉价上界提前排除的实现应覆盖此方法
+     * @param text1 第一段文本
+     * @param text2 第二段文本
+     * @param minSimilarity 相似度下限，不大于0时等价于{@link #calculate(String, String)}
+     * @return 相似度不低于minSimilarity时返回精确值，否则返回0
+     */
+    default double calculate(String text1, String text2, double minSimilarity) {
+        double similarity = calculate(text1, text2);
+        return similarity >= minSimilarity ? similarity : 0.0;
+    }
+
+    /**
+     * 判断两段文本的相似度是否达到阈值
+     * @param text1 第一段文本
+     * @param text2 第二段文本
+     * @param minSimilarity 相似度阈值
+     * @return 相似度不低于minSimilarity时返回true
+     */
+    default boolean exceeds(String text1, String text2, double minSimilarity) {
+        return calculate(text1, text2, minSimilarity) >= minSimilarity;
+    }
+
+    /**
+     * 计算两个预处理文档的相似度，结果与按原文计算一致
+     * 默认实现退回到{@link #calculate(String, String)}，支持预处理的实现应覆盖此方法以避免重复分词
+     * @param profile1 第一个文档
+     * @param profile2 第二个文档
+     * @return 相似度（0-1之间的值）
+     */
+    default double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        return calculate(profile1.text(), profile2.text());
+    }
+
+    /**
+     * 带阈值的profile相似度，语义同{@link #calculate(String, String, double)}
+     * @param profile1 第一个文档
+     * @param profile2 第二个文档
+     * @param minSimilarity 相似度下限
+     * @return 相似度不低于minSimilarity时返回精确值，否则返回0
+     */
+    default double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2, double minSimilarity) {
+        double similarity = calculateProfiles(profile1, profile2);
+        return similarity >= minSimilarity ? similarity : 0.0;
+    }
+
+    /**
+     * {@link #calculateProfiles}是否需要profile中的原文
+     * 返回false的实现只使用词频向量、标记集合等预处理结果，可以比较不保留原文的profile（见{@link DocumentProfile#withoutText()}）
+     * @return 默认实现按原文计算，返回true
+     */
+    default boolean needsText() {
+        return true;
+    }
+
+    /**
+     * 计算两个UTF-8文本文件的相似度
+     * 默认实现将文件完整读入内存后调用{@link #calculate(String, String)}，支持流式处理的实现应覆盖此方法
+     * @param file1 第一个文件
+     * @param file2 第二个文件
+     * @return 相似度（0-1之间的值）
+     */
+    default double calculateFiles(Path file1, Path file2) throws IOException {
+        return calculate(MappedTextReader.readFully(file1), MappedTextReader.readFully(file2));
+    }
+}
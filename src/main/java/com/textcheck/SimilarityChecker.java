@@ -1,79 +1,333 @@
 package com.textcheck;
 
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
 /**
  * 文本相似度检查程序
  */
-public class SimilarityChecker {
+@Command(name = "textcheck", mixinStandardHelpOptions = true,
+        description = "计算两段文本或两个文件的相似度，scan子命令批量扫描目录，cluster子命令对语料做近似重复聚类，serve子命令启动HTTP服务")
+public class SimilarityChecker implements Callable<Integer> {
+
+    /** 可选的算法名称 */
+    static final List<String> ALGORITHMS = List.of("cosine", "levenshtein", "jaccard", "chunked", "tfidf", "bm25", "winnowing", "composite");
+
+    /** 需要语料统计IDF的算法，只能在有语料时使用 */
+    static final List<String> CORPUS_ALGORITHMS = List.of("tfidf", "bm25");
+
+    /** 子命令名称，见{@link #subcommand(String)} */
+    static final List<String> SUBCOMMANDS = List.of("scan", "cluster", "serve", "loadtest");
+
+    @Parameters(arity = "0..2", paramLabel = "<text>", description = "待比较的两段文本，使用-f时为文件路径")
+    private List<String> inputs = new ArrayList<>();
+
+    @Option(names = "-f", description = "比较两个文件")
+    private boolean isFile;
+
+    @Option(names = "--stdin",
+            description = "从标准输入逐行读取文本对，每行为 text1<TAB>text2 或 {\"text1\",\"text2\"} JSON对象，"
+                    + "每行输出一个相似度；与-f同用时每行为两个文件路径")
+    private boolean stdin;
+
+    @Option(names = {"-a", "--algorithm"}, paramLabel = "algorithm",
+            description = "cosine (默认) 余弦相似度，levenshtein 编辑距离，jaccard Jaccard相似度，chunked 长文档分块编辑距离，"
+                    + "tfidf/bm25 IDF加权余弦相似度，winnowing 指纹局部匹配，composite 三种相似度单遍扫描后等权平均")
+    private String algorithm = "cosine";
+
+    @Option(names = "--index", paramLabel = "file", description = "语料索引文件，tfidf/bm25按其中的文档统计IDF")
+    private Path index;
+
     public static void main(String[] args) {
-        if (args.length < 2) {
-            System.out.println("用法：");
-            System.out.println("直接文本比较：");
-            System.out.println("  <text1> <text2> [-a algorithm]");
-            System.out.println("文件比较：");
-            System.out.println("  -f <file1> <file2> [-a algorithm]");
-            System.out.println("算法选项：");
-            System.out.println("  -a cosine     (默认) 使用余弦相似度");
-            System.out.println("  -a levenshtein 使用编辑距离");
-            System.out.println("  -a jaccard    使用Jaccard相似度");
-            return;
-        }
-
-        String algorithm = "cosine";  // 默认使用余弦相似度
-        String text1 = "";
-        String text2 = "";
-        boolean isFile = false;
-
-        // 解析命令行参数
+        SimilarityChecker direct = parseDirect(args);
+        int exitCode;
+        if (direct == null) {
+            exitCode = commandLine(args).execute(args);
+        } else {
+            try {
+                exitCode = direct.call();
+            } catch (IOException e) {
+                System.err.println("读取输入失败: " + e.getMessage());
+                exitCode = 1;
+            }
+        }
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * 直接比较的常见形式（[-f] [-a algorithm] [--index file] [--stdin] 加两段文本）不经过picocli解析：
+     * 仅初始化picocli就要加载和解释执行数百个类，而这些类编译为旧版本字节码，无法放入AppCDS归档。
+     * 遇到其他任何参数时返回null，交给picocli按完整的规则处理
+     */
+    static SimilarityChecker parseDirect(String[] args) {
+        SimilarityChecker checker = new SimilarityChecker();
         for (int i = 0; i < args.length; i++) {
-            switch (args[i]) {
-                case "-f":
-                    isFile = true;
-                    if (i + 2 < args.length) {
-                        text1 = args[++i];
-                        text2 = args[++i];
-                    }
-                    break;
-                case "-a":
-                    if (i + 1 < args.length) {
-                        algorithm = args[++i].toLowerCase();
-                    }
-                    break;
-                default:
-                    if (text1.isEmpty()) {
-                        text1 = args[i];
-                    } else if (text2.isEmpty()) {
-                        text2 = args[i];
-                    }
-                    break;
+            String arg = args[i];
+            if (arg.equals("-f")) {
+                checker.isFile = true;
+            } else if (arg.equals("--stdin")) {
+                checker.stdin = true;
+            } else if ((arg.equals("-a") || arg.equals("--algorithm")) && i + 1 < args.length) {
+                checker.algorithm = args[++i];
+            } else if (arg.startsWith("--algorithm=")) {
+                checker.algorithm = arg.substring("--algorithm=".length());
+            } else if (arg.equals("--index") && i + 1 < args.length) {
+                checker.index = Paths.get(args[++i]);
+            } else if (arg.startsWith("--index=")) {
+                checker.index = Paths.get(arg.substring("--index=".length()));
+            } else if (!arg.startsWith("-") && !(i == 0 && SUBCOMMANDS.contains(arg)) && checker.inputs.size() < 2) {
+                checker.inputs.add(arg);
+            } else {
+                return null;
             }
         }
+        return checker;
+    }
 
-        // 选择相似度算法
-        SimilarityCalculator calculator;
-        switch (algorithm) {
-            case "levenshtein":
-                calculator = new LevenshteinDistance();
-                break;
-            case "jaccard":
-                calculator = new JaccardSimilarity();
+    /**
+     * 构建命令行解析器
+     * picocli注册子命令时会反射构建其完整模型并加载相关的类，占单次比较启动时间的一半以上，
+     * 因此只注册命令行中用到的子命令，请求帮助时才全部注册
+     */
+    static CommandLine commandLine(String[] args) {
+        CommandLine commandLine = new CommandLine(new SimilarityChecker())
+                .setCaseInsensitiveEnumValuesAllowed(true);
+        boolean help = false;
+        for (String arg : args) {
+            if (arg.equals("-h") || arg.equals("--help")) {
+                help = true;
                 break;
-            case "cosine":
+            }
+        }
+        for (String name : SUBCOMMANDS) {
+            if (help || (args.length > 0 && args[0].equals(name))) {
+                commandLine.addSubcommand(subcommand(name));
+            }
+        }
+        return commandLine;
+    }
+
+    private static Object subcommand(String name) {
+        switch (name) {
+            case "scan":
+                return new ScanCommand();
+            case "cluster":
+                return new ClusterCommand();
+            case "serve":
+                return new ServeCommand();
+            case "loadtest":
+                return new LoadTestCommand();
             default:
-                calculator = new CosineSimilarity();
-                break;
+                throw new IllegalArgumentException("未知的子命令: " + name);
         }
+    }
 
-        // 如果是文件比较，读取文件内容
-        if (isFile) {
-            // TODO: 实现文件读取逻辑
-            System.out.println("文件比较功能尚未实现");
-            return;
+    @Override
+    public Integer call() throws IOException {
+        SimilarityCalculator calculator;
+        try {
+            calculator = calculator();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
         }
+        if (stdin) {
+            return batch(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                         new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), calculator);
+        }
+        if (inputs.size() < 2) {
+            if (isFile) {
+                System.err.println("文件比较需要指定两个文件路径");
+                return 1;
+            }
+            printUsage();
+            return 0;
+        }
+
+        String text1 = inputs.get(0);
+        String text2 = inputs.get(1);
 
         // 计算相似度
-        double similarity = calculator.calculate(text1, text2);
-        
+        double similarity;
+        if (isFile) {
+            try {
+                similarity = calculator.calculateFiles(Paths.get(text1), Paths.get(text2));
+            } catch (IOException e) {
+                System.err.println("读取文件失败: " + e.getMessage());
+                return 1;
+            }
+        } else {
+            similarity = calculator.calculate(text1, text2);
+        }
+
         // 格式化输出，保留两位小数
         System.out.printf("文本相似度: %.2f%%\n", similarity * 100);
+        return 0;
+    }
+
+    /**
+     * 批量模式：在同一个JVM中逐行比较，每行输入输出一行相似度，格式错误的行输出NaN并在标准错误中说明
+     * 输入暂时没有更多数据时才刷新输出，既能批量写出，也能作为协同进程一问一答地使用
+     * @return 存在格式错误的行时返回1
+     */
+    int batch(BufferedReader in, Writer out) throws IOException {
+        return batch(in, out, calculator());
+    }
+
+    private int batch(BufferedReader in, Writer out, SimilarityCalculator calculator) throws IOException {
+        int errors = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            double similarity;
+            try {
+                String[] pair = pair(line);
+                similarity = isFile
+                        ? calculator.calculateFiles(Paths.get(pair[0]), Paths.get(pair[1]))
+                        : calculator.calculate(pair[0], pair[1]);
+            } catch (IllegalArgumentException | IOException e) {
+                System.err.println("第" + lineNumber + "行: " + e.getMessage());
+                similarity = Double.NaN;
+                errors++;
+            }
+            out.write(Double.isNaN(similarity) ? "NaN" : String.format(Locale.ROOT, "%.4f", similarity));
+            out.write('\n');
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return errors == 0 ? 0 : 1;
+    }
+
+    /**
+     * 解析一行输入中的两段文本：以{开头时按JSON对象读取text1和text2字段，否则以第一个制表符分隔
+     */
+    @SuppressWarnings("unchecked")
+    private static String[] pair(String line) {
+        if (line.startsWith("{")) {
+            Object value = Json.parse(line);
+            Object text1 = value instanceof Map ? ((Map<String, Object>) value).get("text1") : null;
+            Object text2 = value instanceof Map ? ((Map<String, Object>) value).get("text2") : null;
+            if (!(text1 instanceof String) || !(text2 instanceof String)) {
+                throw new IllegalArgumentException("JSON对象缺少字符串字段text1或text2");
+            }
+            return new String[] {(String) text1, (String) text2};
+        }
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            throw new IllegalArgumentException("缺少分隔两段文本的制表符");
+        }
+        return new String[] {line.substring(0, tab), line.substring(tab + 1)};
+    }
+
+    /**
+     * 按-a和--index选项创建计算器，只有需要语料的算法才读取索引
+     */
+    private SimilarityCalculator calculator() throws IOException {
+        DocumentFrequencies frequencies = null;
+        if (index != null && CORPUS_ALGORITHMS.contains(algorithm.toLowerCase(Locale.ROOT))) {
+            if (!Files.isRegularFile(index)) {
+                throw new IllegalArgumentException("语料索引不存在: " + index);
+            }
+            try (CorpusStore store = CorpusStore.open(index)) {
+                frequencies = DocumentFrequencies.of(store);
+            }
+        }
+        return createCalculator(algorithm, frequencies);
+    }
+
+    /**
+     * 按名称选择不需要语料的相似度算法，见{@link #createCalculator(String, DocumentFrequencies)}
+     */
+    static SimilarityCalculator createCalculator(String algorithm) {
+        return createCalculator(algorithm, null);
+    }
+
+    /**
+     * 按名称选择相似度算法，未知名称使用余弦相似度
+     * 设置系统属性textcheck.instrument=true时包装为{@link InstrumentedCalculator}，指标通过JMX和JFR导出
+     * @param frequencies tfidf/bm25使用的语料文档频率表，其他算法忽略
+     * @throws IllegalArgumentException 选择tfidf/bm25但没有提供语料时。空语料中所有词的IDF相同，结果没有意义
+     */
+    static SimilarityCalculator createCalculator(String algorithm, DocumentFrequencies frequencies) {
+        SimilarityCalculator calculator = newCalculator(algorithm, frequencies);
+        if (Boolean.getBoolean("textcheck.instrument")) {
+            return new InstrumentedCalculator(algorithm.toLowerCase(Locale.ROOT), calculator);
+        }
+        return calculator;
+    }
+
+    private static SimilarityCalculator newCalculator(String algorithm, DocumentFrequencies frequencies) {
+        String name = algorithm.toLowerCase(Locale.ROOT);
+        if (CORPUS_ALGORITHMS.contains(name) && frequencies == null) {
+            throw new IllegalArgumentException("算法" + name + "需要按语料统计IDF，请用--index指定语料索引");
+        }
+        switch (name) {
+            case "levenshtein":
+                return new LevenshteinDistance();
+            case "jaccard":
+                return new JaccardSimilarity();
+            case "chunked":
+                return new ChunkedLevenshtein();
+            case "tfidf":
+                return new WeightedCosineSimilarity(frequencies, WeightedCosineSimilarity.Weighting.TF_IDF);
+            case "bm25":
+                return new WeightedCosineSimilarity(frequencies, WeightedCosineSimilarity.Weighting.BM25);
+            case "winnowing":
+                return new WinnowingSimilarity();
+            case "composite":
+                return new CompositeSimilarity();
+            case "cosine":
+            default:
+                return new CosineSimilarity();
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("用法：");
+        System.out.println("直接文本比较：");
+        System.out.println("  <text1> <text2> [-a algorithm] [--index file]");
+        System.out.println("文件比较：");
+        System.out.println("  -f <file1> <file2> [-a algorithm] [--index file]");
+        System.out.println("批量比较（每行 text1<TAB>text2，每行输出一个相似度）：");
+        System.out.println("  --stdin [-f] [-a algorithm] [--index file] < pairs.tsv");
+        System.out.println("目录批量查重：");
+        System.out.println("  scan <dir|file>... [-a algorithm] [-t threshold] [--format csv|jsonl] [-o output]");
+        System.out.println("近似重复聚类：");
+        System.out.println("  cluster <dir|file>... | --index file [-a algorithm] [-t threshold] [--format csv|jsonl] [-o output]");
+        System.out.println("HTTP服务与压测：");
+        System.out.println("  serve [--port 8080] [--threads n] [--batch-window-ms 1] [--max-batch 64]");
+        System.out.println("  loadtest [--url http://127.0.0.1:8080] [--concurrency 8] [--requests 2000]");
+        System.out.println("算法选项：");
+        System.out.println("  -a cosine     (默认) 使用余弦相似度");
+        System.out.println("  -a levenshtein 使用编辑距离");
+        System.out.println("  -a jaccard    使用Jaccard相似度");
+        System.out.println("  -a chunked    使用分块编辑距离，适合长文档");
+        System.out.println("  -a tfidf      使用TF-IDF加权余弦相似度，按scan扫描的语料或--index指定的索引统计IDF");
+        System.out.println("  -a bm25       使用BM25加权余弦相似度，按scan扫描的语料或--index指定的索引统计IDF");
+        System.out.println("  -a winnowing  使用winnowing指纹，按相同段落的覆盖比例计算");
+        System.out.println("  -a composite  余弦、Jaccard、编辑距离三种相似度等权平均，文本只扫描一遍");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package com.textcheck;
+
+/**
+ * 相似度计算中稠密循环的计算内核，默认为标量实现
+ * 运行时存在jdk.incubator.vector模块（启动参数--add-modules jdk.incubator.vector）且打包了
+ * Vector API实现时，{@link #get()}返回SIMD版本，结果与标量实现逐位一致；
+ * 设置系统属性textcheck.kernels=scalar可强制使用标量实现
+ */
+class SimilarityKernels {
+
+    private static final SimilarityKernels SCALAR = new SimilarityKernels();
+    private static final SimilarityKernels INSTANCE = load();
+
+    /**
+     * 当前JVM可用的最快实现
+     */
+    static SimilarityKernels get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 标量实现，用于对照
+     */
+    static SimilarityKernels scalar() {
+        return SCALAR;
+    }
+
+    private static SimilarityKernels load() {
+        if ("scalar".equals(System.getProperty("textcheck.kernels"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return SCALAR;
+        }
+        try {
+            return (SimilarityKernels) Class.forName("com.textcheck.VectorSimilarityKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // 未打包Vector API实现，或运行时不支持
+            return SCALAR;
+        }
+    }
+
+    /**
+     * 实现名称
+     */
+    String name() {
+        return "scalar";
+    }
+
+    /**
+     * 带状加权编辑距离的动态规划，按行滚动
+     * @param rows 较长的码点序列
+     * @param columns 较短的码点序列
+     * @param maxDistance 距离上限，不限制时为正无穷
+     * @param band 只计算|i-j|不超过band的单元格
+     * @return 不超过maxDistance时返回精确距离，否则返回{@link Double#POSITIVE_INFINITY}
+     */
+    final double editDistance(int[] rows, int[] columns, double maxDistance, long band) {
+        try (Scratch scratch = Scratch.acquire()) {
+            return editDistance(rows, rows.length, columns, columns.length, maxDistance, band, scratch);
+        }
+    }
+
+    /**
+     * 同{@link #editDistance(int[], int[], double, long)}，码点序列为缓冲区的前n、m个元素，
+     * 滚动行等临时数组取自scratch
+     */
+    double editDistance(int[] rows, int n, int[] columns, int m, double maxDistance, long band, Scratch scratch) {
+        boolean[] columnChinese = scratch.booleans(Scratch.COLUMN_FLAGS, m);
+        double[] insertCosts = scratch.doubles(Scratch.INSERT_COSTS, m);
+        for (int j = 0; j < m; j++) {
+            columnChinese[j] = CjkTokenizer.isChinese(columns[j]);
+            insertCosts[j] = LevenshteinDistance.getInsertCost(columnChinese[j]);
+        }
+
+        double[] previous = scratch.doubles(Scratch.PREVIOUS_ROW, m + 1);
+        double[] current = scratch.doubles(Scratch.CURRENT_ROW, m + 1);
+
+        // 初始化第一行
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= band ? j : Double.POSITIVE_INFINITY;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            int c1 = rows[i - 1];
+            boolean chinese1 = CjkTokenizer.isChinese(c1);
+            double deleteCost = LevenshteinDistance.getDeleteCost(chinese1);
+
+            int from = (int) Math.max(1, i - band);
+            int to = (int) Math.min(m, i + band);
+
+            current[0] = i <= band ? i : Double.POSITIVE_INFINITY;
+            if (from > 1) {
+                current[from - 1] = Double.POSITIVE_INFINITY;
+            }
+            double rowMin = current[0];
+
+            // 计算编辑距离，考虑字符类型的权重
+            for (int j = from; j <= to; j++) {
+                double value;
+                if (c1 == columns[j - 1]) {
+                    // 字符完全相同
+                    value = previous[j - 1];
+                } else {
+                    // 取删除、插入、替换三种操作的最小值
+                    value = Math.min(
+                        Math.min(
+                            previous[j] + deleteCost,
+                            current[j - 1] + insertCosts[j - 1]
+                        ),
+                        previous[j - 1] + LevenshteinDistance.getReplaceCost(chinese1, columnChinese[j - 1])
+                    );
+                }
+                current[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            if (to < m) {
+                current[to + 1] = Double.POSITIVE_INFINITY;
+            }
+
+            // 路径上的代价单调不减，整行都超过上限时不可能再回到上限以内
+            if (rowMin > maxDistance) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        double distance = previous[m];
+        return distance > maxDistance ? Double.POSITIVE_INFINITY : distance;
+    }
+
+    /**
+     * 整数数组的平方和，用于计算词频向量的模长
+     */
+    long sumOfSquares(int[] values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += (long) value * value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,267 @@
+package com.textcheck;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于JDK内置HttpServer的相似度服务
+ * <ul>
+ *   <li>POST /similarity：{"text1","text2","algorithm"}，返回{"similarity"}，参考文本相同的并发请求会合并计算</li>
+ *   <li>POST /batch：{"reference","candidates":[...],"algorithm"}，返回与candidates对应的{"scores":[...]}</li>
+ *   <li>GET /metrics：各接口的请求数、错误数、p50/p99延迟和吞吐量</li>
+ * </ul>
+ * 请求在固定大小的线程池中处理，算法名称与命令行的-a选项相同；服务没有语料，不支持需要统计IDF的tfidf和bm25
+ */
+public class SimilarityServer {
+
+    /** 请求体的最大字节数 */
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ReferenceBatcher batcher;
+    private final Map<String, SimilarityCalculator> calculators = new ConcurrentHashMap<>();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param address 监听地址，端口为0时自动分配
+     * @param threads 处理请求的线程数
+     * @param batchWindowMillis 合并同一参考文本请求的等待毫秒数，不大于0时不合并
+     * @param maxBatchSize 每批最多合并的请求数
+     */
+    public SimilarityServer(InetSocketAddress address, int threads, double batchWindowMillis, int maxBatchSize)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须为正数");
+        }
+        this.batcher = new ReferenceBatcher(batchWindowMillis, maxBatchSize);
+        this.server = HttpServer.create(address, 0);
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "textcheck-http-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/similarity", exchange -> handle(exchange, "similarity", true, this::similarity));
+        server.createContext("/batch", exchange -> handle(exchange, "batch", true, this::batch));
+        server.createContext("/metrics", exchange -> handle(exchange, "metrics", false, body -> metrics()));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 停止服务，最多等待delaySeconds秒让正在处理的请求完成
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private String similarity(String body) throws InterruptedException {
+        Map<String, Object> request = object(body);
+        String text1 = text(request, "text1");
+        String text2 = text(request, "text2");
+        String algorithm = algorithm(request);
+        double similarity = batcher.score(algorithm, calculator(algorithm), text1, text2);
+        return "{\"similarity\":" + number(similarity) + "}";
+    }
+
+    private String batch(String body) {
+        Map<String, Object> request = object(body);
+        String reference = text(request, "reference");
+        Object candidates = request.get("candidates");
+        if (!(candidates instanceof List)) {
+            throw new IllegalArgumentException("缺少数组字段candidates");
+        }
+        SimilarityCalculator calculator = calculator(algorithm(request));
+
+        TermDictionary dictionary = new TermDictionary();
+        DocumentProfile referenceProfile = DocumentProfile.of(reference, dictionary);
+        StringBuilder response = new StringBuilder("{\"scores\":[");
+        List<?> list = (List<?>) candidates;
+        for (int i = 0; i < list.size(); i++) {
+            if (!(list.get(i) instanceof String)) {
+                throw new IllegalArgumentException("candidates[" + i + "]不是字符串");
+            }
+            if (i > 0) {
+                response.append(',');
+            }
+            DocumentProfile candidate = DocumentProfile.of((String) list.get(i), dictionary);
+            response.append(number(calculator.calculateProfiles(referenceProfile, candidate)));
+        }
+        return response.append("]}").toString();
+    }
+
+    private String metrics() {
+        double uptime = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder response = new StringBuilder("{\"uptimeSeconds\":").append(number(uptime));
+        response.append(",\"batches\":").append(batcher.batchCount());
+        response.append(",\"batchedRequests\":").append(batcher.requestCount());
+        response.append(",\"endpoints\":{");
+        boolean first = true;
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            if (!first) {
+                response.append(',');
+            }
+            first = false;
+            Endpoint endpoint = entry.getValue();
+            LatencyHistogram latency = endpoint.latency;
+            response.append(Json.quote(entry.getKey())).append(":{")
+                    .append("\"requests\":").append(latency.count())
+                    .append(",\"errors\":").append(endpoint.errors.sum())
+                    .append(",\"throughput\":").append(number(uptime > 0 ? latency.count() / uptime : 0.0))
+                    .append(",\"meanMillis\":").append(number(latency.mean() / 1e6))
+                    .append(",\"p50Millis\":").append(number(latency.percentile(0.50) / 1e6))
+                    .append(",\"p99Millis\":").append(number(latency.percentile(0.99) / 1e6))
+                    .append(",\"maxMillis\":").append(number(latency.max() / 1e6))
+                    .append('}');
+        }
+        return response.append("}}").toString();
+    }
+
+    private void handle(HttpExchange exchange, String name, boolean post, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        Endpoint endpoint = endpoints.computeIfAbsent(name, key -> new Endpoint());
+        int status = 200;
+        String response;
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals(post ? "POST" : "GET")) {
+                status = 405;
+                response = error("不支持的请求方法" + method);
+            } else {
+                response = handler.handle(post ? readBody(exchange.getRequestBody()) : null);
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = error(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 503;
+            response = error("服务正在停止");
+        } catch (RuntimeException e) {
+            status = 500;
+            response = error(e.toString());
+        }
+
+        // 在发送响应之前记录，客户端收到响应后读取的指标一定包含这次请求
+        if (status != 200) {
+            endpoint.errors.increment();
+        }
+        endpoint.latency.record(System.nanoTime() - start);
+
+        try {
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private SimilarityCalculator calculator(String algorithm) {
+        return calculators.computeIfAbsent(algorithm, SimilarityChecker::createCalculator);
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("请求体超过" + MAX_BODY_BYTES + "字节");
+            }
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(String body) {
+        Object value = Json.parse(body);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("请求体必须是JSON对象");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static String text(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("缺少字符串字段" + field);
+        }
+        return (String) value;
+    }
+
+    private static String algorithm(Map<String, Object> request) {
+        Object value = request.get("algorithm");
+        if (value == null) {
+            return "cosine";
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("algorithm必须是字符串");
+        }
+        String algorithm = ((String) value).toLowerCase(Locale.ROOT);
+        if (!SimilarityChecker.ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("未知的算法" + value + "，可选" + SimilarityChecker.ALGORITHMS);
+        }
+        if (SimilarityChecker.CORPUS_ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("算法" + algorithm + "需要按语料统计IDF，服务不支持");
+        }
+        return algorithm;
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(String.valueOf(message)) + "}";
+    }
+
+    private interface Handler {
+        String handle(String body) throws IOException, InterruptedException;
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+}
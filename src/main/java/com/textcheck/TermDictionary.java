@@ -0,0 +1,66 @@
+package com.textcheck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 词典，把词映射为从0开始的连续整数编号
+ * 词频向量只保存编号，避免在打分时对字符串做哈希和装箱。
+ * 词典只增不减，大小与词表规模相同，因此没有进程级的全局词典：每个词典由语料、缓存、索引或一批请求持有，
+ * 随持有者一起回收。实例线程安全
+ */
+public final class TermDictionary {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> terms = new ArrayList<>();
+
+    /**
+     * 获取词的编号，不存在时分配新编号
+     * @param term 词
+     * @return 编号
+     */
+    public int idOf(String term) {
+        Integer id = ids.get(term);
+        if (id != null) {
+            return id;
+        }
+        synchronized (terms) {
+            id = ids.get(term);
+            if (id == null) {
+                id = terms.size();
+                terms.add(term);
+                ids.put(term, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 查询词的编号，不会分配新编号
+     * @param term 词
+     * @return 编号，不存在时返回-1
+     */
+    public int lookup(String term) {
+        Integer id = ids.get(term);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 根据编号获取词
+     * @param id 编号
+     * @return 词
+     */
+    public String term(int id) {
+        synchronized (terms) {
+            return terms.get(id);
+        }
+    }
+
+    /**
+     * 已收录的词数
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,133 @@
+package com.textcheck;
+
+import java.util.Map;
+
+/**
+ * 增量构建余弦相似度所用的词频向量
+ * 标点和空白作为分隔符，中文字符单独成词，其余字符连续组成一个词。
+ * 可以分多次喂入文本，跨块的词会被正确拼接，内存占用只与词表大小有关。
+ * 已见过的词通过本地缓存直接得到编号，只有文档中第一次出现的词才会创建字符串
+ */
+class TermFrequencyCounter implements TextChunkConsumer, TokenSink {
+
+    private final TermDictionary dictionary;
+    /** 不加入词典时词典中没有的词的临时编号，为null时新词加入词典 */
+    private final Map<String, Integer> unknownTerms;
+    private final TermVector.Builder vector = new TermVector.Builder();
+    private final CjkTokenizer tokenizer = new CjkTokenizer(CjkTokenizer.Mode.TERMS, this);
+
+    /** 词内容到编号的开放寻址缓存，terms为null的槽位为空 */
+    private String[] terms = new String[64];
+    private int[] hashes = new int[64];
+    private int[] ids = new int[64];
+    private int cached;
+
+    TermFrequencyCounter(TermDictionary dictionary) {
+        this(dictionary, null);
+    }
+
+    /**
+     * 只查询词典、不加入新词，词典中没有的词从Integer.MAX_VALUE - 1起向下分配临时编号
+     * @param unknownTerms 临时编号表，两段文本共用同一个表时相同的新词得到相同的编号
+     */
+    TermFrequencyCounter(TermDictionary dictionary, Map<String, Integer> unknownTerms) {
+        this.dictionary = dictionary;
+        this.unknownTerms = unknownTerms;
+    }
+
+    @Override
+    public void accept(char[] buffer, int offset, int length) {
+        tokenizer.accept(buffer, offset, length);
+    }
+
+    /**
+     * 喂入一段完整文本
+     */
+    void accept(String text) {
+        tokenizer.accept(text);
+    }
+
+    /**
+     * 结束输入并返回词频向量
+     */
+    TermVector finish() {
+        tokenizer.finish();
+        return vector.build();
+    }
+
+    @Override
+    public void token(char[] buffer, int offset, int length) {
+        vector.add(idOf(buffer, offset, length));
+    }
+
+    private int idOf(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = terms.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (terms[slot] != null) {
+            if (hashes[slot] == hash && contentEquals(terms[slot], buffer, offset, length)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String term = new String(buffer, offset, length);
+        int id = unknownTerms == null ? dictionary.idOf(term) : lookup(term);
+        terms[slot] = term;
+        hashes[slot] = hash;
+        ids[slot] = id;
+        if (++cached * 2 > terms.length) {
+            grow();
+        }
+        return id;
+    }
+
+    private int lookup(String term) {
+        int id = dictionary.lookup(term);
+        if (id >= 0) {
+            return id;
+        }
+        Integer unknown = unknownTerms.get(term);
+        if (unknown == null) {
+            unknown = Integer.MAX_VALUE - 1 - unknownTerms.size();
+            unknownTerms.put(term, unknown);
+        }
+        return unknown;
+    }
+
+    private void grow() {
+        String[] oldTerms = terms;
+        int[] oldHashes = hashes;
+        int[] oldIds = ids;
+        terms = new String[oldTerms.length * 2];
+        hashes = new int[oldTerms.length * 2];
+        ids = new int[oldTerms.length * 2];
+        int mask = terms.length - 1;
+        for (int i = 0; i < oldTerms.length; i++) {
+            if (oldTerms[i] != null) {
+                int slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+                while (terms[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                terms[slot] = oldTerms[i];
+                hashes[slot] = oldHashes[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private static boolean contentEquals(String term, char[] buffer, int offset, int length) {
+        if (term.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (term.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
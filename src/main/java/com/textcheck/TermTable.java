@@ -0,0 +1,336 @@
+package com.textcheck;
+
+import java.util.Arrays;
+
+/**
+ * 单次比较使用的可复用词表，分别记录每个词在两段文本中的出现次数
+ * 词的字符保存在共享的char池中，按内容查找，不创建String；{@link #clear()}只清除用过的槽位，保留已分配的数组。
+ * 余弦相似度用出现次数计算点积和模长，Jaccard相似度只关心是否出现，
+ * 两侧不同词的个数、共有词的个数和词频平方和在计数时增量维护。实例不是线程安全的，由{@link Scratch}按线程持有
+ */
+final class TermTable implements TokenSink {
+
+    /** 分块喂入文本时每块的字符数，调用方在块之间检查阈值上界 */
+    static final int CHUNK = 1024;
+
+    /** 开放寻址表，保存词条下标加1，0表示空槽 */
+    private int[] slots = new int[64];
+
+    /** 词条按加入顺序保存 */
+    private int[] hashes = new int[32];
+    private int[] starts = new int[32];
+    private int[] lengths = new int[32];
+    private int[] slotOf = new int[32];
+    private int[] counts1 = new int[32];
+    private int[] counts2 = new int[32];
+    private int size;
+
+    private char[] pool = new char[256];
+    private int poolSize;
+
+    private int distinct1;
+    private int distinct2;
+    private int shared;
+    private long squares1;
+    private long squares2;
+
+    /** 当前喂入的是第几段文本（0或1） */
+    private int side;
+
+    private CjkTokenizer terms;
+    private CjkTokenizer words;
+    /** WORDS模式下同时收集字符集合，并加入相邻词组成的2-gram */
+    private TermTable characters;
+    private int previous = -1;
+    private char[] joined = new char[64];
+    private final char[] single = new char[2];
+
+    /**
+     * 清空所有词条
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[slotOf[i]] = 0;
+        }
+        size = 0;
+        poolSize = 0;
+        distinct1 = 0;
+        distinct2 = 0;
+        shared = 0;
+        squares1 = 0;
+        squares2 = 0;
+        characters = null;
+        previous = -1;
+        // 阈值检查可能在文本中途放弃，分词器里留有未结束的词
+        if (terms != null) {
+            terms.reset();
+        }
+        if (words != null) {
+            words.reset();
+        }
+    }
+
+    /**
+     * 按余弦相似度的规则（{@link CjkTokenizer.Mode#TERMS}）分词并计数
+     * @param side 0表示第一段文本，1表示第二段
+     */
+    void countTerms(String text, int side) {
+        beginTerms(side);
+        feed(text, 0, text.length());
+        finish();
+    }
+
+    /**
+     * 按Jaccard相似度的规则（{@link CjkTokenizer.Mode#WORDS}）收集单词和2-gram，
+     * 单词中的码点加入characters
+     * @param side 0表示第一段文本，1表示第二段
+     */
+    void collectWords(String text, int side, TermTable characters) {
+        beginWords(side, characters);
+        feed(text, 0, text.length());
+        finish();
+    }
+
+    /**
+     * 按{@link #beginTerms}或{@link #beginWords}设定的规则喂入文本中[from, to)的部分，
+     * 一段文本可以分几块喂入，跨块的词会被正确拼接，全部喂完后调用{@link #finish()}
+     */
+    void feed(String text, int from, int to) {
+        tokenizer().accept(text, from, to);
+    }
+
+    /**
+     * 结束当前文本，输出最后一个未结束的词
+     */
+    void finish() {
+        tokenizer().finish();
+    }
+
+    private CjkTokenizer tokenizer() {
+        if (characters == null) {
+            if (terms == null) {
+                terms = new CjkTokenizer(CjkTokenizer.Mode.TERMS, this);
+            }
+            return terms;
+        }
+        if (words == null) {
+            words = new CjkTokenizer(CjkTokenizer.Mode.WORDS, this);
+        }
+        return words;
+    }
+
+    /**
+     * 之后通过{@link #token}喂入的词按余弦相似度的规则计入第side段文本
+     */
+    void beginTerms(int side) {
+        this.side = side;
+        this.characters = null;
+    }
+
+    /**
+     * 之后通过{@link #token}喂入的单词按Jaccard相似度的规则计入第side段文本，
+     * 同时加入相邻单词的2-gram，单词中的码点加入characters
+     */
+    void beginWords(int side, TermTable characters) {
+        this.side = side;
+        this.characters = characters;
+        characters.side = side;
+        previous = -1;
+    }
+
+    @Override
+    public void token(char[] buffer, int offset, int length) {
+        int entry = add(buffer, offset, length);
+        if (characters == null) {
+            return;
+        }
+        for (int i = offset; i < offset + length; ) {
+            int codePoint = Character.codePointAt(buffer, i, offset + length);
+            characters.add(single, 0, Character.toChars(codePoint, single, 0));
+            i += Character.charCount(codePoint);
+        }
+        // 相邻词拼接为2-gram，先复制到独立的缓冲区，加入时char池可能扩容
+        if (previous >= 0) {
+            int previousLength = lengths[previous];
+            int total = previousLength + length;
+            if (total > joined.length) {
+                joined = new char[Math.max(total, joined.length * 2)];
+            }
+            System.arraycopy(pool, starts[previous], joined, 0, previousLength);
+            System.arraycopy(buffer, offset, joined, previousLength, length);
+            add(joined, 0, total);
+        }
+        previous = entry;
+    }
+
+    /**
+     * 第一段文本中不同词的个数
+     */
+    int distinct1() {
+        return distinct1;
+    }
+
+    /**
+     * 第二段文本中不同词的个数
+     */
+    int distinct2() {
+        return distinct2;
+    }
+
+    /**
+     * 两段文本共有的不同词的个数
+     */
+    int shared() {
+        return shared;
+    }
+
+    /**
+     * 两段文本词频向量的点积
+     */
+    long dot() {
+        long dot = 0;
+        for (int i = 0; i < size; i++) {
+            dot += (long) counts1[i] * counts2[i];
+        }
+        return dot;
+    }
+
+    /**
+     * 带下限的点积，与{@link TermVector#dot(TermVector, double)}相同：遍历词条时维护两侧尚未访问部分的平方和，
+     * 已得到的点积加上剩余部分的Cauchy-Schwarz上界低于minDot时提前结束
+     * @param minDot 点积下限，不大于0时等价于{@link #dot()}
+     * @return 精确点积，确定低于minDot时返回-1
+     */
+    long dot(double minDot) {
+        if (minDot <= 0.0) {
+            return dot();
+        }
+        double remaining1 = squares1;
+        double remaining2 = squares2;
+        long dot = 0;
+        for (int i = 0; i < size; i++) {
+            long count1 = counts1[i];
+            long count2 = counts2[i];
+            dot += count1 * count2;
+            remaining1 -= count1 * count1;
+            remaining2 -= count2 * count2;
+            // 每隔若干个词条检查一次上界，摊薄开方的开销
+            if ((i & 15) == 15
+                    && dot + Math.sqrt(Math.max(0.0, remaining1) * Math.max(0.0, remaining2)) < minDot) {
+                return -1;
+            }
+        }
+        return dot < minDot ? -1 : dot;
+    }
+
+    /**
+     * 一段文本词频的平方和，计数时增量维护
+     */
+    long sumOfSquares(int side) {
+        return side == 0 ? squares1 : squares2;
+    }
+
+    /**
+     * 是否有数组超过{@link Scratch#RETAIN_LIMIT}，此时不应继续保留
+     */
+    boolean oversized() {
+        return slots.length > Scratch.RETAIN_LIMIT || pool.length > Scratch.RETAIN_LIMIT;
+    }
+
+    private int add(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = slots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        int entry;
+        while (true) {
+            int stored = slots[slot];
+            if (stored == 0) {
+                entry = insert(slot, hash, buffer, offset, length);
+                break;
+            }
+            if (hashes[stored - 1] == hash && contentEquals(stored - 1, buffer, offset, length)) {
+                entry = stored - 1;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (side == 0) {
+            squares1 += 2L * counts1[entry] + 1;
+            if (counts1[entry]++ == 0) {
+                distinct1++;
+                if (counts2[entry] > 0) {
+                    shared++;
+                }
+            }
+        } else {
+            squares2 += 2L * counts2[entry] + 1;
+            if (counts2[entry]++ == 0) {
+                distinct2++;
+                if (counts1[entry] > 0) {
+                    shared++;
+                }
+            }
+        }
+        return entry;
+    }
+
+    private int insert(int slot, int hash, char[] buffer, int offset, int length) {
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            slotOf = Arrays.copyOf(slotOf, capacity);
+            counts1 = Arrays.copyOf(counts1, capacity);
+            counts2 = Arrays.copyOf(counts2, capacity);
+        }
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length * 2));
+        }
+        int entry = size++;
+        System.arraycopy(buffer, offset, pool, poolSize, length);
+        hashes[entry] = hash;
+        starts[entry] = poolSize;
+        lengths[entry] = length;
+        slotOf[entry] = slot;
+        counts1[entry] = 0;
+        counts2[entry] = 0;
+        poolSize += length;
+        slots[slot] = entry + 1;
+        if (size * 2 > slots.length) {
+            grow();
+        }
+        return entry;
+    }
+
+    private void grow() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int hash = hashes[entry];
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+            slotOf[entry] = slot;
+        }
+    }
+
+    private boolean contentEquals(int entry, char[] buffer, int offset, int length) {
+        if (lengths[entry] != length) {
+            return false;
+        }
+        int start = starts[entry];
+        for (int i = 0; i < length; i++) {
+            if (pool[start + i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
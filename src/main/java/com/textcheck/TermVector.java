@@ -0,0 +1,219 @@
+package com.textcheck;
+
+import java.util.Arrays;
+
+/**
+ * 稀疏词频向量，按词编号升序保存编号和词频，并预先计算模长
+ * 两个向量的点积通过归并完成，不需要构造词的并集。实例不可变，只缓存可以重新计算的加权模长
+ */
+public final class TermVector {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] ids;
+    private final int[] counts;
+    private final double norm;
+    /** {@link WeightedCosineSimilarity}在某一份语料统计下的加权模长，统计变化后重新计算 */
+    private volatile WeightedCosineSimilarity.Norm weightedNorm;
+
+    TermVector(int[] ids, int[] counts) {
+        this.ids = ids;
+        this.counts = counts;
+        this.norm = Math.sqrt(SimilarityKernels.get().sumOfSquares(counts));
+    }
+
+    /**
+     * 使用已知的模长构造，供从索引文件加载时使用
+     */
+    TermVector(int[] ids, int[] counts, double norm) {
+        this.ids = ids;
+        this.counts = counts;
+        this.norm = norm;
+    }
+
+    /**
+     * 不同词的个数
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    /**
+     * 第i个非零分量的词编号
+     */
+    public int id(int i) {
+        return ids[i];
+    }
+
+    /**
+     * 第i个非零分量的词频
+     */
+    public int count(int i) {
+        return counts[i];
+    }
+
+    /**
+     * 向量模长
+     */
+    public double norm() {
+        return norm;
+    }
+
+    WeightedCosineSimilarity.Norm weightedNorm() {
+        return weightedNorm;
+    }
+
+    void weightedNorm(WeightedCosineSimilarity.Norm norm) {
+        weightedNorm = norm;
+    }
+
+    /**
+     * 二分查找词编号对应的词频
+     * @return 词频，不存在时返回0
+     */
+    int countOf(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? counts[index] : 0;
+    }
+
+    /**
+     * 通过有序归并计算点积
+     */
+    public long dot(TermVector other) {
+        int[] ids1 = ids;
+        int[] ids2 = other.ids;
+        int i = 0;
+        int j = 0;
+        long dot = 0;
+        while (i < ids1.length && j < ids2.length) {
+            int id1 = ids1[i];
+            int id2 = ids2[j];
+            if (id1 == id2) {
+                dot += (long) counts[i++] * other.counts[j++];
+            } else if (id1 < id2) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return dot;
+    }
+
+    /**
+     * 带下限的点积：归并时维护两个向量尚未访问部分的平方和，
+     * 已得到的点积加上剩余部分的Cauchy-Schwarz上界低于minDot时提前结束
+     * @param other 另一个向量
+     * @param minDot 点积下限，不大于0时等价于{@link #dot(TermVector)}
+     * @return 精确点积，确定低于minDot时返回-1
+     */
+    long dot(TermVector other, double minDot) {
+        if (minDot <= 0.0) {
+            return dot(other);
+        }
+        int[] ids1 = ids;
+        int[] ids2 = other.ids;
+        int[] counts1 = counts;
+        int[] counts2 = other.counts;
+        double remaining1 = norm * norm;
+        double remaining2 = other.norm * other.norm;
+        int i = 0;
+        int j = 0;
+        long dot = 0;
+        int steps = 0;
+        while (i < ids1.length && j < ids2.length) {
+            int id1 = ids1[i];
+            int id2 = ids2[j];
+            if (id1 == id2) {
+                dot += (long) counts1[i] * counts2[j];
+                remaining1 -= (double) counts1[i] * counts1[i++];
+                remaining2 -= (double) counts2[j] * counts2[j++];
+            } else if (id1 < id2) {
+                remaining1 -= (double) counts1[i] * counts1[i++];
+            } else {
+                remaining2 -= (double) counts2[j] * counts2[j++];
+            }
+            // 每归并若干步检查一次上界，摊薄开方的开销
+            if ((++steps & 15) == 0
+                    && dot + Math.sqrt(Math.max(0.0, remaining1) * Math.max(0.0, remaining2)) < minDot) {
+                return -1;
+            }
+        }
+        return dot < minDot ? -1 : dot;
+    }
+
+    /**
+     * 按词编号累加词频，内部使用开放寻址的int表，不产生装箱对象
+     */
+    static final class Builder {
+        /** 槽位中保存编号加1，0表示空槽 */
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int id) {
+            add(id, 1);
+        }
+
+        void add(int id, int count) {
+            int slot = slot(keys, id);
+            if (keys[slot] == 0) {
+                keys[slot] = id + 1;
+                if (++size * 2 > keys.length) {
+                    values[slot] = count;
+                    grow();
+                    return;
+                }
+            }
+            values[slot] += count;
+        }
+
+        TermVector build() {
+            if (size == 0) {
+                return new TermVector(EMPTY, EMPTY);
+            }
+            // 编号放在高32位、词频放在低32位，一次排序即可得到按编号有序的结果
+            long[] packed = new long[size];
+            int n = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    packed[n++] = ((long) (keys[slot] - 1) << 32) | (values[slot] & 0xFFFFFFFFL);
+                }
+            }
+            Arrays.sort(packed);
+            int[] ids = new int[size];
+            int[] counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = (int) (packed[i] >>> 32);
+                counts[i] = (int) packed[i];
+            }
+            return new TermVector(ids, counts);
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(int[] keys, int id) {
+            int mask = keys.length - 1;
+            int slot = (id * 0x9E3779B1) >>> 7 & mask;
+            while (keys[slot] != 0 && keys[slot] != id + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
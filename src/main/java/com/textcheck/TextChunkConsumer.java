@@ -0,0 +1,15 @@
+package com.textcheck;
+
+/**
+ * 文本块消费者，用于逐块接收流式解码得到的文本
+ */
+@FunctionalInterface
+public interface TextChunkConsumer {
+    /**
+     * 接收一段文本，缓冲区在调用返回后会被复用，实现方不应保留其引用
+     * @param buffer 字符缓冲区
+     * @param offset 起始位置
+     * @param length 字符个数
+     */
+    void accept(char[] buffer, int offset, int length);
+}
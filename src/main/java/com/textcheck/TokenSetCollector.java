@@ -0,0 +1,72 @@
+package com.textcheck;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 增量构建Jaccard相似度所用的标记集合和字符集合
+ * 标记集合包含单字、连续的非中文词以及相邻标记组成的2-gram。
+ * 可以分多次喂入文本，内存占用只与不同标记的数量有关
+ */
+class TokenSetCollector implements TextChunkConsumer, TokenSink {
+
+    private final Set<String> tokens = new HashSet<>();
+    private final Set<Integer> characters = new HashSet<>();
+    private final CjkTokenizer tokenizer = new CjkTokenizer(CjkTokenizer.Mode.WORDS, this);
+    private String previousWord;
+    private long length;
+
+    @Override
+    public void accept(char[] buffer, int offset, int length) {
+        tokenizer.accept(buffer, offset, length);
+        this.length += length;
+    }
+
+    /**
+     * 喂入一段完整文本
+     */
+    void accept(String text) {
+        tokenizer.accept(text);
+        length += text.length();
+    }
+
+    /**
+     * 结束输入并返回标记集合
+     */
+    Set<String> finish() {
+        tokenizer.finish();
+        return tokens;
+    }
+
+    /**
+     * 字符集合（码点），只包含字母、数字和中文字符
+     */
+    Set<Integer> characters() {
+        return characters;
+    }
+
+    /**
+     * 已喂入的原始字符数
+     */
+    long length() {
+        return length;
+    }
+
+    @Override
+    public void token(char[] buffer, int offset, int length) {
+        // WORDS模式下词只由字母、数字和中文字符组成，字符集合即所有词中出现过的码点
+        for (int i = offset; i < offset + length; ) {
+            int codePoint = Character.codePointAt(buffer, i, offset + length);
+            characters.add(codePoint);
+            i += Character.charCount(codePoint);
+        }
+
+        String word = new String(buffer, offset, length);
+        tokens.add(word);
+        // 添加相邻字符组合（生成2-gram）
+        if (previousWord != null) {
+            tokens.add(previousWord + word);
+        }
+        previousWord = word;
+    }
+}
@@ -0,0 +1,15 @@
+package com.textcheck;
+
+/**
+ * 分词结果的接收方
+ */
+@FunctionalInterface
+public interface TokenSink {
+    /**
+     * 接收一个已转为小写的词，缓冲区在调用返回后会被复用，实现方不应保留其引用
+     * @param buffer 字符缓冲区
+     * @param offset 起始位置
+     * @param length 字符个数
+     */
+    void token(char[] buffer, int offset, int length);
+}
@@ -0,0 +1,256 @@
+package com.textcheck;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按IDF加权的余弦相似度，降低“的”“是”等高频字对分数的影响
+ * 文档只保存稀疏的原始词频向量，权重在打分时由文档频率表查出，
+ * 因此语料继续增长时已有的向量无需重建，打分代价仍与两个向量的非零分量数成正比。
+ * 语料统计不变时每个词的IDF只计算一次，每个向量的加权模长也只计算一次并缓存在向量上，
+ * 之后的打分只需归并共同的词
+ */
+public class WeightedCosineSimilarity implements SimilarityCalculator {
+
+    /** 词频的加权方式 */
+    public enum Weighting {
+        /** (1 + ln tf) × idf */
+        TF_IDF,
+        /** BM25的词频饱和与文档长度归一化：tf(k1+1) / (tf + k1(1 - b + b·len/avgLen)) × idf */
+        BM25
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final DocumentFrequencies frequencies;
+    private final Weighting weighting;
+    /** 最近一份语料统计下的IDF，语料变化后替换 */
+    private volatile Weights weights;
+
+    /**
+     * @param frequencies 语料的文档频率表，可以在打分的同时继续加入文档
+     * @param weighting 加权方式
+     */
+    public WeightedCosineSimilarity(DocumentFrequencies frequencies, Weighting weighting) {
+        this.frequencies = frequencies;
+        this.weighting = weighting;
+    }
+
+    public DocumentFrequencies frequencies() {
+        return frequencies;
+    }
+
+    public Weighting weighting() {
+        return weighting;
+    }
+
+    /**
+     * 使用文档频率表的词典分词后计算，不会把文本加入语料统计，也不会把新词加入词典：
+     * 词典中没有的词文档频率为0
+     */
+    @Override
+    public double calculate(String text1, String text2) {
+        if (text1 == null || text2 == null) {
+            return 0.0;
+        }
+        if (text1.isEmpty() && text2.isEmpty()) {
+            return 1.0;
+        }
+        if (text1.isEmpty() || text2.isEmpty()) {
+            return 0.0;
+        }
+
+        long start = CalculatorMetrics.phaseStart();
+        Map<String, Integer> unknownTerms = new HashMap<>();
+        TermVector vector1 = queryVector(text1, unknownTerms);
+        TermVector vector2 = queryVector(text2, unknownTerms);
+        CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.VECTOR, start);
+        return cosine(vector1, vector2);
+    }
+
+    /**
+     * profile使用文档频率表的词典时直接使用预先构建的词频向量，否则按原文重新计算
+     */
+    @Override
+    public double calculateProfiles(DocumentProfile profile1, DocumentProfile profile2) {
+        if (profile1.dictionary() != frequencies.dictionary() || profile2.dictionary() != frequencies.dictionary()) {
+            return calculate(profile1.text(), profile2.text());
+        }
+        if (profile1.length() == 0 && profile2.length() == 0) {
+            return 1.0;
+        }
+        if (profile1.length() == 0 || profile2.length() == 0) {
+            return 0.0;
+        }
+        return cosine(profile1.termVector(), profile2.termVector());
+    }
+
+    /**
+     * 使用文档频率表词典的profile之间只比较词频向量，其他词典的profile才需要原文
+     */
+    @Override
+    public boolean needsText() {
+        return false;
+    }
+
+    private TermVector queryVector(String text, Map<String, Integer> unknownTerms) {
+        TermFrequencyCounter counter = new TermFrequencyCounter(frequencies.dictionary(), unknownTerms);
+        counter.accept(text);
+        return counter.finish();
+    }
+
+    private double cosine(TermVector vector1, TermVector vector2) {
+        long start = CalculatorMetrics.phaseStart();
+        try {
+            return weightedCosine(vector1, vector2);
+        } finally {
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+        }
+    }
+
+    private double weightedCosine(TermVector vector1, TermVector vector2) {
+        if (vector1.isEmpty() || vector2.isEmpty()) {
+            return 0.0;
+        }
+        // 整个计算使用同一份文档总数和平均长度，避免并发加入文档时前后不一致
+        Weights current = weights();
+        Norm norm1 = norm(vector1, current);
+        Norm norm2 = norm(vector2, current);
+        if (norm1.value == 0.0 || norm2.value == 0.0) {
+            return 0.0;
+        }
+        double lengthFactor1 = norm1.lengthFactor;
+        double lengthFactor2 = norm2.lengthFactor;
+
+        // 按词编号归并，只有共同的词需要再查一次IDF
+        double dot = 0.0;
+        int i = 0;
+        int j = 0;
+        while (i < vector1.size() && j < vector2.size()) {
+            int id1 = vector1.id(i);
+            int id2 = vector2.id(j);
+            if (id1 == id2) {
+                double idf = current.idf(id1);
+                dot += weight(vector1.count(i++), lengthFactor1) * weight(vector2.count(j++), lengthFactor2) * idf * idf;
+            } else if (id1 < id2) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Math.max(0.0, Math.min(1.0, dot / (norm1.value * norm2.value)));
+    }
+
+    /**
+     * 当前语料统计下的IDF表，文档总数和平均长度都没有变化时沿用上一份
+     */
+    private Weights weights() {
+        long documents = frequencies.documentCount();
+        double averageLength = frequencies.averageLength();
+        Weights current = weights;
+        if (current == null || current.documents != documents || current.averageLength != averageLength) {
+            current = new Weights(frequencies, documents, averageLength);
+            weights = current;
+        }
+        return current;
+    }
+
+    /**
+     * 向量在给定语料统计下的加权模长，已为同一份统计算过时直接使用缓存
+     */
+    private Norm norm(TermVector vector, Weights current) {
+        Norm cached = vector.weightedNorm();
+        if (cached != null && cached.weights == current) {
+            return cached;
+        }
+        double lengthFactor = lengthFactor(vector, current.averageLength);
+        double sum = 0.0;
+        for (int i = 0; i < vector.size(); i++) {
+            double w = weight(vector.count(i), lengthFactor) * current.idf(vector.id(i));
+            sum += w * w;
+        }
+        Norm norm = new Norm(current, lengthFactor, Math.sqrt(sum));
+        vector.weightedNorm(norm);
+        return norm;
+    }
+
+    /**
+     * BM25中与文档长度有关的分母项k1(1 - b + b·len/avgLen)，TF-IDF不使用
+     */
+    private double lengthFactor(TermVector vector, double averageLength) {
+        if (weighting != Weighting.BM25) {
+            return 0.0;
+        }
+        long length = 0;
+        for (int i = 0; i < vector.size(); i++) {
+            length += vector.count(i);
+        }
+        double ratio = averageLength > 0.0 ? length / averageLength : 1.0;
+        return K1 * (1.0 - B + B * ratio);
+    }
+
+    private double weight(int count, double lengthFactor) {
+        if (weighting == Weighting.BM25) {
+            return count * (K1 + 1.0) / (count + lengthFactor);
+        }
+        return 1.0 + Math.log(count);
+    }
+
+    /**
+     * 一份语料统计下按词编号分页缓存的IDF，页在第一次用到时分配
+     * 多个线程可能同时计算同一个词的IDF，结果相同，丢失的缓存只会导致重新计算
+     */
+    private static final class Weights {
+        private static final int PAGE_BITS = 12;
+
+        final long documents;
+        final double averageLength;
+        private final DocumentFrequencies frequencies;
+        private final double[][] pages;
+
+        Weights(DocumentFrequencies frequencies, long documents, double averageLength) {
+            this.frequencies = frequencies;
+            this.documents = documents;
+            this.averageLength = averageLength;
+            this.pages = new double[(frequencies.dictionary().size() >>> PAGE_BITS) + 1][];
+        }
+
+        /**
+         * IDF始终为正，页中的0表示尚未计算；之后加入词典的词和查询中的新词不缓存
+         */
+        double idf(int id) {
+            int page = id >>> PAGE_BITS;
+            if (page >= pages.length) {
+                return frequencies.idf(id, documents);
+            }
+            double[] values = pages[page];
+            if (values == null) {
+                values = new double[1 << PAGE_BITS];
+                pages[page] = values;
+            }
+            int index = id & ((1 << PAGE_BITS) - 1);
+            double idf = values[index];
+            if (idf == 0.0) {
+                idf = frequencies.idf(id, documents);
+                values[index] = idf;
+            }
+            return idf;
+        }
+    }
+
+    /**
+     * 向量的加权模长和BM25长度项，只对计算时的那份语料统计有效
+     */
+    static final class Norm {
+        final Weights weights;
+        final double lengthFactor;
+        final double value;
+
+        Norm(Weights weights, double lengthFactor, double value) {
+            this.weights = weights;
+            this.lengthFactor = lengthFactor;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.textcheck;
+
+import java.util.Arrays;
+
+/**
+ * MOSS式的winnowing指纹
+ * 文本先规范化为只含字母、数字和汉字的码点序列（拉丁字母转小写），字母数字的判断与{@link CjkTokenizer}共用类别表，对每个长度为k的片段计算滚动哈希，
+ * 再在每w个连续哈希组成的窗口中选取最小值（相同时取最右边的一个）作为指纹。
+ * 长度不少于w+k-1的相同片段一定至少共享一个指纹，短于k的片段一定不会产生匹配
+ */
+public final class Winnowing {
+
+    /** 默认片段长度，汉字信息量较大，5个码点已足以排除偶然重合 */
+    public static final int DEFAULT_K = 5;
+    /** 默认窗口大小，保证检出长度不少于8个码点的相同片段 */
+    public static final int DEFAULT_WINDOW = 4;
+
+    private static final long BASE = 0x100000001B3L;
+
+    private final int k;
+    private final int window;
+    /** BASE的k-1次方，滚动时移出最早的码点 */
+    private final long highPower;
+
+    public Winnowing() {
+        this(DEFAULT_K, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param k 片段长度（码点数）
+     * @param window 窗口大小
+     */
+    public Winnowing(int k, int window) {
+        if (k < 1 || window < 1) {
+            throw new IllegalArgumentException("片段长度和窗口大小必须为正数");
+        }
+        this.k = k;
+        this.window = window;
+        long power = 1;
+        for (int i = 1; i < k; i++) {
+            power *= BASE;
+        }
+        this.highPower = power;
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int window() {
+        return window;
+    }
+
+    /**
+     * 计算文本的指纹
+     */
+    public Fingerprints fingerprint(String text) {
+        // 规范化后的码点及其在原文中的起始下标
+        int[] codes = new int[text.length()];
+        int[] offsets = new int[text.length()];
+        int n = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if ((CjkTokenizer.classOf(codePoint) & CjkTokenizer.WORD) != 0) {
+                codes[n] = Character.toLowerCase(codePoint);
+                offsets[n++] = i;
+            }
+            i += Character.charCount(codePoint);
+        }
+
+        int grams = n - k + 1;
+        if (grams <= 0) {
+            return new Fingerprints(new long[0], new int[0], new int[0], new int[0], 0, codes, n);
+        }
+
+        long[] hashes = new long[grams];
+        long hash = 0;
+        for (int i = 0; i < k; i++) {
+            hash = hash * BASE + codes[i];
+        }
+        hashes[0] = MinHash.mix(hash);
+        for (int i = 1; i < grams; i++) {
+            hash = (hash - codes[i - 1] * highPower) * BASE + codes[i + k - 1];
+            hashes[i] = MinHash.mix(hash);
+        }
+
+        // 单调队列维护窗口内的最小值，队首为窗口最小哈希的下标，总体线性时间
+        int w = Math.min(window, grams);
+        int[] deque = new int[grams];
+        int head = 0;
+        int tail = 0;
+        int capacity = 2 * grams / (w + 1) + 2;
+        long[] selected = new long[capacity];
+        int[] positions = new int[capacity];
+        int count = 0;
+        int last = -1;
+        for (int i = 0; i < grams; i++) {
+            while (tail > head && hashes[deque[tail - 1]] >= hashes[i]) {
+                tail--;
+            }
+            deque[tail++] = i;
+            if (deque[head] <= i - w) {
+                head++;
+            }
+            if (i >= w - 1 && deque[head] != last) {
+                last = deque[head];
+                if (count == selected.length) {
+                    selected = Arrays.copyOf(selected, count * 2);
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                selected[count] = hashes[last];
+                positions[count++] = last;
+            }
+        }
+
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            int lastCode = positions[i] + k - 1;
+            starts[i] = offsets[positions[i]];
+            ends[i] = offsets[lastCode] + Character.charCount(text.codePointAt(offsets[lastCode]));
+        }
+        return new Fingerprints(Arrays.copyOf(selected, count), Arrays.copyOf(positions, count),
+                starts, ends, count, codes, n);
+    }
+
+    /**
+     * 一段文本的指纹，按位置升序排列
+     */
+    public static final class Fingerprints {
+        private final long[] hashes;
+        private final int[] positions;
+        private final int[] starts;
+        private final int[] ends;
+        private final int size;
+        private final int[] codes;
+        private final int normalizedLength;
+
+        Fingerprints(long[] hashes, int[] positions, int[] starts, int[] ends, int size,
+                     int[] codes, int normalizedLength) {
+            this.hashes = hashes;
+            this.positions = positions;
+            this.starts = starts;
+            this.ends = ends;
+            this.size = size;
+            this.codes = codes;
+            this.normalizedLength = normalizedLength;
+        }
+
+        /**
+         * 指纹个数
+         */
+        public int size() {
+            return size;
+        }
+
+        public long hash(int i) {
+            return hashes[i];
+        }
+
+        /**
+         * 第i个指纹片段在规范化序列中的起始位置
+         */
+        public int position(int i) {
+            return positions[i];
+        }
+
+        /**
+         * 第i个指纹片段在原文中的起始字符下标
+         */
+        public int start(int i) {
+            return starts[i];
+        }
+
+        /**
+         * 第i个指纹片段在原文中的结束字符下标（不含）
+         */
+        public int end(int i) {
+            return ends[i];
+        }
+
+        /**
+         * 规范化后的码点数
+         */
+        public int normalizedLength() {
+            return normalizedLength;
+        }
+
+        /**
+         * 规范化后的码点序列，有效长度为{@link #normalizedLength()}
+         */
+        int[] codes() {
+            return codes;
+        }
+    }
+}
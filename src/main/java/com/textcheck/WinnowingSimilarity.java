@@ -0,0 +1,103 @@
+package com.textcheck;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于winnowing指纹的局部匹配相似度
+ * 相似度为两段文本中被相同段落覆盖的码点数之和占总码点数的比例（只计字母、数字和汉字），
+ * 能反映“哪些段落被复制”，而不是整体用字是否接近。{@link #matches(String, String)}给出具体的段落位置
+ */
+public class WinnowingSimilarity implements SimilarityCalculator {
+
+    private final Winnowing winnowing;
+
+    public WinnowingSimilarity() {
+        this(new Winnowing());
+    }
+
+    public WinnowingSimilarity(Winnowing winnowing) {
+        this.winnowing = winnowing;
+    }
+
+    @Override
+    public double calculate(String text1, String text2) {
+        if (text1 == null || text2 == null) {
+            return 0.0;
+        }
+
+        // 处理空字符串的特殊情况
+        if (text1.isEmpty() && text2.isEmpty()) {
+            return 1.0;
+        }
+        if (text1.isEmpty() || text2.isEmpty()) {
+            return 0.0;
+        }
+
+        long start = CalculatorMetrics.phaseStart();
+        Winnowing.Fingerprints fingerprints1 = winnowing.fingerprint(text1);
+        Winnowing.Fingerprints fingerprints2 = winnowing.fingerprint(text2);
+        CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SETS, start);
+
+        start = CalculatorMetrics.phaseStart();
+        try {
+            return coverage(fingerprints1, fingerprints2);
+        } finally {
+            CalculatorMetrics.phaseEnd(CalculatorMetrics.Phase.SCORE, start);
+        }
+    }
+
+    /**
+     * 找出两段文本中相同的段落，document均为0，query一侧为text1
+     */
+    public List<PassageMatch> matches(String text1, String text2) {
+        FingerprintIndex index = new FingerprintIndex(winnowing);
+        index.add(text2);
+        return index.search(text1);
+    }
+
+    private double coverage(Winnowing.Fingerprints fingerprints1, Winnowing.Fingerprints fingerprints2) {
+        int length1 = fingerprints1.normalizedLength();
+        int length2 = fingerprints2.normalizedLength();
+        int[] codes1 = fingerprints1.codes();
+        int[] codes2 = fingerprints2.codes();
+        if (Arrays.equals(codes1, 0, length1, codes2, 0, length2)) {
+            return 1.0;
+        }
+        if (fingerprints1.size() == 0 || fingerprints2.size() == 0) {
+            // 短于片段长度的文本没有指纹
+            return 0.0;
+        }
+
+        FingerprintIndex index = new FingerprintIndex(winnowing);
+        index.add(fingerprints2);
+        boolean[] covered1 = new boolean[length1];
+        boolean[] covered2 = new boolean[length2];
+        // 相同片段两端最多各有w-1个码点落在选中的指纹之外，逐个比较码点补上
+        int reach = winnowing.window() - 1;
+        for (FingerprintIndex.Span span : index.spans(fingerprints1)) {
+            int start1 = span.queryPosition;
+            int start2 = span.documentPosition;
+            for (int i = 0; i < reach && start1 > 0 && start2 > 0 && codes1[start1 - 1] == codes2[start2 - 1]; i++) {
+                start1--;
+                start2--;
+            }
+            int end1 = span.queryPositionEnd;
+            int end2 = span.documentPositionEnd;
+            for (int i = 0; i < reach && end1 < length1 && end2 < length2 && codes1[end1] == codes2[end2]; i++) {
+                end1++;
+                end2++;
+            }
+            Arrays.fill(covered1, start1, end1, true);
+            Arrays.fill(covered2, start2, end2, true);
+        }
+        int count = 0;
+        for (boolean covered : covered1) {
+            count += covered ? 1 : 0;
+        }
+        for (boolean covered : covered2) {
+            count += covered ? 1 : 0;
+        }
+        return (double) count / (length1 + length2);
+    }
+}
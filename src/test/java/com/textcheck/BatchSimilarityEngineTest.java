@@ -0,0 +1,88 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class BatchSimilarityEngineTest {
+
+    private static final String[] SENTENCES = {
+        "中国是一个伟大的国家，有着悠久的历史文化。",
+        "今天天气真好，我们去公园散步吧。",
+        "软件工程师负责设计和实现软件系统。",
+        "The quick brown fox jumps over the lazy dog.",
+        "我喜欢编程和阅读，也喜欢写作。"
+    };
+
+    private final List<String> corpus = buildCorpus(120);
+
+    @Test
+    public void testScoreAgainstMatchesPairwise() {
+        String query = SENTENCES[0] + SENTENCES[2];
+        for (SimilarityCalculator calculator : calculators()) {
+            BatchSimilarityEngine engine = new BatchSimilarityEngine(calculator);
+            List<ScoredDocument> top = engine.scoreAgainst(query, corpus, 10);
+
+            assertEquals(10, top.size());
+            double previous = Double.MAX_VALUE;
+            for (ScoredDocument document : top) {
+                assertEquals(calculator.calculate(query, corpus.get(document.index())), document.score(), 1e-12);
+                assertTrue(document.score() <= previous, "结果应按相似度降序排列");
+                previous = document.score();
+            }
+
+            // 第K个结果不应低于任何未入选的文档
+            double kth = top.get(top.size() - 1).score();
+            long better = corpus.stream().filter(text -> calculator.calculate(query, text) > kth).count();
+            assertTrue(better < 10, calculator.getClass().getSimpleName() + "的前K个结果不正确");
+        }
+    }
+
+    @Test
+    public void testAllPairsMatchesBruteForce() {
+        List<String> small = corpus.subList(0, 40);
+        for (SimilarityCalculator calculator : calculators()) {
+            List<SimilarPair> expected = new ArrayList<>();
+            for (int i = 0; i < small.size(); i++) {
+                for (int j = i + 1; j < small.size(); j++) {
+                    double score = calculator.calculate(small.get(i), small.get(j));
+                    if (score >= 0.5) {
+                        expected.add(new SimilarPair(i, j, score));
+                    }
+                }
+            }
+
+            List<SimilarPair> actual = new BatchSimilarityEngine(calculator).allPairs(small, 0.5);
+            assertEquals(expected.size(), actual.size(), calculator.getClass().getSimpleName());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).first(), actual.get(i).first());
+                assertEquals(expected.get(i).second(), actual.get(i).second());
+                assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-12);
+            }
+        }
+    }
+
+    private static SimilarityCalculator[] calculators() {
+        return new SimilarityCalculator[] {
+            new CosineSimilarity(), new JaccardSimilarity(), new LevenshteinDistance()
+        };
+    }
+
+    private static List<String> buildCorpus(int size) {
+        Random random = new Random(7);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            StringBuilder builder = new StringBuilder();
+            int sentences = 1 + random.nextInt(3);
+            for (int s = 0; s < sentences; s++) {
+                builder.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            }
+            texts.add(builder.toString());
+        }
+        return texts;
+    }
+}
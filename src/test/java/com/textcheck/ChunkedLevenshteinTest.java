@@ -0,0 +1,88 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class ChunkedLevenshteinTest {
+
+    private final ChunkedLevenshtein chunked = new ChunkedLevenshtein();
+
+    @Test
+    public void testBasicCases() {
+        assertEquals(1.0, chunked.calculate("", ""), 0.001);
+        assertEquals(0.0, chunked.calculate("", "测试文本"), 0.001);
+        assertEquals(0.0, chunked.calculate(null, "测试文本"), 0.001);
+        assertEquals(1.0, chunked.calculate("第一句。第二句！", "第一句。  第二句！"), 0.001);
+        assertTrue(chunked.calculate("今天天气很好。", "完全不同的内容？") < 0.3);
+    }
+
+    @Test
+    public void testRegions() {
+        String text1 = "第一句保持不变。第二句将被修改一点点。第三句会被删除掉。第四句也保持不变。";
+        String text2 = "第一句保持不变。第二句将被修改了一点。第四句也保持不变。这是新增的一句话。";
+        ChunkAlignment alignment = chunked.align(text1, text2);
+        List<AlignedRegion> regions = alignment.regions();
+
+        assertEquals(5, regions.size(), regions.toString());
+        assertEquals(AlignedRegion.Type.EQUAL, regions.get(0).type());
+        assertEquals(AlignedRegion.Type.CHANGED, regions.get(1).type());
+        assertEquals("第二句将被修改一点点。", text1.substring(regions.get(1).start1(), regions.get(1).end1()));
+        assertEquals("第二句将被修改了一点。", text2.substring(regions.get(1).start2(), regions.get(1).end2()));
+        assertEquals(AlignedRegion.Type.DELETED, regions.get(2).type());
+        assertEquals("第三句会被删除掉。", text1.substring(regions.get(2).start1(), regions.get(2).end1()));
+        assertEquals(AlignedRegion.Type.EQUAL, regions.get(3).type());
+        assertEquals(AlignedRegion.Type.INSERTED, regions.get(4).type());
+        assertEquals("这是新增的一句话。", text2.substring(regions.get(4).start2(), regions.get(4).end2()));
+        assertTrue(alignment.similarity() > 0.5 && alignment.similarity() < 0.9, "实际值：" + alignment.similarity());
+    }
+
+    @Test
+    public void testMegabyteDocuments() {
+        Random random = new Random(7);
+        StringBuilder builder1 = new StringBuilder();
+        StringBuilder builder2 = new StringBuilder();
+        while (builder1.length() < 1_000_000) {
+            StringBuilder sentence = new StringBuilder();
+            int length = 10 + random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                sentence.append((char) (0x4E00 + random.nextInt(3000)));
+            }
+            sentence.append('。');
+            builder1.append(sentence);
+            int action = random.nextInt(20);
+            if (action == 0) {
+                // 删除该句
+                continue;
+            }
+            if (action == 1) {
+                sentence.setCharAt(random.nextInt(length), '改');
+            }
+            builder2.append(sentence);
+        }
+        String text1 = builder1.toString();
+        String text2 = builder2.toString();
+
+        ChunkAlignment alignment = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> chunked.align(text1, text2));
+        assertTrue(alignment.similarity() > 0.9, "实际值：" + alignment.similarity());
+        long deleted = alignment.regions().stream().filter(r -> r.type() == AlignedRegion.Type.DELETED).count();
+        assertTrue(deleted > 0);
+
+        // 区域按原文顺序首尾相接，完整覆盖两段文本
+        int end1 = 0;
+        int end2 = 0;
+        for (AlignedRegion region : alignment.regions()) {
+            assertEquals(end1, region.start1(), region.toString());
+            assertEquals(end2, region.start2(), region.toString());
+            end1 = region.end1();
+            end2 = region.end2();
+        }
+        assertEquals(text1.length(), end1);
+        assertEquals(text2.length(), end2);
+    }
+}
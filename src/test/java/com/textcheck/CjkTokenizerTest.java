@@ -0,0 +1,82 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+public class CjkTokenizerTest {
+
+    /** U+20000、U+20001、U+20002，CJK扩展B中的汉字 */
+    private static final String EXT_B = "𠀀𠀁𠀂";
+
+    @Test
+    public void testTermsMode() {
+        assertEquals(Arrays.asList("hello", "世", "界", "c++", "2024"),
+                tokenize(CjkTokenizer.Mode.TERMS, "Hello, 世界！C++\t2024"));
+    }
+
+    @Test
+    public void testWordsMode() {
+        // 非字母数字的符号被忽略而不是作为分隔符
+        assertEquals(Arrays.asList("hello", "世", "界", "c", "2024"),
+                tokenize(CjkTokenizer.Mode.WORDS, "Hello, 世界！C++ 2024"));
+    }
+
+    @Test
+    public void testSurrogatePairs() {
+        assertEquals(Arrays.asList("𠀀", "𠀁", "𠀂", "a"),
+                tokenize(CjkTokenizer.Mode.TERMS, EXT_B + "a"));
+        assertTrue(CjkTokenizer.isChinese(0x20000));
+
+        // 扩展B的汉字各自成词，共享两个字时余弦相似度为2/3
+        double similarity = new CosineSimilarity().calculate(EXT_B, EXT_B.substring(0, 4) + "𠀃");
+        assertEquals(2.0 / 3.0, similarity, 1e-9);
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        String text = "中国是一个伟大的国家，Hello World! " + EXT_B + " 有着悠久的历史文化。";
+        char[] chars = text.toCharArray();
+        for (CjkTokenizer.Mode mode : CjkTokenizer.Mode.values()) {
+            List<String> expected = tokenize(mode, text);
+            // 在任意位置切分（包括代理对中间）结果都应相同
+            for (int split = 0; split <= chars.length; split++) {
+                List<String> tokens = new ArrayList<>();
+                CjkTokenizer tokenizer = new CjkTokenizer(mode,
+                        (buffer, offset, length) -> tokens.add(new String(buffer, offset, length)));
+                tokenizer.accept(chars, 0, split);
+                tokenizer.accept(chars, split, chars.length - split);
+                tokenizer.finish();
+                assertEquals(expected, tokens, "切分位置：" + split);
+            }
+        }
+    }
+
+    @Test
+    public void testClassTableMatchesCharacterPredicates() {
+        Pattern punctuationPattern = Pattern.compile("\\p{P}");
+        for (int c = 0; c <= Character.MAX_CODE_POINT; c++) {
+            int flags = CjkTokenizer.classOf(c);
+            boolean punctuation = punctuationPattern.matcher(new String(Character.toChars(c))).matches();
+            boolean whitespace = c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+            assertEquals(punctuation || whitespace || Character.isSpaceChar(c), (flags & CjkTokenizer.SEPARATOR) != 0,
+                         "U+" + Integer.toHexString(c));
+            assertEquals(Character.isSpaceChar(c), (flags & CjkTokenizer.SPACE) != 0, "U+" + Integer.toHexString(c));
+            assertEquals(Character.isLetterOrDigit(c), (flags & CjkTokenizer.WORD) != 0, "U+" + Integer.toHexString(c));
+        }
+    }
+
+    private static List<String> tokenize(CjkTokenizer.Mode mode, String text) {
+        List<String> tokens = new ArrayList<>();
+        CjkTokenizer tokenizer = new CjkTokenizer(mode,
+                (buffer, offset, length) -> tokens.add(new String(buffer, offset, length)));
+        tokenizer.accept(text);
+        tokenizer.finish();
+        return tokens;
+    }
+}
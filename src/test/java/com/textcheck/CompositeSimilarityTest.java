@@ -0,0 +1,121 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class CompositeSimilarityTest {
+
+    private static final String[] PIECES = {"自然", "语言", "处理", "Text", "check", "ab", "2024", "，", "。", ",",
+            " ", "  ", "\t", "\n", "\u0001", "\u000B", "𠀀", "Ω", "-", "_"};
+
+    @Test
+    public void testComponentsMatchSeparateCalculators() {
+        Random random = new Random(7);
+        CosineSimilarity cosine = new CosineSimilarity();
+        JaccardSimilarity jaccard = new JaccardSimilarity();
+        LevenshteinDistance levenshtein = new LevenshteinDistance();
+        CompositeSimilarity composite = new CompositeSimilarity();
+        for (int i = 0; i < 500; i++) {
+            String text1 = randomText(random, random.nextInt(20));
+            String text2 = random.nextInt(4) == 0 ? text1 : randomText(random, random.nextInt(20));
+            CompositeSimilarity.Result result = composite.compare(text1, text2);
+            String message = text1 + " | " + text2;
+            assertEquals(cosine.calculate(text1, text2), result.cosine(), 0.0, message);
+            assertEquals(jaccard.calculate(text1, text2), result.jaccard(), 0.0, message);
+            assertEquals(levenshtein.calculate(text1, text2), result.levenshtein(), 0.0, message);
+            assertEquals((result.cosine() + result.jaccard() + result.levenshtein()) / 3, result.score(), 1e-12, message);
+        }
+    }
+
+    @Test
+    public void testScannerMatchesNormalizeText() {
+        Random random = new Random(3);
+        FusedScanner scanner = new FusedScanner();
+        TermTable terms = new TermTable();
+        TermTable words = new TermTable();
+        TermTable characters = new TermTable();
+        for (int i = 0; i < 300; i++) {
+            String text = randomText(random, random.nextInt(15));
+            terms.clear();
+            words.clear();
+            characters.clear();
+            terms.beginTerms(0);
+            words.beginWords(0, characters);
+            int[] codePoints = new int[text.length()];
+            int length = scanner.scan(text, terms, words, codePoints);
+            assertArrayEquals(LevenshteinDistance.normalizeText(text).codePoints().toArray(),
+                              Arrays.copyOf(codePoints, length), text);
+        }
+    }
+
+    @Test
+    public void testThresholdMatchesFullScore() {
+        Random random = new Random(5);
+        CompositeSimilarity composite = new CompositeSimilarity(1.0, 2.0, 3.0);
+        for (int i = 0; i < 500; i++) {
+            String text1 = randomText(random, 1 + random.nextInt(20));
+            String text2 = mutate(random, text1);
+            double score = composite.calculate(text1, text2);
+            for (double min : new double[] {0.2, 0.5, 0.8, 0.95}) {
+                double expected = score >= min ? score : 0.0;
+                assertEquals(expected, composite.calculate(text1, text2, min), 1e-12, text1 + " | " + text2);
+            }
+        }
+    }
+
+    @Test
+    public void testWeightsAndProfiles() {
+        String text1 = "自然语言处理 text check";
+        String text2 = "自然语言 处理 text checker";
+        CompositeSimilarity.Result equal = new CompositeSimilarity().compare(text1, text2);
+
+        // 权重按总和归一化，只看一种相似度时综合分数就是该相似度
+        assertEquals(equal.cosine(), new CompositeSimilarity(2.0, 0.0, 0.0).calculate(text1, text2), 1e-12);
+        assertEquals(equal.jaccard(), new CompositeSimilarity(0.0, 5.0, 0.0).calculate(text1, text2), 1e-12);
+        assertEquals(equal.levenshtein(), new CompositeSimilarity(0.0, 0.0, 1.0).calculate(text1, text2), 1e-12);
+        assertEquals(0.0, new CompositeSimilarity(1.0, 1.0, 0.0).compare(text1, text2).levenshtein(), 0.0);
+
+        TermDictionary dictionary = new TermDictionary();
+        CompositeSimilarity.Result profiles = new CompositeSimilarity().compare(
+                DocumentProfile.of(text1, dictionary), DocumentProfile.of(text2, dictionary));
+        assertEquals(equal.cosine(), profiles.cosine(), 1e-12);
+        assertEquals(equal.jaccard(), profiles.jaccard(), 0.0);
+        assertEquals(equal.levenshtein(), profiles.levenshtein(), 0.0);
+
+        assertEquals(1.0, new CompositeSimilarity().calculate("", ""), 0.0);
+        assertEquals(0.0, new CompositeSimilarity().calculate("abc", ""), 0.0);
+        assertEquals(0.0, new CompositeSimilarity().calculate(null, "abc"), 0.0);
+
+        assertThrows(IllegalArgumentException.class, () -> new CompositeSimilarity(-1.0, 1.0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new CompositeSimilarity(0.0, 0.0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new CompositeSimilarity(Double.NaN, 1.0, 1.0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new CompositeSimilarity(Double.POSITIVE_INFINITY, 1.0, 1.0));
+    }
+
+    private static String mutate(Random random, String text) {
+        StringBuilder builder = new StringBuilder(text);
+        int edits = random.nextInt(4);
+        for (int i = 0; i < edits && builder.length() > 0; i++) {
+            int index = random.nextInt(builder.length());
+            if (Character.isSurrogate(builder.charAt(index))) {
+                continue;
+            }
+            builder.setCharAt(index, PIECES[random.nextInt(PIECES.length)].charAt(0));
+        }
+        return builder.toString();
+    }
+
+    private static String randomText(Random random, int pieces) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return builder.toString();
+    }
+}
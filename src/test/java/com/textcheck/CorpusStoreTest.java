@@ -0,0 +1,104 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CorpusStoreTest {
+
+    private static final String[] TEXTS = {
+        "自然语言处理是人工智能领域中的一个重要方向",
+        "自然语言处理是人工智能的重要方向之一",
+        "Hello world, this is a mixed 中英文 text 𠀀𠀁",
+        ""
+    };
+
+    private final SimilarityCalculator[] calculators = {
+        new CosineSimilarity(), new JaccardSimilarity()
+    };
+
+    @Test
+    public void testReopenedProfilesScoreIdentically(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("corpus.idx");
+        DocumentProfile[] original = new DocumentProfile[TEXTS.length];
+        try (CorpusStore store = CorpusStore.open(file)) {
+            for (int i = 0; i < TEXTS.length; i++) {
+                assertEquals(i, store.add("doc" + i, TEXTS[i]));
+                original[i] = store.profile(i);
+            }
+        }
+
+        try (CorpusStore store = CorpusStore.open(file)) {
+            assertEquals(TEXTS.length, store.size());
+            assertEquals("doc2", store.name(2));
+            assertTrue(store.contains("doc3"));
+            for (int i = 0; i < TEXTS.length; i++) {
+                // 索引不保存原文，只有字符数
+                assertFalse(store.profile(i).hasText());
+                assertEquals(TEXTS[i].length(), store.profile(i).length());
+                for (int j = 0; j < TEXTS.length; j++) {
+                    for (SimilarityCalculator calculator : calculators) {
+                        assertEquals(calculator.calculate(TEXTS[i], TEXTS[j]),
+                                calculator.calculateProfiles(store.profile(i), store.profile(j)), 1e-12);
+                    }
+                }
+            }
+
+            // 重新打开后追加，新文档可与映射中的旧文档比较
+            int id = store.add("doc4", "自然语言处理是人工智能领域中的重要方向");
+            assertEquals(4, id);
+            assertEquals(new CosineSimilarity().calculate(TEXTS[0], "自然语言处理是人工智能领域中的重要方向"),
+                    new CosineSimilarity().calculateProfiles(store.profile(0), store.profile(id)), 1e-12);
+            assertFalse(store.profile(id).hasText());
+
+            // 需要原文的算法不能比较索引中的profile
+            assertTrue(new LevenshteinDistance().needsText());
+            assertThrows(IllegalStateException.class,
+                    () -> new LevenshteinDistance().calculateProfiles(store.profile(0), store.profile(1)));
+        }
+
+        try (CorpusStore store = CorpusStore.open(file)) {
+            assertEquals(5, store.size());
+            assertEquals("doc4", store.name(4));
+        }
+    }
+
+    @Test
+    public void testTruncatedTailIsDiscarded(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("corpus.idx");
+        try (CorpusStore store = CorpusStore.open(file)) {
+            store.add("a", TEXTS[0]);
+            store.add("b", TEXTS[1]);
+        }
+        // 模拟写到一半时进程退出
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (CorpusStore store = CorpusStore.open(file)) {
+            assertEquals(1, store.size());
+            store.add("b", TEXTS[1]);
+        }
+        try (CorpusStore store = CorpusStore.open(file)) {
+            assertEquals(2, store.size());
+            assertEquals(new JaccardSimilarity().calculate(TEXTS[0], TEXTS[1]),
+                    new JaccardSimilarity().calculateProfiles(store.profile(0), store.profile(1)), 1e-12);
+        }
+    }
+
+    @Test
+    public void testRejectsForeignFile(@TempDir Path dir) throws IOException {
+        Path file = Files.write(dir.resolve("other.txt"), "not an index".getBytes());
+        IOException e = assertThrows(IOException.class, () -> CorpusStore.open(file));
+        assertTrue(e.getMessage().contains("不是有效的索引文件"));
+    }
+}
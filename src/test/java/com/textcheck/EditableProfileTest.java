@@ -0,0 +1,93 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class EditableProfileTest {
+
+    private static final String[] PIECES = {"自然", "语言", "处理", "text", "Check", "ab", "2024", "，", "。", ",", " ", "  ", "\n", "𠀀"};
+
+    @Test
+    public void testRandomEditsMatchFullRebuild() {
+        Random random = new Random(11);
+        TermDictionary dictionary = new TermDictionary();
+        CosineSimilarity cosine = new CosineSimilarity();
+        JaccardSimilarity jaccard = new JaccardSimilarity();
+        DocumentProfile[] references = new DocumentProfile[3];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = DocumentProfile.of(randomText(random, 40), dictionary);
+        }
+
+        EditableProfile editable = new EditableProfile(DocumentProfile.of(randomText(random, 60), dictionary));
+        for (DocumentProfile reference : references) {
+            editable.addReference(reference);
+        }
+        for (int step = 0; step < 500; step++) {
+            String text = editable.text();
+            int offset = codePointBoundary(text, random.nextInt(text.length() + 1));
+            int end = codePointBoundary(text, Math.min(text.length(), offset + random.nextInt(6)));
+            String inserted = random.nextInt(3) == 0 ? "" : randomText(random, 1 + random.nextInt(3));
+            editable.edit(offset, end - offset, inserted);
+
+            String expectedText = text.substring(0, offset) + inserted + text.substring(end);
+            assertEquals(expectedText, editable.text());
+            DocumentProfile rebuilt = DocumentProfile.of(expectedText, dictionary);
+            for (int r = 0; r < references.length; r++) {
+                assertEquals(cosine.calculateProfiles(rebuilt, references[r]), editable.cosine(r), 0.0, expectedText);
+                assertEquals(jaccard.calculateProfiles(rebuilt, references[r]), editable.jaccard(r), 0.0, expectedText);
+            }
+        }
+
+        // 生成的profile与重新构建的完全一致
+        DocumentProfile snapshot = editable.toProfile();
+        DocumentProfile rebuilt = DocumentProfile.of(editable.text(), dictionary);
+        assertEquals(rebuilt.tokens(), snapshot.tokens());
+        assertEquals(rebuilt.characters(), snapshot.characters());
+        assertEquals(rebuilt.termVector().norm(), snapshot.termVector().norm(), 0.0);
+        assertEquals(rebuilt.termVector().dot(snapshot.termVector()), snapshot.termVector().dot(snapshot.termVector()));
+    }
+
+    @Test
+    public void testEditsAcrossWordBoundaries() {
+        TermDictionary dictionary = new TermDictionary();
+        DocumentProfile reference = DocumentProfile.of("hello world 你好", dictionary);
+        EditableProfile editable = new EditableProfile(DocumentProfile.of("hello, wor ld 你好", dictionary));
+        editable.addReference(reference);
+
+        // 删除空格使两个片段合并为一个词，同时改变两侧的2-gram
+        editable.edit(10, 1, "");
+        assertEquals("hello, world 你好", editable.text());
+        assertEquals(1.0, editable.jaccard(0), 0.0);
+        // TERMS模式下逗号是分隔符，词频与参考文档相同
+        assertEquals(1.0, editable.cosine(0), 1e-12);
+
+        // 在词中间插入汉字会把词拆开
+        editable.edit(2, 0, "中");
+        assertEquals(new CosineSimilarity().calculate("he中llo, world 你好", "hello world 你好"), editable.cosine(0), 0.0);
+        assertEquals(new JaccardSimilarity().calculate("he中llo, world 你好", "hello world 你好"), editable.jaccard(0), 0.0);
+
+        // 清空后再写回
+        editable.edit(0, editable.length(), "");
+        assertEquals(0.0, editable.cosine(0), 0.0);
+        editable.edit(0, 0, "hello world 你好");
+        assertEquals(1.0, editable.jaccard(0), 0.0);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> editable.edit(5, 100, ""));
+        assertThrows(IllegalArgumentException.class, () -> editable.addReference(DocumentProfile.of("hello", new TermDictionary())));
+    }
+
+    private static int codePointBoundary(String text, int index) {
+        return index > 0 && index < text.length() && Character.isLowSurrogate(text.charAt(index)) ? index - 1 : index;
+    }
+
+    private static String randomText(Random random, int pieces) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class InstrumentedCalculatorTest {
+
+    private static final String TEXT1 = "自然语言处理是人工智能领域中的一个重要方向，它研究人与计算机之间用自然语言进行有效通信的各种理论和方法。";
+    private static final String TEXT2 = "自然语言处理是人工智能的重要方向，研究人与计算机之间用自然语言通信的理论和方法。";
+
+    @Test
+    public void testRecordsCallsAndPhases() {
+        CalculatorMetrics metrics = new CalculatorMetrics("test");
+        SimilarityCalculator[] calculators = {new CosineSimilarity(), new JaccardSimilarity(), new LevenshteinDistance()};
+        CalculatorMetrics.Phase[] buildPhases = {
+                CalculatorMetrics.Phase.VECTOR, CalculatorMetrics.Phase.SETS, CalculatorMetrics.Phase.NORMALIZE};
+
+        for (int i = 0; i < calculators.length; i++) {
+            metrics.reset();
+            InstrumentedCalculator instrumented = new InstrumentedCalculator(calculators[i], metrics);
+            assertEquals(calculators[i].calculate(TEXT1, TEXT2), instrumented.calculate(TEXT1, TEXT2), 0.0);
+            assertEquals(calculators[i].calculate(TEXT1, TEXT2, 0.9), instrumented.calculate(TEXT1, TEXT2, 0.9), 0.0);
+
+            assertEquals(2, metrics.getCalls());
+            assertEquals(0, metrics.getErrors());
+            assertEquals(4, metrics.inputLength().count());
+            assertEquals(TEXT1.length(), metrics.inputLength().max());
+            assertEquals(2, metrics.phase(buildPhases[i]).count(), buildPhases[i].name());
+            assertTrue(metrics.phase(CalculatorMetrics.Phase.SCORE).count() > 0);
+            assertTrue(metrics.getP99Nanos() >= metrics.getP50Nanos());
+            if (InstrumentedCalculator.allocationSupported()) {
+                // 临时缓冲区按线程复用，稳态下可能完全不分配
+                assertTrue(metrics.getAllocatedBytes() >= 0);
+            }
+        }
+
+        if (InstrumentedCalculator.allocationSupported()) {
+            metrics.reset();
+            new InstrumentedCalculator(new WinnowingSimilarity(), metrics).calculate(TEXT1, TEXT2);
+            assertTrue(metrics.getAllocatedBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testProfilesAndDisabled() {
+        CalculatorMetrics metrics = new CalculatorMetrics("test");
+        InstrumentedCalculator instrumented = new InstrumentedCalculator(new CosineSimilarity(), metrics);
+        TermDictionary dictionary = new TermDictionary();
+        DocumentProfile profile1 = DocumentProfile.of(TEXT1, dictionary);
+        DocumentProfile profile2 = DocumentProfile.of(TEXT2, dictionary);
+        instrumented.calculateProfiles(profile1, profile2);
+        assertEquals(1, metrics.getCalls());
+        // profile在包装之外构建，只记录打分阶段
+        assertEquals(0, metrics.phase(CalculatorMetrics.Phase.VECTOR).count());
+        assertEquals(1, metrics.phase(CalculatorMetrics.Phase.SCORE).count());
+
+        instrumented.setEnabled(false);
+        assertFalse(instrumented.isEnabled());
+        instrumented.calculate(TEXT1, TEXT2);
+        instrumented.calculateProfiles(profile1, profile2, 0.5);
+        assertEquals(1, metrics.getCalls());
+    }
+
+    @Test
+    public void testJmxExport() throws Exception {
+        InstrumentedCalculator instrumented = new InstrumentedCalculator("jmx-test", new JaccardSimilarity());
+        instrumented.calculate(TEXT1, TEXT2);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.textcheck:type=Calculator,name=\"jmx-test\"");
+        assertEquals(1L, server.getAttribute(name, "Calls"));
+        assertEquals("jmx-test", server.getAttribute(name, "Algorithm"));
+        TabularData phases = (TabularData) server.getAttribute(name, "PhaseP50Nanos");
+        CompositeData sets = phases.get(new Object[] {"SETS"});
+        assertTrue((Long) sets.get("value") > 0);
+        assertEquals(instrumented.metrics(), CalculatorMetrics.of("jmx-test"));
+    }
+
+    @Test
+    public void testJfrEvents(@TempDir Path dir) throws Exception {
+        InstrumentedCalculator instrumented = new InstrumentedCalculator(new LevenshteinDistance(),
+                new CalculatorMetrics("jfr-test"));
+        Path file = dir.resolve("calc.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.textcheck.Calculation").withoutThreshold();
+            recording.start();
+            instrumented.calculate(TEXT1, TEXT2);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        events.removeIf(event -> !event.getEventType().getName().equals("com.textcheck.Calculation"));
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("jfr-test", event.getString("algorithm"));
+        assertEquals(TEXT1.length(), event.getLong("length1"));
+        assertTrue(event.getLong("scoreNanos") > 0);
+        assertTrue(Files.size(file) > 0);
+    }
+}
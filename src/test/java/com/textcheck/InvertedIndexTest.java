@@ -0,0 +1,83 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class InvertedIndexTest {
+
+    private static final String[] WORDS = {
+        "中", "国", "历", "史", "文", "化", "的", "是", "一", "个",
+        "hello", "world", "java", "程序", "similarity", "text", "check", "，", "。", " "
+    };
+
+    private final Random random = new Random(3);
+    private final CosineSimilarity cosine = new CosineSimilarity();
+
+    @Test
+    public void testTopKMatchesBruteForce() {
+        InvertedIndex index = new InvertedIndex();
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String text = i % 50 == 0 ? "" : randomText(5 + random.nextInt(60));
+            corpus.add(text);
+            index.add(text);
+        }
+        // 重复文档用于检验同分时按编号排序
+        corpus.add(corpus.get(7));
+        index.add(corpus.get(7));
+
+        for (int round = 0; round < 30; round++) {
+            String query = round == 0 ? corpus.get(7) : randomText(3 + random.nextInt(30));
+            for (int k : new int[] {1, 5, 20}) {
+                List<ScoredDocument> expected = bruteForce(query, corpus, k);
+                List<ScoredDocument> actual = index.topK(query, k);
+                assertEquals(expected.size(), actual.size(), "查询：" + query);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).index(), actual.get(i).index(), "查询：" + query);
+                    assertEquals(expected.get(i).score(), actual.get(i).score(), 0.0, "查询：" + query);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        InvertedIndex index = new InvertedIndex();
+        index.add("测试文本");
+        index.add("");
+        List<ScoredDocument> results = index.topK("", 10);
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).index());
+        assertEquals(1.0, results.get(0).score(), 0.0);
+    }
+
+    private List<ScoredDocument> bruteForce(String query, List<String> corpus, int k) {
+        List<ScoredDocument> all = new ArrayList<>();
+        for (int i = 0; i < corpus.size(); i++) {
+            double score = cosine.calculate(query, corpus.get(i));
+            if (score > 0) {
+                all.add(new ScoredDocument(i, score));
+            }
+        }
+        all.sort((a, b) -> a.score() != b.score()
+                ? Double.compare(b.score(), a.score()) : Integer.compare(a.index(), b.index()));
+        return all.subList(0, Math.min(k, all.size()));
+    }
+
+    private String randomText(int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            // 前几个词出现得更频繁，模拟真实文本的长尾分布
+            int index = Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length));
+            builder.append(WORDS[index]);
+            if (WORDS[index].length() > 1 || random.nextInt(4) == 0) {
+                builder.append(' ');
+            }
+        }
+        return builder.toString();
+    }
+}
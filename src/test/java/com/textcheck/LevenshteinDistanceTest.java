@@ -0,0 +1,199 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class LevenshteinDistanceTest {
+
+    private static final String ALPHABET = "的是一个中国文化历史abcxyz 0123";
+
+    private final LevenshteinDistance levenshtein = new LevenshteinDistance();
+    private final Random random = new Random(42);
+
+    @Test
+    public void testRollingRowsMatchFullMatrix() {
+        for (int round = 0; round < 200; round++) {
+            String text1 = randomText(random.nextInt(80));
+            String text2 = randomText(random.nextInt(80));
+            assertEquals(fullMatrixDistance(text1, text2), levenshtein.editDistance(text1, text2), 1e-9,
+                    "滚动数组的结果应与完整矩阵一致：" + text1 + " / " + text2);
+        }
+    }
+
+    @Test
+    public void testBandedDistance() {
+        for (int round = 0; round < 200; round++) {
+            String text1 = randomText(random.nextInt(60));
+            String text2 = mutate(text1, random.nextInt(6));
+            double expected = fullMatrixDistance(text1, text2);
+            double maxDistance = random.nextDouble() * 6;
+            double banded = levenshtein.editDistance(text1, text2, maxDistance);
+            if (expected <= maxDistance) {
+                assertEquals(expected, banded, 1e-9, "上限以内应返回精确距离");
+            } else {
+                assertEquals(Double.POSITIVE_INFINITY, banded, "超过上限应返回正无穷");
+            }
+        }
+    }
+
+    @Test
+    public void testMinSimilarityCutoff() {
+        String text1 = "中国是一个伟大的国家，有着悠久的历史文化。";
+        String text2 = "中国是一个伟大的国家，具有深厚的历史文化。";
+        double exact = levenshtein.calculate(text1, text2);
+
+        assertEquals(exact, levenshtein.calculate(text1, text2, exact), 1e-9);
+        assertEquals(exact, levenshtein.calculate(text1, text2, exact - 0.1), 1e-9);
+        assertEquals(0.0, levenshtein.calculate(text1, text2, exact + 0.01), 1e-9);
+        assertEquals(0.0, levenshtein.calculate(text1, "完全不同的另一段内容", 0.8), 1e-9);
+    }
+
+    @Test
+    public void testBitParallelDistance() {
+        assertEquals(3, BitParallelLevenshtein.distance("kitten", "sitting"));
+        assertEquals(0, BitParallelLevenshtein.distance("", ""));
+        assertEquals(4, BitParallelLevenshtein.distance("", "测试文本"));
+
+        // 覆盖多个64位块的情况
+        for (int round = 0; round < 100; round++) {
+            String text1 = randomText(random.nextInt(200));
+            String text2 = random.nextBoolean() ? mutate(text1, random.nextInt(20)) : randomText(random.nextInt(200));
+            assertEquals(unitDistance(text1, text2), BitParallelLevenshtein.distance(text1, text2),
+                    "位并行结果应与动态规划一致：" + text1 + " / " + text2);
+        }
+
+        // 字符集很大时每个码点只出现在少数块中，位向量按块稀疏保存
+        for (int round = 0; round < 20; round++) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                builder.append((char) (0x4E00 + random.nextInt(5000)));
+            }
+            String text1 = builder.toString();
+            String text2 = mutate(text1, random.nextInt(40));
+            assertEquals(unitDistance(text1, text2), BitParallelLevenshtein.distance(text1, text2));
+        }
+    }
+
+    @Test
+    public void testKernelsMatchScalar() {
+        SimilarityKernels kernels = SimilarityKernels.get();
+        SimilarityKernels scalar = SimilarityKernels.scalar();
+        // 测试JVM以--add-modules jdk.incubator.vector启动时应选中Vector API实现
+        assertEquals(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), kernels != scalar,
+                kernels.name());
+
+        for (int round = 0; round < 300; round++) {
+            int[] rows = randomText(random.nextInt(200)).codePoints().toArray();
+            int[] columns = mutate(new String(rows, 0, rows.length), random.nextInt(30)).codePoints().toArray();
+            if (rows.length < columns.length) {
+                int[] swap = rows;
+                rows = columns;
+                columns = swap;
+            }
+            double maxDistance = round % 3 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 20;
+            long band = maxDistance == Double.POSITIVE_INFINITY ? rows.length : (long) Math.floor(maxDistance / 0.8);
+            assertEquals(scalar.editDistance(rows, columns, maxDistance, band),
+                    kernels.editDistance(rows, columns, maxDistance, band), 0.0);
+
+            int[] counts = new int[random.nextInt(100)];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(100_000);
+            }
+            assertEquals(scalar.sumOfSquares(counts), kernels.sumOfSquares(counts));
+        }
+    }
+
+    @Test
+    public void testLongTextUsesLinearMemory() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            builder.append(ALPHABET.charAt(i % ALPHABET.length()));
+        }
+        String text1 = builder.toString();
+        String text2 = mutate(text1, 10);
+        // 完整矩阵需要约20GB内存，带状计算只需两行
+        double similarity = levenshtein.calculate(text1, text2, 0.99);
+        assertTrue(similarity > 0.99, "少量修改的长文本相似度应该大于0.99，实际值：" + similarity);
+    }
+
+    private String randomText(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    private String mutate(String text, int edits) {
+        StringBuilder builder = new StringBuilder(text);
+        for (int i = 0; i < edits; i++) {
+            int position = builder.length() == 0 ? 0 : random.nextInt(builder.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            int operation = builder.length() == 0 ? 0 : random.nextInt(3);
+            if (operation == 0) {
+                builder.insert(position, c);
+            } else if (operation == 1) {
+                builder.deleteCharAt(position);
+            } else {
+                builder.setCharAt(position, c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 原先基于完整矩阵的加权编辑距离，作为对照
+     */
+    private static double fullMatrixDistance(String text1, String text2) {
+        int len1 = text1.length();
+        int len2 = text2.length();
+        double[][] dp = new double[len1 + 1][len2 + 1];
+        for (int i = 0; i <= len1; i++) {
+            dp[i][0] = i;
+        }
+        for (int j = 0; j <= len2; j++) {
+            dp[0][j] = j;
+        }
+        for (int i = 1; i <= len1; i++) {
+            char c1 = text1.charAt(i - 1);
+            for (int j = 1; j <= len2; j++) {
+                char c2 = text2.charAt(j - 1);
+                if (c1 == c2) {
+                    dp[i][j] = dp[i - 1][j - 1];
+                } else {
+                    double replaceCost = isChinese(c1) && isChinese(c2) ? 0.8
+                            : !isChinese(c1) && !isChinese(c2) ? 0.6 : 1.0;
+                    dp[i][j] = Math.min(
+                        Math.min(dp[i - 1][j] + (isChinese(c1) ? 1.0 : 0.8),
+                                 dp[i][j - 1] + (isChinese(c2) ? 1.0 : 0.8)),
+                        dp[i - 1][j - 1] + replaceCost);
+                }
+            }
+        }
+        return dp[len1][len2];
+    }
+
+    private static int unitDistance(String text1, String text2) {
+        int[][] dp = new int[text1.length() + 1][text2.length() + 1];
+        for (int i = 0; i <= text1.length(); i++) {
+            dp[i][0] = i;
+        }
+        for (int j = 0; j <= text2.length(); j++) {
+            dp[0][j] = j;
+        }
+        for (int i = 1; i <= text1.length(); i++) {
+            for (int j = 1; j <= text2.length(); j++) {
+                int cost = text1.charAt(i - 1) == text2.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        return dp[text1.length()][text2.length()];
+    }
+
+    private static boolean isChinese(char c) {
+        return Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS;
+    }
+}
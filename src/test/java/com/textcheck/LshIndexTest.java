@@ -0,0 +1,77 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class LshIndexTest {
+
+    private static final String CHARACTERS = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处队南给色光门即保治北造百规热领七海口东导器压志世金增争济阶油思术极交受联什认六共权收证改清己美再采转更单风切打白教速花带安场身车例真务具万每目至达走积示议声报斗完类八离华名确才科张信马节话米整空元况今集温传土许步群广石记需段研界拉林律叫且究观越织装影算低持音众书布复容儿须际商非验连断深难近矿千周委素技备半办青省列习响约支般史感劳便团往酸历市克何除消构府称太准精值号率族维划选标写存候毛亲快效斯院查江型眼王按格养易置派层片始却专状育厂京识适属圆包火住调满县局照参红细引听该铁价严";
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void testFindsNearDuplicates() {
+        LshIndex index = new LshIndex(32, 4);
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            corpus.add(randomText(200));
+            index.add(corpus.get(i));
+        }
+
+        String original = corpus.get(123);
+        String nearDuplicate = mutate(original, 5);
+        List<ScoredDocument> estimated = index.findSimilar(nearDuplicate, 0.7);
+        assertTrue(!estimated.isEmpty() && estimated.get(0).index() == 123,
+                "应找到近似重复的文档：" + estimated);
+
+        // 精确重排返回JaccardSimilarity的原始分数
+        List<ScoredDocument> exact = index.findSimilar(DocumentProfile.of(nearDuplicate, index.dictionary()), 0.7, true);
+        assertEquals(123, exact.get(0).index());
+        assertEquals(new JaccardSimilarity().calculate(nearDuplicate, original), exact.get(0).score(), 1e-12);
+
+        // 无关的随机文本不应成为结果
+        assertTrue(index.findSimilar(randomText(200), 0.7).isEmpty());
+    }
+
+    @Test
+    public void testEstimationError() {
+        LshIndex index = new LshIndex(32, 4);
+        String base = randomText(300);
+        for (int i = 0; i < 60; i++) {
+            index.add(mutate(base, random.nextInt(150)));
+        }
+        MinHashReport report = index.evaluate(60);
+        assertEquals(60 * 59 / 2, report.pairs());
+        assertTrue(report.meanAbsoluteError() < 0.05, "平均误差过大：" + report);
+        assertTrue(report.maxAbsoluteError() < 0.25, "最大误差过大：" + report);
+    }
+
+    @Test
+    public void testCandidateProbability() {
+        LshIndex index = new LshIndex(20, 5);
+        assertEquals(1 - Math.exp(-1), index.candidateProbability(index.threshold()), 0.05);
+        assertTrue(index.candidateProbability(0.9) > 0.99);
+        assertTrue(index.candidateProbability(0.2) < 0.01);
+    }
+
+    private String randomText(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        }
+        return builder.toString();
+    }
+
+    private String mutate(String text, int edits) {
+        StringBuilder builder = new StringBuilder(text);
+        for (int i = 0; i < edits; i++) {
+            builder.setCharAt(random.nextInt(builder.length()), CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        }
+        return builder.toString();
+    }
+}
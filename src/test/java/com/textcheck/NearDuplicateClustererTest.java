@@ -0,0 +1,175 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class NearDuplicateClustererTest {
+
+    private static final String[] WORDS = {"自然", "语言", "处理", "相似度", "文本", "检测", "算法", "数据",
+            "model", "index", "cluster", "token", "hash", "query", "score", "vector", "段落", "重复", "语料", "签名"};
+
+    @Test
+    public void testClustersMatchConnectedComponents() throws IOException {
+        Random random = new Random(17);
+        TermDictionary dictionary = new TermDictionary();
+        List<DocumentProfile> corpus = new ArrayList<>();
+        for (int base = 0; base < 60; base++) {
+            String text = randomText(random, 30);
+            corpus.add(DocumentProfile.of(text, dictionary));
+            // 每个原文派生0到4个近似重复，逐个在上一个的基础上修改，形成链
+            int copies = random.nextInt(5);
+            for (int c = 0; c < copies; c++) {
+                text = mutate(random, text);
+                corpus.add(DocumentProfile.of(text, dictionary));
+            }
+        }
+        // 打乱顺序，簇的成员不再相邻
+        List<DocumentProfile> shuffled = new ArrayList<>(corpus);
+        Collections.shuffle(shuffled, random);
+
+        double threshold = 0.6;
+        JaccardSimilarity jaccard = new JaccardSimilarity();
+        int[] expected = components(shuffled, jaccard, threshold);
+
+        // 64段×2行时相似度0.6的文档对几乎必然成为候选
+        NearDuplicateClusterer clusterer = new NearDuplicateClusterer(jaccard, threshold, 64, 2);
+        assertArrayEquals(expected, clusterer.cluster(shuffled));
+
+        // 流式输出只包含多于一个文档的簇，按文档编号升序
+        List<int[]> assignments = new ArrayList<>();
+        NearDuplicateClusterer.Summary summary = clusterer.cluster(shuffled.size(), shuffled::get,
+                (document, cluster) -> assignments.add(new int[] {document, cluster}));
+        int[] sizes = new int[expected.length];
+        for (int cluster : expected) {
+            sizes[cluster]++;
+        }
+        int previous = -1;
+        for (int[] assignment : assignments) {
+            assertTrue(assignment[0] > previous);
+            previous = assignment[0];
+            assertEquals(expected[assignment[0]], assignment[1]);
+            assertTrue(sizes[assignment[1]] >= 2);
+        }
+        assertEquals(IntStream.of(sizes).filter(size -> size >= 2).sum(), assignments.size());
+        assertEquals(IntStream.of(sizes).filter(size -> size >= 2).count(), summary.clusters());
+        assertEquals(assignments.size(), summary.clusteredDocuments());
+        // 每次合并减少一个簇
+        assertEquals(summary.clusteredDocuments() - summary.clusters(), summary.merges());
+        assertTrue(summary.comparisons() >= summary.merges());
+    }
+
+    @Test
+    public void testMissingProfilesAndDuplicateBuckets() throws IOException {
+        // 大量完全相同的文档落入同一个桶，每个文档只需合并一次
+        Random random = new Random(23);
+        TermDictionary dictionary = new TermDictionary();
+        List<DocumentProfile> corpus = new ArrayList<>();
+        DocumentProfile duplicate = DocumentProfile.of("完全相同的文本 same text", dictionary);
+        for (int i = 0; i < 3000; i++) {
+            corpus.add(i % 3 == 0 ? DocumentProfile.of(randomText(random, 20), dictionary) : duplicate);
+        }
+        NearDuplicateClusterer clusterer = new NearDuplicateClusterer(new CosineSimilarity(), 0.9, 16, 4);
+        List<Integer> documents = new ArrayList<>();
+        NearDuplicateClusterer.Summary summary = clusterer.cluster(corpus.size(),
+                id -> id == 1 ? null : corpus.get(id), (document, cluster) -> {
+                    assertEquals(2, cluster);
+                    documents.add(document);
+                });
+        assertEquals(1, summary.missing());
+        assertEquals(1, summary.clusters());
+        assertEquals(1999, documents.size());
+        assertEquals(1998, summary.merges());
+        assertTrue(summary.comparisons() < 10 * 2000, summary.toString());
+    }
+
+    @Test
+    public void testPairsBeyondWindowInEarlierBand() {
+        // 第0段中两个相同的文档与大量填充文档同桶且相距超过窗口，第1段中只有它们同桶，必须在第1段比较
+        TermDictionary dictionary = new TermDictionary();
+        MinHash minHash = new MinHash(2, 42L);
+        DocumentProfile filler = DocumentProfile.of("filler", dictionary);
+        long[] fillerSignature = minHash.signature(filler);
+        DocumentProfile duplicate = null;
+        for (int i = 0; duplicate == null; i++) {
+            DocumentProfile candidate = DocumentProfile.of("filler word" + i, dictionary);
+            long[] signature = minHash.signature(candidate);
+            if (signature[0] == fillerSignature[0] && signature[1] != fillerSignature[1]) {
+                duplicate = candidate;
+            }
+        }
+        List<DocumentProfile> corpus = new ArrayList<>();
+        corpus.add(duplicate);
+        for (int i = 0; i <= NearDuplicateClusterer.WINDOW; i++) {
+            corpus.add(filler);
+        }
+        corpus.add(duplicate);
+
+        int[] clusters = new NearDuplicateClusterer(new JaccardSimilarity(), 0.9, 2, 1).cluster(corpus);
+        assertEquals(0, clusters[corpus.size() - 1]);
+        for (int id = 1; id < corpus.size() - 1; id++) {
+            assertEquals(1, clusters[id]);
+        }
+    }
+
+    @Test
+    public void testConcurrentUnions() {
+        DisjointSets sets = new DisjointSets(10000);
+        // 偶数和奇数各自连成一条链
+        IntStream.range(2, 10000).parallel().forEach(i -> sets.union(i, i - 2));
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 2, sets.find(i));
+        }
+        assertTrue(sets.connected(9998, 0));
+        assertTrue(!sets.connected(9999, 0));
+    }
+
+    /**
+     * 两两精确比较后求连通分量，作为对照
+     */
+    private static int[] components(List<DocumentProfile> corpus, SimilarityCalculator calculator, double threshold) {
+        int[] parent = IntStream.range(0, corpus.size()).toArray();
+        for (SimilarPair pair : new BatchSimilarityEngine(calculator).allPairsOfProfiles(corpus, threshold)) {
+            int a = root(parent, pair.first());
+            int b = root(parent, pair.second());
+            parent[Math.max(a, b)] = Math.min(a, b);
+        }
+        int[] roots = new int[corpus.size()];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = root(parent, i);
+        }
+        return roots;
+    }
+
+    private static int root(int[] parent, int x) {
+        while (parent[x] != x) {
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static String mutate(Random random, String text) {
+        String[] words = text.split(" ");
+        words[random.nextInt(words.length)] = WORDS[random.nextInt(WORDS.length)];
+        return String.join(" ", words);
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(50));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PlagiarismScannerTest {
+
+    private static final String ORIGINAL = "自然语言处理是人工智能领域中的一个重要方向，它研究能实现人与计算机之间用自然语言进行有效通信的各种理论和方法。";
+
+    @Test
+    public void testScanFindsCopiedFiles(@TempDir Path dir) throws IOException, InterruptedException {
+        List<Path> files = Arrays.asList(
+                write(dir, "a.txt", ORIGINAL),
+                write(dir, "b.txt", ORIGINAL + "这是抄袭的版本。"),
+                write(dir, "c.txt", "今天天气很好，我们一起去公园散步吧，顺便买点水果回家。"),
+                dir.resolve("missing.txt"));
+
+        for (boolean exhaustive : new boolean[] {false, true}) {
+            StringWriter out = new StringWriter();
+            PlagiarismScanner scanner = new PlagiarismScanner(new CosineSimilarity(), 0.8, 2, 2, 2, exhaustive, 32, 4);
+            long pairs = scanner.scan(files, new ScanResultWriter(out, ScanResultWriter.Format.CSV));
+
+            String[] lines = out.toString().split("\n");
+            assertEquals(1, pairs);
+            assertEquals("file1,file2,score", lines[0]);
+            assertEquals(2, lines.length);
+            assertTrue(lines[1].contains("a.txt") && lines[1].contains("b.txt"), lines[1]);
+        }
+    }
+
+    @Test
+    public void testWeightedScanUsesWholeCorpus(@TempDir Path dir) throws IOException, InterruptedException {
+        String[] texts = {ORIGINAL, ORIGINAL + "这是抄袭的版本。", "自然语言处理研究人与计算机之间的通信。",
+                "今天天气很好，我们一起去公园散步吧。", "人工智能领域的重要方向", "计算机之间用自然语言进行通信"};
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            files.add(write(dir, i + ".txt", texts[i]));
+        }
+        // 期望值：先统计全部文档的文档频率再两两打分
+        DocumentFrequencies all = new DocumentFrequencies(new TermDictionary());
+        for (String text : texts) {
+            all.add(text);
+        }
+        WeightedCosineSimilarity expected = new WeightedCosineSimilarity(all, WeightedCosineSimilarity.Weighting.TF_IDF);
+
+        for (int run = 0; run < 3; run++) {
+            // 包装为InstrumentedCalculator后仍要识别出IDF加权的算法
+            SimilarityCalculator calculator = new InstrumentedCalculator("tfidf", new WeightedCosineSimilarity(
+                    new DocumentFrequencies(new TermDictionary()), WeightedCosineSimilarity.Weighting.TF_IDF));
+            StringWriter out = new StringWriter();
+            PlagiarismScanner scanner = new PlagiarismScanner(calculator, 0.0, 2, 3, 1, true, 32, 4);
+            assertEquals(texts.length * (texts.length - 1) / 2,
+                         scanner.scan(files, new ScanResultWriter(out, ScanResultWriter.Format.CSV)));
+
+            Map<String, String> scores = new HashMap<>();
+            for (String line : out.toString().split("\n")) {
+                String[] fields = line.split(",");
+                scores.put(fields[0].compareTo(fields[1]) < 0 ? fields[0] + fields[1] : fields[1] + fields[0], fields[2]);
+            }
+            for (int i = 0; i < texts.length; i++) {
+                for (int j = i + 1; j < texts.length; j++) {
+                    String score = String.format(Locale.ROOT, "%.4f", expected.calculate(texts[i], texts[j]));
+                    assertEquals(score, scores.get(files.get(i).toString() + files.get(j)), i + "/" + j);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testJsonLinesEscaping() throws IOException {
+        StringWriter out = new StringWriter();
+        ScanResultWriter writer = new ScanResultWriter(out, ScanResultWriter.Format.JSONL);
+        writer.write(Path.of("a\"b.txt"), Path.of("c,d.txt"), 0.91234);
+        assertEquals("{\"file1\":\"a\\\"b.txt\",\"file2\":\"c,d.txt\",\"score\":0.9123}\n", out.toString());
+    }
+
+    private static Path write(Path dir, String name, String text) throws IOException {
+        return Files.write(dir.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
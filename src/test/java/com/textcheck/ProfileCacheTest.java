@@ -0,0 +1,125 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class ProfileCacheTest {
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        ProfileCache cache = new ProfileCache(ProfileCache.Policy.LRU, 2);
+        DocumentProfile a = cache.get("甲");
+        cache.get("乙");
+        assertSame(a, cache.get("甲"));
+        cache.get("丙");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(a, cache.get("甲"));
+        cache.get("乙");
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    public void testLfuEvictsLeastFrequentlyUsed() {
+        ProfileCache cache = new ProfileCache(ProfileCache.Policy.LFU, 2);
+        DocumentProfile a = cache.get("甲");
+        cache.get("甲");
+        cache.get("甲");
+        DocumentProfile b = cache.get("乙");
+        cache.get("乙");
+        cache.get("丙");
+
+        assertEquals(1, cache.evictionCount());
+        assertSame(a, cache.get("甲"));
+        assertTrue(cache.get("乙") != b);
+    }
+
+    @Test
+    public void testWeightByLength() {
+        ProfileCache cache = new ProfileCache(ProfileCache.Policy.LRU, 10, ProfileCache.BY_LENGTH,
+                new TermDictionary());
+        cache.get("一二三四五");
+        cache.get("六七八九十");
+        assertEquals(10, cache.weight());
+        cache.get("abc");
+        assertEquals(8, cache.weight());
+        assertEquals(1, cache.evictionCount());
+
+        // 超过容量的条目不缓存
+        cache.get("这段文本的长度已经超过了缓存容量");
+        assertEquals(8, cache.weight());
+    }
+
+    @Test
+    public void testDictionaryStaysBounded() {
+        // 每段文本都带有新词，淘汰条目不会释放词典中的词，超过上限时更换词典
+        ProfileCache cache = new ProfileCache(ProfileCache.Policy.LRU, 16, profile -> 1, 1000);
+        CosineSimilarity cosine = new CosineSimilarity(cache);
+        CosineSimilarity uncached = new CosineSimilarity();
+        for (int i = 0; i < 20000; i++) {
+            String text1 = "word" + i + " shared 文本" + (i % 7);
+            String text2 = "term" + i + " shared 文本" + (i % 5);
+            assertEquals(uncached.calculate(text1, text2), cosine.calculate(text1, text2), 1e-12);
+            assertTrue(cache.dictionary().size() <= 1000 + 8, String.valueOf(cache.dictionary().size()));
+            assertTrue(cache.size() <= 16);
+        }
+        DocumentProfile[] profiles = cache.get("甲 乙", "乙 丙");
+        assertSame(profiles[0].dictionary(), profiles[1].dictionary());
+        assertSame(cache.dictionary(), cache.get("甲 乙").dictionary());
+    }
+
+    @Test
+    public void testCachedCalculatorsMatchUncached() {
+        String[] texts = {"我喜欢编程", "我很喜欢写程序", "Hello, world! 你好世界", "", "这是一个测试"};
+        ProfileCache cache = new ProfileCache(ProfileCache.Policy.LFU, 100);
+        SimilarityCalculator[][] pairs = {
+            {new CosineSimilarity(), new CosineSimilarity(cache)},
+            {new JaccardSimilarity(), new JaccardSimilarity(cache)},
+            {new LevenshteinDistance(), new LevenshteinDistance(cache)}
+        };
+        for (int round = 0; round < 2; round++) {
+            for (String text1 : texts) {
+                for (String text2 : texts) {
+                    for (SimilarityCalculator[] pair : pairs) {
+                        assertEquals(pair[0].calculate(text1, text2), pair[1].calculate(text1, text2), 1e-12);
+                    }
+                }
+            }
+        }
+        assertTrue(cache.hitRate() > 0.5);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ProfileCache cache = new ProfileCache(ProfileCache.Policy.LRU, 64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String text = "文档" + (i % 100);
+                        assertEquals(text, cache.get(text).text());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8000, cache.hitCount() + cache.missCount());
+        assertTrue(cache.size() <= 64);
+    }
+}
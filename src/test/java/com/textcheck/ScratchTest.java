@@ -0,0 +1,154 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class ScratchTest {
+
+    private static final String[] WORDS = {"自然", "语言", "处理", "人工", "智能", "text", "Check", "2024", "，", "。", " ", "\t", "\n"};
+
+    @Test
+    public void testSharedInstancesUnderConcurrency() throws Exception {
+        SimilarityCalculator[] calculators = {new CosineSimilarity(), new JaccardSimilarity(), new LevenshteinDistance()};
+        Random random = new Random(3);
+        String[] texts = new String[40];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = randomText(random, 5 + random.nextInt(i < 20 ? 30 : 300));
+        }
+
+        // 单线程的结果作为基准，并与基于TermDictionary和TokenSetCollector的计算逐位一致
+        double[][] expected = new double[calculators.length][texts.length * texts.length];
+        for (int c = 0; c < calculators.length; c++) {
+            for (int i = 0; i < texts.length; i++) {
+                for (int j = 0; j < texts.length; j++) {
+                    expected[c][i * texts.length + j] = calculators[c].calculate(texts[i], texts[j]);
+                }
+            }
+        }
+        for (int i = 0; i < texts.length; i++) {
+            for (int j = 0; j < texts.length; j++) {
+                assertEquals(referenceCosine(texts[i], texts[j]), expected[0][i * texts.length + j], 0.0);
+                assertEquals(referenceJaccard(texts[i], texts[j]), expected[1][i * texts.length + j], 0.0);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> {
+                    Random order = new Random(seed);
+                    for (int k = 0; k < 2000; k++) {
+                        int c = order.nextInt(calculators.length);
+                        int i = order.nextInt(texts.length);
+                        int j = order.nextInt(texts.length);
+                        assertEquals(expected[c][i * texts.length + j], calculators[c].calculate(texts[i], texts[j]), 0.0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSteadyStateAllocatesNothing() {
+        if (!InstrumentedCalculator.allocationSupported()) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        String text1 = randomText(new Random(1), 200);
+        String text2 = randomText(new Random(2), 200);
+        SimilarityCalculator[] calculators = {new CosineSimilarity(), new JaccardSimilarity(), new LevenshteinDistance()};
+        for (SimilarityCalculator calculator : calculators) {
+            for (int i = 0; i < 2000; i++) {
+                calculator.calculate(text1, text2);
+            }
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100; i++) {
+                calculator.calculate(text1, text2);
+            }
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            // 允许计数本身的少量开销
+            assertTrue(allocated < 100 * 64, calculator.getClass().getSimpleName() + ": " + allocated);
+        }
+    }
+
+    @Test
+    public void testNestedAcquireAndNormalization() {
+        try (Scratch outer = Scratch.acquire()) {
+            try (Scratch nested = Scratch.acquire()) {
+                assertNotSame(outer, nested);
+            }
+            int[] buffer = outer.ints(Scratch.CODE_POINTS_1, 10);
+            assertSame(buffer, outer.ints(Scratch.CODE_POINTS_1, 5));
+        }
+        try (Scratch again = Scratch.acquire()) {
+            assertTrue(again.ints(Scratch.CODE_POINTS_1, 1).length >= 10);
+        }
+
+        Random random = new Random(5);
+        String[] samples = {"", "   ", "\u0001a\u0001", " a \t\n b ", "　全角　空格　", "a\u000Bb\fc\rd", "𠀀 \t𠀁"};
+        List<String> texts = new ArrayList<>(Arrays.asList(samples));
+        for (int i = 0; i < 50; i++) {
+            texts.add(randomText(random, random.nextInt(20)));
+        }
+        for (String text : texts) {
+            int[] codePoints = new int[text.length()];
+            int length = LevenshteinDistance.normalizedCodePoints(text, codePoints);
+            assertArrayEquals(LevenshteinDistance.normalizeText(text).codePoints().toArray(),
+                    Arrays.copyOf(codePoints, length), text);
+        }
+    }
+
+    private static double referenceCosine(String text1, String text2) {
+        if (text1.isEmpty() || text2.isEmpty()) {
+            return text1.isEmpty() && text2.isEmpty() ? 1.0 : 0.0;
+        }
+        TermDictionary dictionary = new TermDictionary();
+        TermVector vector1 = CosineSimilarity.getTermFrequencyVector(text1, dictionary);
+        TermVector vector2 = CosineSimilarity.getTermFrequencyVector(text2, dictionary);
+        if (vector1.isEmpty() || vector2.isEmpty()) {
+            return 0.0;
+        }
+        return vector1.dot(vector2) / (vector1.norm() * vector2.norm());
+    }
+
+    private static double referenceJaccard(String text1, String text2) {
+        if (text1.isEmpty() || text2.isEmpty()) {
+            return text1.isEmpty() && text2.isEmpty() ? 1.0 : 0.0;
+        }
+        // profile中的集合仍由TokenSetCollector构建
+        TermDictionary dictionary = new TermDictionary();
+        DocumentProfile profile1 = DocumentProfile.of(text1, dictionary);
+        DocumentProfile profile2 = DocumentProfile.of(text2, dictionary);
+        return new JaccardSimilarity().calculateProfiles(profile1, profile2);
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SimilarityCheckerTest {
+
+    @Test
+    public void testBatchMode() throws IOException {
+        SimilarityChecker checker = SimilarityChecker.parseDirect(new String[] {"--stdin", "-a", "jaccard"});
+        assertNotNull(checker);
+        String input = "自然语言处理\t自然语言\n"
+                + "{\"text1\":\"第一行\\n第二行\",\"text2\":\"第一行 第二行\"}\n"
+                + "没有制表符\n"
+                + "\t\n";
+        StringWriter output = new StringWriter();
+        assertEquals(1, checker.batch(new BufferedReader(new StringReader(input)), output));
+
+        JaccardSimilarity jaccard = new JaccardSimilarity();
+        String expected = format(jaccard.calculate("自然语言处理", "自然语言")) + "\n"
+                + format(jaccard.calculate("第一行\n第二行", "第一行 第二行")) + "\n"
+                + "NaN\n"
+                + format(1.0) + "\n";
+        assertEquals(expected, output.toString());
+    }
+
+    @Test
+    public void testCorpusAlgorithmsRequireIndex(@TempDir Path dir) throws IOException {
+        // 没有语料时所有词的IDF相同，直接拒绝
+        SimilarityChecker checker = SimilarityChecker.parseDirect(new String[] {"--stdin", "-a", "tfidf"});
+        assertThrows(IllegalArgumentException.class,
+                     () -> checker.batch(new BufferedReader(new StringReader("")), new StringWriter()));
+        assertThrows(IllegalArgumentException.class, () -> SimilarityChecker.createCalculator("bm25"));
+
+        Path index = dir.resolve("corpus.idx");
+        try (CorpusStore store = CorpusStore.open(index)) {
+            store.add("a", "自然语言处理的基本方法");
+            store.add("b", "自然语言处理与文本检索");
+            store.add("c", "图像识别的基本方法");
+        }
+        WeightedCosineSimilarity expected;
+        try (CorpusStore store = CorpusStore.open(index)) {
+            expected = new WeightedCosineSimilarity(DocumentFrequencies.of(store),
+                                                    WeightedCosineSimilarity.Weighting.TF_IDF);
+        }
+        SimilarityChecker indexed = SimilarityChecker.parseDirect(
+                new String[] {"--stdin", "-a", "tfidf", "--index", index.toString()});
+        StringWriter output = new StringWriter();
+        assertEquals(0, indexed.batch(new BufferedReader(new StringReader("自然语言的方法\t基本方法\n")), output));
+        assertEquals(format(expected.calculate("自然语言的方法", "基本方法")) + "\n", output.toString());
+    }
+
+    @Test
+    public void testFileErrorsExitNonZero(@TempDir Path dir) throws IOException {
+        // 读取失败时返回非0，调用jar的脚本可以据此判断
+        String missing = dir.resolve("missing.txt").toString();
+        assertEquals(1, SimilarityChecker.parseDirect(new String[] {"-f", missing, missing}).call());
+        assertEquals(1, SimilarityChecker.parseDirect(new String[] {"-f", missing}).call());
+    }
+
+    @Test
+    public void testDirectParsingFallsBackToPicocli() {
+        assertNotNull(SimilarityChecker.parseDirect(new String[0]));
+        assertNotNull(SimilarityChecker.parseDirect(new String[] {"-f", "a.txt", "b.txt", "--algorithm=levenshtein"}));
+        assertNotNull(SimilarityChecker.parseDirect(new String[] {"hello", "scan"}));
+        // 子命令、帮助、缺少取值的选项和多余的文本都交给picocli
+        assertNull(SimilarityChecker.parseDirect(new String[] {"scan", "dir"}));
+        assertNull(SimilarityChecker.parseDirect(new String[] {"--help"}));
+        assertNull(SimilarityChecker.parseDirect(new String[] {"a", "b", "-a"}));
+        assertNull(SimilarityChecker.parseDirect(new String[] {"a", "b", "c"}));
+        assertNull(SimilarityChecker.parseDirect(new String[] {"-fa", "jaccard", "a", "b"}));
+    }
+
+    private static String format(double similarity) {
+        return String.format(Locale.ROOT, "%.4f", similarity);
+    }
+}
@@ -0,0 +1,159 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SimilarityServerTest {
+
+    private static final String REFERENCE = "自然语言处理是人工智能领域中的一个重要方向，它研究能实现人与计算机之间用自然语言进行有效通信的各种理论和方法。";
+
+    private static final String[] CANDIDATES = {
+            REFERENCE + "这是抄袭的版本。",
+            "今天天气很好，我们一起去公园散步吧，顺便买点水果回家。",
+            "自然语言处理研究人与计算机之间用自然语言进行有效通信的方法。",
+            ""
+    };
+
+    private SimilarityServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void start() throws IOException {
+        server = new SimilarityServer(new InetSocketAddress("127.0.0.1", 0), 8, 50, 64);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testEndpointsMatchCalculators() throws Exception {
+        for (String algorithm : SimilarityChecker.ALGORITHMS) {
+            if (SimilarityChecker.CORPUS_ALGORITHMS.contains(algorithm)) {
+                // 服务没有语料，需要统计IDF的算法直接拒绝
+                post("/similarity", "{\"text1\":\"a\",\"text2\":\"b\",\"algorithm\":\"" + algorithm + "\"}", 400);
+                continue;
+            }
+            SimilarityCalculator calculator = SimilarityChecker.createCalculator(algorithm);
+            StringBuilder candidates = new StringBuilder();
+            for (String candidate : CANDIDATES) {
+                Map<?, ?> response = post("/similarity", "{\"text1\":" + Json.quote(REFERENCE)
+                        + ",\"text2\":" + Json.quote(candidate) + ",\"algorithm\":\"" + algorithm + "\"}", 200);
+                assertEquals(calculator.calculate(REFERENCE, candidate), (Double) response.get("similarity"), 1e-6,
+                        algorithm);
+                candidates.append(candidates.length() == 0 ? "" : ",").append(Json.quote(candidate));
+            }
+
+            Map<?, ?> response = post("/batch", "{\"reference\":" + Json.quote(REFERENCE)
+                    + ",\"candidates\":[" + candidates + "],\"algorithm\":\"" + algorithm + "\"}", 200);
+            List<?> scores = (List<?>) response.get("scores");
+            assertEquals(CANDIDATES.length, scores.size());
+            for (int i = 0; i < CANDIDATES.length; i++) {
+                assertEquals(calculator.calculate(REFERENCE, CANDIDATES[i]), (Double) scores.get(i), 1e-6, algorithm);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsAreBatched() throws Exception {
+        int requests = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<Map<?, ?>>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                String candidate = CANDIDATES[i % CANDIDATES.length];
+                futures.add(executor.submit(() -> post("/similarity", "{\"text1\":" + Json.quote(REFERENCE)
+                        + ",\"text2\":" + Json.quote(candidate) + "}", 200)));
+            }
+            CosineSimilarity cosine = new CosineSimilarity();
+            for (int i = 0; i < requests; i++) {
+                double expected = cosine.calculate(REFERENCE, CANDIDATES[i % CANDIDATES.length]);
+                assertEquals(expected, (Double) futures.get(i).get().get("similarity"), 1e-6);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<?, ?> metrics = get("/metrics");
+        double batches = (Double) metrics.get("batches");
+        assertEquals(requests, (Double) metrics.get("batchedRequests"), 0.0);
+        assertTrue(batches < requests, "batches=" + batches);
+        Map<?, ?> similarity = (Map<?, ?>) ((Map<?, ?>) metrics.get("endpoints")).get("similarity");
+        assertEquals(requests, (Double) similarity.get("requests"), 0.0);
+        assertTrue((Double) similarity.get("p99Millis") >= (Double) similarity.get("p50Millis"));
+    }
+
+    @Test
+    public void testBadRequests() throws Exception {
+        assertTrue(post("/similarity", "{\"text1\":\"a\"", 400).get("error").toString().contains("JSON"));
+        assertTrue(post("/similarity", "{\"text1\":\"a\"}", 400).get("error").toString().contains("text2"));
+        post("/similarity", "{\"text1\":\"a\",\"text2\":\"b\",\"algorithm\":\"md5\"}", 400);
+        post("/batch", "{\"reference\":\"a\",\"candidates\":[1]}", 400);
+        assertEquals(405, client.send(HttpRequest.newBuilder(uri("/similarity")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500.0, histogram.mean(), 1e-6);
+        assertEquals(500_000, histogram.percentile(0.5), 500_000 / 16.0);
+        assertEquals(990_000, histogram.percentile(0.99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.max());
+        for (long value : new long[] {0, 1, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.lowerBound(bucket) <= value, String.valueOf(value));
+        }
+    }
+
+    @Test
+    public void testJsonParse() {
+        Object value = Json.parse(" {\"a\": [1, -2.5e1, true, null, \"\\u4e2d\\n\"], \"b\": {}} ");
+        assertEquals(Arrays.asList(1.0, -25.0, true, null, "中\n"), ((Map<?, ?>) value).get("a"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[1,]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{} x"));
+    }
+
+    private Map<?, ?> post(String path, String body, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri(path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(expectedStatus, response.statusCode(), response.body());
+        return (Map<?, ?>) Json.parse(response.body());
+    }
+
+    private Map<?, ?> get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri(path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return (Map<?, ?>) Json.parse(response.body());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.port() + path);
+    }
+}
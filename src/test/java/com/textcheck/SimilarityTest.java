@@ -2,7 +2,13 @@ package com.textcheck;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class SimilarityTest {
 
@@ -125,4 +131,100 @@ public class SimilarityTest {
         assertTrue(shortTextSim > 0.2 && shortTextSim < 0.6,
                 "短文本的Jaccard相似度应该在0.2-0.6之间，实际值：" + shortTextSim);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFileComparison(@TempDir Path dir) throws IOException {
+        // 构造跨越解码缓冲区边界的长文本，检验流式读取与直接比较的结果一致
+        StringBuilder builder1 = new StringBuilder();
+        StringBuilder builder2 = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            builder1.append("中国是一个伟大的国家，有着悠久的历史文化。Hello world ").append(i).append('\n');
+            builder2.append("中国是一个伟大的国家，具有深厚的历史文化。Hello there ").append(i % 7).append('\n');
+        }
+        String text1 = builder1.toString();
+        String text2 = builder2.toString();
+        Path file1 = Files.write(dir.resolve("a.txt"), text1.getBytes(StandardCharsets.UTF_8));
+        Path file2 = Files.write(dir.resolve("b.txt"), text2.getBytes(StandardCharsets.UTF_8));
+        Path empty = Files.write(dir.resolve("empty.txt"), new byte[0]);
+
+        assertEquals(text1, MappedTextReader.readFully(file1));
+        assertEquals(cosine.calculate(text1, text2), cosine.calculateFiles(file1, file2), 1e-9);
+        assertEquals(jaccard.calculate(text1, text2), jaccard.calculateFiles(file1, file2), 1e-9);
+        assertEquals(0.0, cosine.calculateFiles(file1, empty), 0.001);
+        assertEquals(1.0, jaccard.calculateFiles(empty, empty), 0.001);
+    }
+
+    @Test
+    public void testDocumentProfile() {
+        String[] texts = {
+            "中国是一个伟大的国家，有着悠久的历史文化。",
+            "中国是一个伟大的国家，具有深厚的历史文化。",
+            "Hello, World! 你好世界",
+            "软件开发",
+            ""
+        };
+        TermDictionary dictionary = new TermDictionary();
+        DocumentProfile[] profiles = new DocumentProfile[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            profiles[i] = DocumentProfile.of(texts[i], dictionary);
+        }
+
+        // 预处理后的打分应与直接按原文计算完全一致
+        for (SimilarityCalculator calculator : new SimilarityCalculator[] {cosine, levenshtein, jaccard}) {
+            for (int i = 0; i < texts.length; i++) {
+                for (int j = 0; j < texts.length; j++) {
+                    assertEquals(calculator.calculate(texts[i], texts[j]),
+                            calculator.calculateProfiles(profiles[i], profiles[j]), 1e-12,
+                            calculator.getClass().getSimpleName() + "：" + texts[i] + " / " + texts[j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMinSimilarity() {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            longText.append("第").append(i).append("段文本用于测试相似度阈值，");
+        }
+        // 超过一个分块的文本，覆盖收集第二段文本时的分块上界
+        StringBuilder otherText = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            otherText.append("term").append(i).append(' ');
+        }
+        String[] texts = {
+            "中国是一个伟大的国家，有着悠久的历史文化。",
+            "中国是一个伟大的国家，具有深厚的历史文化。",
+            "中国是一个伟大的国家",
+            "Hello, World! 你好世界",
+            "软件开发",
+            longText.toString(),
+            longText.substring(0, longText.length() / 2),
+            otherText.toString(),
+            longText + otherText.toString(),
+            ""
+        };
+        double[] thresholds = {0.0, 0.3, 0.5, 0.8, 0.95, 1.0};
+
+        // 带阈值的结果与先完整计算再比较一致：达到阈值时为精确值，否则为0
+        TermDictionary dictionary = new TermDictionary();
+        for (SimilarityCalculator calculator : new SimilarityCalculator[] {cosine, levenshtein, jaccard}) {
+            for (String text1 : texts) {
+                for (String text2 : texts) {
+                    double exact = calculator.calculate(text1, text2);
+                    DocumentProfile profile1 = DocumentProfile.of(text1, dictionary);
+                    DocumentProfile profile2 = DocumentProfile.of(text2, dictionary);
+                    for (double threshold : thresholds) {
+                        double expected = exact >= threshold ? exact : 0.0;
+                        String message = calculator.getClass().getSimpleName() + "：" + text1 + " / " + text2
+                                + " @" + threshold;
+                        assertEquals(expected, calculator.calculate(text1, text2, threshold), 1e-12, message);
+                        assertEquals(expected, calculator.calculateProfiles(profile1, profile2, threshold), 1e-12,
+                                message);
+                        assertEquals(exact >= threshold, calculator.exceeds(text1, text2, threshold), message);
+                    }
+                }
+            }
+        }
+    }
+}
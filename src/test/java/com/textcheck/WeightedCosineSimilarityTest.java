@@ -0,0 +1,128 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class WeightedCosineSimilarityTest {
+
+    /** 只共享“的”“是”“了”等高频字的两段文本 */
+    private static final String COMMON1 = "我的书是新的，你的笔是旧的，他的包是红的了。";
+    private static final String COMMON2 = "猫的窝是暖的，狗的碗是满的，鸟的笼是空的了。";
+
+    @Test
+    public void testIdfSuppressesCommonCharacters() {
+        DocumentFrequencies frequencies = new DocumentFrequencies(new TermDictionary());
+        String[] corpus = {
+                "今天的天气是晴朗的，我们的计划是去公园了。",
+                "这是我的朋友，他的名字是小明，他是老师的儿子。",
+                "我们的目标是完成项目的开发，时间是下个月的月底。",
+                "会议的内容是讨论明年的预算，地点是公司的会议室。",
+                COMMON1,
+                COMMON2
+        };
+        for (String text : corpus) {
+            frequencies.add(text);
+        }
+        assertEquals(corpus.length, frequencies.documentCount());
+        int de = frequencies.dictionary().lookup("的");
+        assertEquals(corpus.length, frequencies.documentFrequency(de));
+        assertTrue(frequencies.idf(de) < frequencies.idf(frequencies.dictionary().lookup("猫")));
+
+        double plain = new CosineSimilarity().calculate(COMMON1, COMMON2);
+        for (WeightedCosineSimilarity.Weighting weighting : WeightedCosineSimilarity.Weighting.values()) {
+            WeightedCosineSimilarity weighted = new WeightedCosineSimilarity(frequencies, weighting);
+            double score = weighted.calculate(COMMON1, COMMON2);
+            assertTrue(score < plain / 2, weighting + ": " + score + " vs " + plain);
+            assertEquals(1.0, weighted.calculate(COMMON1, COMMON1), 1e-9);
+            assertEquals(score, weighted.calculate(COMMON2, COMMON1), 1e-12);
+        }
+    }
+
+    @Test
+    public void testProfilesMatchText() {
+        DocumentFrequencies frequencies = new DocumentFrequencies(new TermDictionary());
+        frequencies.add(COMMON1);
+        WeightedCosineSimilarity weighted = new WeightedCosineSimilarity(frequencies,
+                WeightedCosineSimilarity.Weighting.BM25);
+        double expected = weighted.calculate(COMMON1, COMMON2);
+        assertEquals(expected, weighted.calculateProfiles(DocumentProfile.of(COMMON1, frequencies.dictionary()),
+                DocumentProfile.of(COMMON2, frequencies.dictionary())), 1e-12);
+        // 使用其他词典的profile按原文重新计算
+        TermDictionary other = new TermDictionary();
+        assertEquals(expected, weighted.calculateProfiles(DocumentProfile.of(COMMON1, other),
+                DocumentProfile.of(COMMON2, other)), 1e-12);
+        assertEquals(1.0, weighted.calculate("", ""), 0.0);
+        assertEquals(0.0, weighted.calculate(COMMON1, ""), 0.0);
+    }
+
+    @Test
+    public void testQueriesLeaveCorpusUnchanged() {
+        DocumentFrequencies frequencies = new DocumentFrequencies(new TermDictionary());
+        frequencies.add(COMMON1);
+        frequencies.add("今天的天气是晴朗的");
+        int terms = frequencies.dictionary().size();
+        WeightedCosineSimilarity weighted = new WeightedCosineSimilarity(frequencies,
+                WeightedCosineSimilarity.Weighting.TF_IDF);
+        // 查询中的新词不加入词典，文档频率按0计算，与先把新词加入词典的结果相同
+        double score = weighted.calculate(COMMON1 + " novel", COMMON2 + " novel");
+        assertEquals(terms, frequencies.dictionary().size());
+        TermDictionary dictionary = frequencies.dictionary();
+        DocumentProfile profile1 = DocumentProfile.of(COMMON1 + " novel", dictionary);
+        DocumentProfile profile2 = DocumentProfile.of(COMMON2 + " novel", dictionary);
+        assertEquals(score, weighted.calculateProfiles(profile1, profile2), 1e-12);
+
+        // 语料不变时加权模长只计算一次，语料变化后重新计算
+        WeightedCosineSimilarity.Norm norm = profile1.termVector().weightedNorm();
+        weighted.calculateProfiles(profile1, profile2);
+        assertSame(norm, profile1.termVector().weightedNorm());
+        frequencies.add(COMMON2);
+        double updated = weighted.calculateProfiles(profile1, profile2);
+        assertNotSame(norm, profile1.termVector().weightedNorm());
+        assertEquals(new WeightedCosineSimilarity(frequencies, WeightedCosineSimilarity.Weighting.TF_IDF)
+                .calculateProfiles(profile1, profile2), updated, 1e-12);
+    }
+
+    @Test
+    public void testConcurrentAddWhileScoring() throws Exception {
+        DocumentFrequencies frequencies = new DocumentFrequencies(new TermDictionary());
+        WeightedCosineSimilarity weighted = new WeightedCosineSimilarity(frequencies,
+                WeightedCosineSimilarity.Weighting.TF_IDF);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        // 每个文档带两个新词，使编号跨越多个分页
+                        frequencies.add(COMMON1 + " term" + thread + "x" + i + " " + (char) (0x4E00 + thread * 5000 + i));
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    double score = weighted.calculate(COMMON1, COMMON2);
+                    assertTrue(score >= 0.0 && score <= 1.0, String.valueOf(score));
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(3000, frequencies.documentCount());
+        assertEquals(3000, frequencies.documentFrequency(frequencies.dictionary().lookup("的")));
+        assertTrue(frequencies.dictionary().size() > 4096);
+        assertEquals(1, frequencies.documentFrequency(frequencies.dictionary().lookup("term2x999")));
+    }
+}
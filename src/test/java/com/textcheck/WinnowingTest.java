@@ -0,0 +1,120 @@
+package com.textcheck;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class WinnowingTest {
+
+    private static final String COPIED = "自然语言处理是人工智能领域中的一个重要方向，它研究能实现人与计算机之间用自然语言进行有效通信的各种理论和方法。";
+
+    @Test
+    public void testFingerprintDensityAndGuarantee() {
+        Winnowing winnowing = new Winnowing(5, 4);
+        String text = randomText(new Random(1), 2000);
+        Winnowing.Fingerprints fingerprints = winnowing.fingerprint(text);
+        // 随机文本的期望密度为2/(w+1)
+        double density = (double) fingerprints.size() / (fingerprints.normalizedLength() - 4);
+        assertTrue(density > 0.3 && density < 0.5, String.valueOf(density));
+        // 任意w个连续片段中至少选出一个指纹
+        for (int i = 1; i < fingerprints.size(); i++) {
+            assertTrue(fingerprints.position(i) - fingerprints.position(i - 1) <= 4);
+        }
+
+        // 标点、空白和大小写不影响指纹
+        Winnowing.Fingerprints plain = winnowing.fingerprint("Hello World 你好世界");
+        Winnowing.Fingerprints noisy = winnowing.fingerprint("hello,  WORLD！你好 世界");
+        assertEquals(plain.size(), noisy.size());
+        for (int i = 0; i < plain.size(); i++) {
+            assertEquals(plain.hash(i), noisy.hash(i));
+        }
+    }
+
+    @Test
+    public void testMatchesReportCopiedPassage() {
+        String text1 = "今天天气很好，我们一起去公园散步吧。" + COPIED + "最后顺便买点水果回家。";
+        String text2 = "这是一篇完全不同的开头，讲述了作者的童年往事。" + COPIED;
+        WinnowingSimilarity winnowing = new WinnowingSimilarity();
+
+        List<PassageMatch> matches = winnowing.matches(text1, text2);
+        assertEquals(1, matches.size(), matches.toString());
+        PassageMatch match = matches.get(0);
+        // 段落两端最多有w-1个码点落在选中的指纹之外，末尾的句号不参与指纹
+        int start1 = text1.indexOf(COPIED);
+        int start2 = text2.indexOf(COPIED);
+        int end1 = start1 + COPIED.length() - 1;
+        int end2 = start2 + COPIED.length() - 1;
+        assertEquals(match.queryStart() - start1, match.documentStart() - start2);
+        assertTrue(match.queryStart() >= start1 && match.queryStart() <= start1 + 4, match.toString());
+        assertTrue(match.queryEnd() <= end1 && match.queryEnd() >= end1 - 4, match.toString());
+        assertTrue(match.documentEnd() <= end2 && match.documentEnd() >= end2 - 4, match.toString());
+
+        double similarity = winnowing.calculate(text1, text2);
+        assertTrue(similarity > 0.6 && similarity < 0.9, String.valueOf(similarity));
+        assertEquals(similarity, winnowing.calculate(text2, text1), 1e-12);
+        assertEquals(1.0, winnowing.calculate(COPIED, COPIED), 0.0);
+        assertEquals(0.0, winnowing.calculate(COPIED, "今天天气很好，我们一起去公园散步吧。"), 0.0);
+        assertEquals(1.0, winnowing.calculate("好的", "好的！"), 0.0);
+        assertEquals(0.0, winnowing.calculate("好的", ""), 0.0);
+    }
+
+    @Test
+    public void testCorpusSearch() {
+        Random random = new Random(7);
+        FingerprintIndex index = new FingerprintIndex();
+        String[] corpus = new String[50];
+        for (int i = 0; i < corpus.length; i++) {
+            corpus[i] = randomText(random, 300);
+            assertEquals(i, index.add(corpus[i]));
+        }
+        // 查询由两个文档的片段拼接而成
+        String passage1 = corpus[12].substring(100, 160);
+        String passage2 = corpus[37].substring(0, 40);
+        String query = randomText(random, 50) + passage1 + randomText(random, 50) + passage2;
+
+        List<PassageMatch> matches = index.search(query);
+        assertEquals(2, matches.size(), matches.toString());
+        PassageMatch match1 = matches.get(0);
+        assertEquals(12, match1.document());
+        assertEquals(match1.queryStart() - query.indexOf(passage1), match1.documentStart() - 100);
+        assertTrue(match1.documentStart() >= 100 && match1.documentStart() <= 103, match1.toString());
+        assertTrue(match1.documentEnd() <= 160 && match1.documentEnd() >= 157, match1.toString());
+        PassageMatch match2 = matches.get(1);
+        assertEquals(37, match2.document());
+        assertTrue(match2.documentStart() <= 3 && match2.queryEnd() >= query.length() - 3, match2.toString());
+    }
+
+    @Test
+    public void testIdenticalAndRepetitiveText() {
+        WinnowingSimilarity winnowing = new WinnowingSimilarity();
+        // 两端落在指纹之外的码点也要计入覆盖
+        assertEquals(1.0, winnowing.calculate("abcdefghij", "abcdefghij"), 0.0);
+        assertEquals(1.0, winnowing.calculate("人工智能领域中的一个重要方向", "人工智能领域中的一个重要方向。"), 0.0);
+        String text = randomText(new Random(3), 500);
+        assertEquals(1.0, winnowing.calculate(text, text), 0.0);
+        assertEquals(1.0, winnowing.calculate(text + "尾", text + "部"), 0.01);
+
+        // 重复文本的每个指纹都相同，查询耗时不能随长度平方增长
+        String repeated = "a".repeat(200000);
+        double similarity = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> winnowing.calculate(repeated, repeated + "b"));
+        assertTrue(similarity >= 0.0 && similarity < 1.0, String.valueOf(similarity));
+        assertEquals(1.0, winnowing.calculate(repeated, repeated), 0.0);
+        FingerprintIndex index = new FingerprintIndex();
+        index.add(repeated);
+        assertTrue(index.postingCount() <= FingerprintIndex.MAX_POSTINGS, String.valueOf(index.postingCount()));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) (0x4E00 + random.nextInt(3000)));
+        }
+        return builder.toString();
+    }
+}
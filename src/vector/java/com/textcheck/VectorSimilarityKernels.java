@@ -0,0 +1,228 @@
+package com.textcheck;
+
+import java.util.Arrays;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于Vector API的计算内核，需要以--add-modules jdk.incubator.vector启动
+ * 编辑距离按反对角线计算：同一条反对角线上的单元格只依赖前两条反对角线，互不依赖，可以整条向量化。
+ * 每个单元格的运算与标量实现完全相同，结果逐位一致
+ */
+final class VectorSimilarityKernels extends SimilarityKernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    /** 与LONGS通道数相同的int向量，用于扩展为long后求平方和 */
+    private static final VectorSpecies<Integer> HALF_INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    private static final double REPLACE_CHINESE = LevenshteinDistance.getReplaceCost(true, true);
+    private static final double REPLACE_OTHER = LevenshteinDistance.getReplaceCost(false, false);
+    private static final double REPLACE_MIXED = LevenshteinDistance.getReplaceCost(true, false);
+
+    /** 较短的文本不足两个向量宽度时反对角线太短，使用标量实现 */
+    private static final int MIN_VECTOR_COLUMNS = 2 * DOUBLES.length();
+
+    @Override
+    String name() {
+        return "vector-" + DOUBLES.vectorBitSize();
+    }
+
+    @Override
+    double editDistance(int[] rows, int n, int[] columns, int m, double maxDistance, long band, Scratch scratch) {
+        if (m < MIN_VECTOR_COLUMNS) {
+            return super.editDistance(rows, n, columns, m, maxDistance, band, scratch);
+        }
+
+        // 列按逆序存放，使同一条反对角线上的列下标随行号递增而连续；
+        // 码点转为double（可精确表示）后与代价在同一向量形状中比较，不需要跨形状转换掩码
+        double[] reversed = scratch.doubles(Scratch.REVERSED_COLUMNS, m);
+        double[] columnChinese = scratch.doubles(Scratch.COLUMN_CHINESE, m);
+        double[] insertCosts = scratch.doubles(Scratch.INSERT_COSTS, m);
+        for (int k = 0; k < m; k++) {
+            reversed[k] = columns[m - 1 - k];
+            boolean chinese = CjkTokenizer.isChinese(columns[m - 1 - k]);
+            columnChinese[k] = chinese ? 1.0 : 0.0;
+            insertCosts[k] = LevenshteinDistance.getInsertCost(chinese);
+        }
+        double[] rowCodes = scratch.doubles(Scratch.ROW_CODES, n);
+        double[] rowChinese = scratch.doubles(Scratch.ROW_CHINESE, n);
+        double[] deleteCosts = scratch.doubles(Scratch.DELETE_COSTS, n);
+        for (int i = 0; i < n; i++) {
+            rowCodes[i] = rows[i];
+            boolean chinese = CjkTokenizer.isChinese(rows[i]);
+            rowChinese[i] = chinese ? 1.0 : 0.0;
+            deleteCosts[i] = LevenshteinDistance.getDeleteCost(chinese);
+        }
+
+        // 三条反对角线按行号i存放，单元格(i, d-i)；每条只在[low, high]内有值，区间外为正无穷
+        double[] older = diagonal(scratch, Scratch.DIAGONAL_1, n);
+        double[] previous = diagonal(scratch, Scratch.DIAGONAL_2, n);
+        double[] current = diagonal(scratch, Scratch.DIAGONAL_3, n);
+        int olderLow = 0;
+        int olderHigh = -1;
+        int previousLow = 0;
+        int previousHigh = 0;
+        int currentLow = 0;
+        int currentHigh = -1;
+        previous[0] = 0.0;
+        double previousMin = 0.0;
+
+        for (int d = 1; d <= n + m; d++) {
+            int low = (int) Math.max(Math.max(0, d - m), Math.floorDiv(d - band + 1, 2));
+            int high = (int) Math.min(Math.min(n, d), Math.floorDiv(d + band, 2));
+            reset(current, currentLow, currentHigh, low, high);
+            currentLow = low;
+            currentHigh = high;
+
+            double min = Double.POSITIVE_INFINITY;
+            if (low <= high) {
+                // 第一行和第一列
+                if (low == 0) {
+                    current[0] = d;
+                    min = d;
+                }
+                if (high == d) {
+                    current[d] = d;
+                    min = d;
+                }
+                int from = Math.max(low, 1);
+                int to = Math.min(high, d - 1);
+                if (from <= to) {
+                    min = Math.min(min, interior(d, from, to, m, rowCodes, reversed, rowChinese, columnChinese,
+                            deleteCosts, insertCosts, older, previous, current));
+                }
+            }
+
+            // 任何路径都经过相邻两条反对角线之一，且路径上的代价单调不减
+            if (Math.min(min, previousMin) > maxDistance) {
+                return Double.POSITIVE_INFINITY;
+            }
+            previousMin = min;
+
+            double[] recycled = older;
+            int recycledLow = olderLow;
+            int recycledHigh = olderHigh;
+            older = previous;
+            olderLow = previousLow;
+            olderHigh = previousHigh;
+            previous = current;
+            previousLow = currentLow;
+            previousHigh = currentHigh;
+            current = recycled;
+            currentLow = recycledLow;
+            currentHigh = recycledHigh;
+        }
+
+        if (n < previousLow || n > previousHigh) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double distance = previous[n];
+        return distance > maxDistance ? Double.POSITIVE_INFINITY : distance;
+    }
+
+    /**
+     * 计算反对角线d上行号from到to的单元格，返回其中的最小值
+     */
+    private static double interior(int d, int from, int to, int m, double[] rows, double[] reversed,
+                                   double[] rowChinese, double[] columnChinese,
+                                   double[] deleteCosts, double[] insertCosts,
+                                   double[] older, double[] previous, double[] current) {
+        // 行号i对应逆序列下标 m-d+i
+        int shift = m - d;
+        DoubleVector minimum = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        DoubleVector mixed = DoubleVector.broadcast(DOUBLES, REPLACE_MIXED);
+        int lanes = DOUBLES.length();
+        int i = from;
+        for (; i + lanes - 1 <= to; i += lanes) {
+            int k = shift + i;
+            VectorMask<Double> equal = DoubleVector.fromArray(DOUBLES, rows, i - 1)
+                    .compare(VectorOperators.EQ, DoubleVector.fromArray(DOUBLES, reversed, k));
+            VectorMask<Double> chinese1 = DoubleVector.fromArray(DOUBLES, rowChinese, i - 1)
+                    .compare(VectorOperators.EQ, 1.0);
+            VectorMask<Double> chinese2 = DoubleVector.fromArray(DOUBLES, columnChinese, k)
+                    .compare(VectorOperators.EQ, 1.0);
+            DoubleVector replaceCost = mixed
+                    .blend(REPLACE_CHINESE, chinese1.and(chinese2))
+                    .blend(REPLACE_OTHER, chinese1.or(chinese2).not());
+
+            DoubleVector diagonal = DoubleVector.fromArray(DOUBLES, older, i - 1);
+            DoubleVector delete = DoubleVector.fromArray(DOUBLES, previous, i - 1)
+                    .add(DoubleVector.fromArray(DOUBLES, deleteCosts, i - 1));
+            DoubleVector insert = DoubleVector.fromArray(DOUBLES, previous, i)
+                    .add(DoubleVector.fromArray(DOUBLES, insertCosts, k));
+            DoubleVector value = delete.min(insert).min(diagonal.add(replaceCost)).blend(diagonal, equal);
+            value.intoArray(current, i);
+            minimum = minimum.min(value);
+        }
+
+        double min = minimum.reduceLanes(VectorOperators.MIN);
+        for (; i <= to; i++) {
+            int k = shift + i;
+            double value;
+            if (rows[i - 1] == reversed[k]) {
+                value = older[i - 1];
+            } else {
+                value = Math.min(
+                    Math.min(previous[i - 1] + deleteCosts[i - 1], previous[i] + insertCosts[k]),
+                    older[i - 1] + LevenshteinDistance.getReplaceCost(rowChinese[i - 1] == 1.0, columnChinese[k] == 1.0)
+                );
+            }
+            current[i] = value;
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    long sumOfSquares(int[] values) {
+        int lanes = HALF_INTS.length();
+        if (values.length < 4 * lanes) {
+            return super.sumOfSquares(values);
+        }
+        LongVector sum = LongVector.zero(LONGS);
+        int upper = HALF_INTS.loopBound(values.length);
+        int i = 0;
+        for (; i < upper; i += lanes) {
+            LongVector value = (LongVector) IntVector.fromArray(HALF_INTS, values, i)
+                    .convertShape(VectorOperators.I2L, LONGS, 0);
+            sum = sum.add(value.mul(value));
+        }
+        long result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < values.length; i++) {
+            result += (long) values[i] * values[i];
+        }
+        return result;
+    }
+
+    /**
+     * 取一条反对角线的存储，n+1个单元格全部置为正无穷
+     */
+    private static double[] diagonal(Scratch scratch, int slot, int n) {
+        double[] values = scratch.doubles(slot, n + 1);
+        Arrays.fill(values, 0, n + 1, Double.POSITIVE_INFINITY);
+        return values;
+    }
+
+    /**
+     * 把上一次使用的区间[low, high]中不属于新区间的部分恢复为正无穷
+     */
+    private static void reset(double[] values, int low, int high, int newLow, int newHigh) {
+        if (newLow > newHigh) {
+            Arrays.fill(values, low, high + 1, Double.POSITIVE_INFINITY);
+        } else {
+            if (low < newLow) {
+                Arrays.fill(values, low, Math.min(high + 1, newLow), Double.POSITIVE_INFINITY);
+            }
+            if (high > newHigh) {
+                Arrays.fill(values, Math.max(low, newHigh + 1), high + 1, Double.POSITIVE_INFINITY);
+            }
+        }
+    }
+}